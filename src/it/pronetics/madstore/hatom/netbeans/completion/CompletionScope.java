@@ -0,0 +1,193 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.completion;
+
+import it.pronetics.madstore.hatom.netbeans.validator.engine.Analyzer;
+import it.pronetics.madstore.hatom.netbeans.validator.engine.HfeedAnalyzer;
+import it.pronetics.madstore.hatom.netbeans.validator.engine.XMLUtils;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Enumerates the hAtom elements a completion can be requested in, from the outermost to the innermost.<br>
+ * Each keyword belongs to the scope where it is meaningful: for instance <code>hentry</code> children
+ * are only offered inside an <code>hentry</code> element.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.1
+ */
+public enum CompletionScope {
+
+    // out of any hfeed or hentry element
+    DOCUMENT,
+
+    // inside an hfeed element, out of its hentry elements
+    FEED,
+
+    // inside an hentry element
+    ENTRY;
+
+    /**
+     * Maximum number of characters scanned backwards from the completion offset.<br>
+     */
+    public static final int MAX_SCAN_LENGTH = 32768;
+
+    // Elements that have no end tag in HTML
+    private static final Set<String> VOID_ELEMENTS = new HashSet<String>(Arrays.asList(
+            "area", "base", "basefont", "br", "col", "command", "embed", "frame", "hr", "img", "input",
+            "isindex", "keygen", "link", "meta", "param", "source", "track", "wbr"));
+
+    // Class attribute of a start tag
+    private static final Pattern CLASS_ATTRIBUTE =
+            Pattern.compile("\\sclass\\s*=\\s*(\"[^\"]*\"|'[^']*'|[^\\s>]+)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Returns the scope a keyword belongs to.<br>
+     * @param keyword the hAtom keyword
+     * @return the scope where the keyword is meaningful
+     */
+    public static CompletionScope of(String keyword) {
+
+        if (keyword.equals(Analyzer.KEYWORD_HFEED) || keyword.equals(Analyzer.KEYWORD_HENTRY)) {
+            return DOCUMENT;
+        } else if (keyword.equals(HfeedAnalyzer.FEED_KEY)) {
+            return FEED;
+        }
+
+        return ENTRY;
+    }
+
+    /**
+     * Tells whether keywords of the given scope can be offered in this one.<br>
+     * @param keywordScope the scope of the keyword
+     * @return <code>true</code> if keywordScope is this scope or an outer one
+     */
+    public boolean includes(CompletionScope keywordScope) {
+        return keywordScope.ordinal() <= ordinal();
+    }
+
+    /**
+     * Finds the scope at the given offset of an HTML text starting at the beginning of a document.<br>
+     * @param text the text, usually the document content before the completion offset
+     * @param offset offset where completion is requested
+     * @return the scope at offset
+     * @see #at(CharSequence, int, boolean)
+     */
+    public static CompletionScope at(CharSequence text, int offset) {
+        return at(text, offset, true);
+    }
+
+    /**
+     * Finds the scope at the given offset of an HTML text.<br>
+     * The text is scanned backwards, tag by tag, up to the nearest enclosing <code>hentry</code> or
+     * <code>hfeed</code> element; the tag enclosing the offset, if any, is not an ancestor, and void elements
+     * such as <code>br</code> or <code>img</code> are skipped.<br>
+     * Tags are recognized by their brackets only, so the scope is a guess for malformed text.<br>
+     * At most {@link #MAX_SCAN_LENGTH} characters are scanned: if no enclosing element is found within them,
+     * or within a text that does not start the document, the innermost scope is returned, so that every
+     * keyword is offered.<br>
+     *
+     * @param text the text, usually the document content before the completion offset
+     * @param offset offset where completion is requested
+     * @param documentStart <code>true</code> if text starts at the beginning of the document
+     * @return the scope at offset
+     */
+    public static CompletionScope at(CharSequence text, int offset, boolean documentStart) {
+
+        // End tags found whose start tag has not been found yet
+        int depth = 0;
+        // Position of the '>' ending the tag being scanned, -1 if none
+        int tagEnd = -1;
+
+        int end = Math.min(offset, text.length());
+        int limit = Math.max(0, end - MAX_SCAN_LENGTH);
+
+        for (int i = end - 1; i >= limit; i--) {
+
+            char c = text.charAt(i);
+
+            if (c == '>') {
+                tagEnd = i;
+            } else if (c == '<' && tagEnd > i + 1) {
+
+                char next = text.charAt(i + 1);
+
+                if (next == '/') {
+                    depth++;
+                } else if (Character.isLetter(next) && text.charAt(tagEnd - 1) != '/' && !isVoidElement(text, i + 1, tagEnd)) {
+
+                    if (depth > 0) {
+                        depth--;
+                    } else {
+                        String classValue = getClassValue(text.subSequence(i, tagEnd));
+
+                        if (XMLUtils.attributeValueMatches(classValue, Analyzer.KEYWORD_HENTRY)) {
+                            return ENTRY;
+                        } else if (XMLUtils.attributeValueMatches(classValue, Analyzer.KEYWORD_HFEED)) {
+                            return FEED;
+                        }
+                    }
+                }
+                tagEnd = -1;
+            } else if (c == '<') {
+                // the tag enclosing the offset, or an empty one
+                tagEnd = -1;
+            }
+        }
+
+        return (limit == 0 && documentStart) ? DOCUMENT : ENTRY;
+    }
+
+    /**
+     * Tells whether the name of a start tag is the name of a void element.<br>
+     * @param text the text
+     * @param start position of the first character of the tag name
+     * @param end position of the '>' ending the tag
+     * @return <code>true</code> if the tag never has an end tag
+     */
+    private static boolean isVoidElement(CharSequence text, int start, int end) {
+
+        int nameEnd = start;
+        while (nameEnd < end && Character.isLetterOrDigit(text.charAt(nameEnd))) {
+            nameEnd++;
+        }
+
+        return VOID_ELEMENTS.contains(text.subSequence(start, nameEnd).toString().toLowerCase());
+    }
+
+    /**
+     * Extracts the class attribute value of a start tag.<br>
+     * @param tag the start tag, without the closing bracket
+     * @return the unquoted class value, null if the tag has no class attribute
+     */
+    private static String getClassValue(CharSequence tag) {
+
+        Matcher matcher = CLASS_ATTRIBUTE.matcher(tag);
+
+        if (!matcher.find()) {
+            return null;
+        }
+
+        String value = matcher.group(1);
+        char quote = value.charAt(0);
+
+        return (quote == '"' || quote == '\'') ? value.substring(1, value.length() - 1) : value;
+    }
+}
@@ -16,9 +16,11 @@
 
 package it.pronetics.madstore.hatom.netbeans.completion;
 
+import java.nio.CharBuffer;
 import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 import javax.swing.text.Element;
-import javax.swing.text.StyledDocument;
+import javax.swing.text.Segment;
 
 /**
  * Defines a search filter for the hAtom keywords that must be set in the code completion popup<br>
@@ -26,14 +28,16 @@ import javax.swing.text.StyledDocument;
  * The criteria we use to define the filter is this: "The filter starts from the nearest character that
  * preceedes the current caret position and follows one of the characters defined in the
  * <code>FILTER_START_CHARS</code> array.<br>
+ * If the line contains no such character, the filter starts at the line start.<br>
  * <br><br>
- * We assume that filtering operation are executed one by one, by a single user, therefore the class is 
- * defined as <i>singleton</i>.<br>
+ * Filters are immutable and computed for each completion query, so concurrent completions in different
+ * editors do not share any state. The line is read once, through a <code>Segment</code> that does not copy
+ * the document text.<br>
  * 
  * @author Andrea Castello
- * @version 1.0
+ * @version 2.0
  */
-public class Filter {
+public final class Filter {
 
     /** Useful constant for empty strings. */
     public final static String EMPRTY_STRING = "";
@@ -42,97 +46,98 @@ public class Filter {
     private static final char[] FILTER_START_CHARS = { '"', ' ', '<', '>', '=' };
     
     /** The textual body of the filter.<br> */
-    private String filterText = EMPRTY_STRING;
-    
-    /** Singleton instance of the filter */
-    private static Filter filter = null;
+    private final String filterText;
    
-    /** Index of the filter's starting character.<br> */
-    private int filterOffset = -1;
-    
-    /** Private constructor (<i>singleton</i> pattern) for the filter object.<br> */
-    private Filter(){}
+    /** Index of the filter's left border: the filter's first character follows it.<br> */
+    private final int filterOffset;
     
     /**
-     * Access method for the filter' singleton instance.<br>
-     * @return the filter
+     * Creates a filter.<br>
+     * @param filterOffset index of the filter's left border
+     * @param filterText the filter's text
      */
-    public static synchronized Filter getFilter(){
-        if (filter == null){
-            filter = new Filter();
-        }
-        
-        return filter;
+    public Filter(int filterOffset, String filterText){
+        this.filterOffset = filterOffset;
+        this.filterText = filterText;
     }
     
     /** 
-     * Returns the text of the filter.<br><br>
+     * Computes the filter at the given caret position, reading the document under its read lock.<br>
+     * If the document cannot be read, the filter is empty.<br>
      * @param doc Document on which the completion task must be applied.<br>
      * @param offset current caret position.<br>
-     * @return filter's text.<br>
+     * @return the filter.<br>
      */
-    public String getText(StyledDocument doc, int offset){
-        try{
-            this.filterOffset = getInitialOffset(doc, offset);
-            setText( doc.getText(filterOffset +1, offset - filterOffset -1) );
-        }
-        catch(Exception ex){
-            ex.printStackTrace();
-        }
-        return filterText;
+    public static Filter create(final Document doc, final int offset){
+
+        final Filter[] filter = { new Filter(offset - 1, EMPRTY_STRING) };
+
+        doc.render(new Runnable() {
+
+            public void run() {
+                try {
+                    filter[0] = read(doc, offset);
+                } catch (BadLocationException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        });
+
+        return filter[0];
     }
     
     /**
-     * sets the filter's text.<br>
-     * @param text the filter's text.<br>
+     * Computes the filter at the end of the given text.<br>
+     * @param line the text of the line before the caret
+     * @param lineStart index of the line start in the document
+     * @return the filter
      */
-    public void setText(String text){
-        this.filterText = text;
+    static Filter create(CharSequence line, int lineStart){
+
+        int border = line.length() - 1;
+
+        while (border >= 0 && !isFilterStartChar(line.charAt(border))){
+            border--;
+        }
+
+        return new Filter(lineStart + border, line.subSequence(border + 1, line.length()).toString());
+    }
+
+    /** 
+     * Returns the text of the filter.<br><br>
+     * @return filter's text.<br>
+     */
+    public String getText(){
+        return filterText;
     }
     
     /**
-     * Returns the starting index character of the filter.<br>
-     * @return filter's initial char index
+     * Returns the index of the filter's left border: the filter's first character follows it.<br>
+     * @return filter's initial char index - 1
      */
     public int getFilterOffset(){
         return filterOffset;
     }
     
     /** 
-     * Calculaters the filter's <b>left border</b>, according to the given definition (see class description).
-     * The filter's real starting character is <code>getInitialOffset() + 1</code>.<br><br>
+     * Reads the line where is the caret, up to the caret, and computes the filter.<br><br>
      * 
-     * @param doc Document on which the completion task must be applied.<br>
+     * @param document Document on which the completion task must be applied.<br>
      * @param offset current cursor position.<br>
-     * @return the index of the filter's left border.<br>
+     * @return the filter.<br>
      * @throws javax.swing.text.BadLocationException Invalid caret position in the document.<br>
      */
-    private static int getInitialOffset(StyledDocument document, int offset) throws BadLocationException {
-        int initialOffset = -1;
+    private static Filter read(Document document, int offset) throws BadLocationException {
         // We get the line where is the current caret position
-        Element lineElement = document.getParagraphElement(offset);
+        Element root = document.getDefaultRootElement();
+        Element lineElement = root.getElement(root.getElementIndex(offset));
         // line starts here
         int start = lineElement.getStartOffset();
-        int refPoint = offset - 1;
-        
-        char c;
-        
-        while (offset - 1 > start){
-            try {
-                c = document.getText(refPoint, offset - refPoint).charAt(0);
-                if (isFilterStartChar(c)) {
-                    initialOffset = refPoint;
-                    break;
-                }
-            } catch (BadLocationException ex) {
-                throw (BadLocationException) new BadLocationException(
-                        "calling getText(" + start + ", " + (start + 1) +
-                        ") on a document of length: " + document.getLength(), start).initCause(ex);
-            }
-            refPoint--;
-        }
-        
-        return initialOffset;
+
+        Segment line = new Segment();
+        document.getText(start, offset - start, line);
+
+        return create(CharBuffer.wrap(line.array, line.offset, line.count), start);
     }
     
     /**
@@ -140,7 +145,7 @@ public class Filter {
      * @param c the character to be found in the array
      * @return <code>true</code> id the character is found in the array, <code>false</code> otherwise.
      */
-    private static boolean isFilterStartChar(char c){
+    static boolean isFilterStartChar(char c){
         
         for(int i=0; i < FILTER_START_CHARS.length; i++){
             if (c == FILTER_START_CHARS[i]){
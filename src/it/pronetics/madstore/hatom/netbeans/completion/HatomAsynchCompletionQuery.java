@@ -16,23 +16,41 @@
 
 package it.pronetics.madstore.hatom.netbeans.completion;
 
-import it.pronetics.madstore.hatom.netbeans.syntax.TagCache;
-
+import java.nio.CharBuffer;
 import java.util.List;
+import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
-import javax.swing.text.StyledDocument;
+import javax.swing.text.Segment;
+import javax.swing.text.JTextComponent;
 import org.netbeans.spi.editor.completion.CompletionResultSet;
 import org.netbeans.spi.editor.completion.support.AsyncCompletionQuery;
 /**
  * Defines the query that is executed by the code completion task in order to fill the completion popup.<br> 
  * <br>
- * It only implements an abstract method defined in its superclass.<br>
+ * Keywords are looked up in the <code>HatomCompletionIndex</code>, according to the scope at the caret
+ * position. The query remembers its last result: when the user narrows the previous filter by typing more
+ * characters, that result is filtered instead of querying the index again.<br>
+ * While the completion popup is shown, typing is handled by <code>canFilter</code> and <code>filter</code>:
+ * the filter start offset of the last query is kept, so only the characters typed since then are read.<br>
  * 
  * @author Andrea Castello
- * @version 1.0
+ * @version 1.4
  */
 public class HatomAsynchCompletionQuery extends AsyncCompletionQuery {
 
+    // Document of the last query
+    private Document lastDocument;
+    // Index of the filter's first character in the last query
+    private int filterStart = -1;
+    // Filter text of the last query or filtering
+    private String lastFilter;
+    // Items found by the last query or filtering
+    private List<HatomCompletionItem> lastItems;
+    // Scope of the last query
+    private CompletionScope lastScope;
+    // Filter text accepted by canFilter, used by the following filter invocation
+    private String filterPrefix;
+
     /**
      * Executes the method that set the filtered values that will be used to fill the
      * code completion popup.<br> 
@@ -43,37 +61,135 @@ public class HatomAsynchCompletionQuery extends AsyncCompletionQuery {
      */
     @Override
     protected void query(CompletionResultSet completionRS, Document doc, int caretOffset) {
-        // First, we retrieve the filters defined for the hAtom microformat completion
-        String strFilter = Filter.EMPRTY_STRING;
-        Filter filter = Filter.getFilter();
-        
-        try {
-            StyledDocument styledDoc = (StyledDocument) doc;            
-            // Get the filter's text based on actual carte position.
-            strFilter = filter.getText(styledDoc, caretOffset);
-            
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            // if an error occurs, an empty filter is set, so that the completion popup 
-            // will be filled with all the hAtom keywords.
-            strFilter = Filter.EMPRTY_STRING;
-        }
+        // First, we retrieve the filter defined for the hAtom microformat completion, based on actual caret position.
+        // If an error occurs, the filter is empty, so that the completion popup will be filled with all the hAtom keywords.
+        String strFilter = Filter.create(doc, caretOffset).getText();
 
-        // Lista completa dei tag/parole chiave hAtom
-        List<String> hatomTags = TagCache.getCache().getTagList();
+        int start = caretOffset - strFilter.length();
+        List<HatomCompletionItem> items;
 
-        // Gets the hAtom keywords that match the given filter value.
-        for (String tag : hatomTags) {
-            boolean startWithFilter = tag.startsWith(strFilter); 
-            if (!tag.equals(Filter.EMPRTY_STRING) &&  startWithFilter) {
-                completionRS.addItem(new HatomCompletionItem(tag, filter.getFilterOffset(), caretOffset));
-            }
+        if (lastItems != null && doc == lastDocument && start == filterStart) {
+            // Same filter start, hence same scope
+            items = getItems(strFilter);
+        } else {
+            lastScope = getScope(doc, start);
+            items = HatomCompletionIndex.getIndex().getItems(strFilter, lastScope);
         }
 
+        lastDocument = doc;
+        filterStart = start;
+        lastFilter = strFilter;
+        lastItems = items;
+
+        completionRS.setAnchorOffset(start);
+        completionRS.addAllItems(items);
+
         // This is required by the Netbeans API docs.
         // After finish() is invoked, no further modifications to the result set are allowed.
         completionRS.finish();
 
     }
 
+    /**
+     * Checks whether the last result can be filtered, instead of executing a new query, after the caret moved.<br>
+     * This holds while the caret is after the filter start of the last query and the text typed since then
+     * does not contain a filter's left border.<br>
+     *
+     * @param component Visual component on which completion is executed.
+     * @return <code>true</code> if the last result can be filtered
+     */
+    @Override
+    protected boolean canFilter(JTextComponent component) {
+
+        filterPrefix = null;
+
+        Document doc = component.getDocument();
+        int caretOffset = component.getCaretPosition();
+
+        if (lastItems == null || doc != lastDocument || caretOffset < filterStart) {
+            return false;
+        }
+
+        try {
+            String prefix = doc.getText(filterStart, caretOffset - filterStart);
+
+            for (int i = 0; i < prefix.length(); i++) {
+                if (Filter.isFilterStartChar(prefix.charAt(i))) {
+                    return false;
+                }
+            }
+            filterPrefix = prefix;
+        } catch (BadLocationException ex) {
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Fills the result set filtering the last result with the text accepted by <code>canFilter</code>.<br>
+     *
+     * @param completionRS Result set containing data that will be used to fill the completion popup.
+     */
+    @Override
+    protected void filter(CompletionResultSet completionRS) {
+
+        List<HatomCompletionItem> items = getItems(filterPrefix);
+
+        lastFilter = filterPrefix;
+        lastItems = items;
+
+        completionRS.setAnchorOffset(filterStart);
+        completionRS.addAllItems(items);
+        completionRS.finish();
+    }
+
+    /**
+     * Returns the items for a filter starting where the last one started: if the filter is longer, the last
+     * result is narrowed, otherwise the index is queried in the last scope.<br>
+     *
+     * @param prefix the filter text
+     * @return the items matching prefix
+     */
+    private List<HatomCompletionItem> getItems(String prefix) {
+
+        if (prefix.startsWith(lastFilter)) {
+            return HatomCompletionIndex.filter(lastItems, prefix);
+        }
+
+        return HatomCompletionIndex.getIndex().getItems(prefix, lastScope);
+    }
+
+    /**
+     * Finds the completion scope at the given offset, reading the document under its read lock.<br>
+     * Only the last <code>CompletionScope.MAX_SCAN_LENGTH</code> characters before offset are read.<br>
+     * If the document cannot be read, the innermost scope is returned, so that every keyword is offered.<br>
+     *
+     * @param doc the document
+     * @param offset offset where the completed keyword starts
+     * @return the completion scope
+     */
+    private static CompletionScope getScope(final Document doc, final int offset) {
+
+        final CompletionScope[] scope = {CompletionScope.ENTRY};
+
+        doc.render(new Runnable() {
+
+            public void run() {
+                Segment text = new Segment();
+                try {
+                    int end = Math.max(0, Math.min(offset, doc.getLength()));
+                    int start = Math.max(0, end - CompletionScope.MAX_SCAN_LENGTH);
+
+                    doc.getText(start, end - start, text);
+                    scope[0] = CompletionScope.at(CharBuffer.wrap(text.array, text.offset, text.count), text.count, start == 0);
+                } catch (BadLocationException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        });
+
+        return scope[0];
+    }
+
 }
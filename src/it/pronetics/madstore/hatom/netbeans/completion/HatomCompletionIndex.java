@@ -0,0 +1,147 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.completion;
+
+import it.pronetics.madstore.hatom.netbeans.syntax.TagCache;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Singleton index of the hAtom keywords offered by code completion.<br>
+ * Keywords are loaded once from the TagCache and sorted, so the keywords starting with a prefix are found
+ * with a binary search instead of scanning the whole keyword list.<br>
+ * A completion item is built once for each keyword and rank, and is shared by all the completion queries:
+ * keywords belonging to the scope where completion is requested rank first, keywords of outer scopes follow
+ * and keywords of inner scopes are not offered (see <code>CompletionScope</code>).<br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public class HatomCompletionIndex {
+
+    // Sort priority of the keywords of the completion scope
+    private static final int SCOPE_PRIORITY = 0;
+    // Sort priority of the keywords of outer scopes
+    private static final int OUTER_SCOPE_PRIORITY = 1;
+    // Single class instance.
+    private static HatomCompletionIndex instance = null;
+    // Sorted keywords
+    private String[] keywords;
+    // Scope of each keyword
+    private CompletionScope[] scopes;
+    // Completion items of each keyword, indexed by sort priority
+    private HatomCompletionItem[][] items;
+
+    /**
+     * Builds the index from the keywords of the TagCache.<br>
+     */
+    private HatomCompletionIndex() {
+
+        List<String> tags = new ArrayList<String>();
+
+        for (String tag : TagCache.getCache().getTagList()) {
+            if (tag.length() > 0 && !tags.contains(tag)) {
+                tags.add(tag);
+            }
+        }
+
+        keywords = tags.toArray(new String[tags.size()]);
+        Arrays.sort(keywords);
+
+        scopes = new CompletionScope[keywords.length];
+        items = new HatomCompletionItem[keywords.length][];
+
+        for (int i = 0; i < keywords.length; i++) {
+            scopes[i] = CompletionScope.of(keywords[i]);
+            items[i] = new HatomCompletionItem[] {
+                new HatomCompletionItem(keywords[i], SCOPE_PRIORITY),
+                new HatomCompletionItem(keywords[i], OUTER_SCOPE_PRIORITY)
+            };
+        }
+    }
+
+    /**
+     * Gets the single instance for this object.<br>
+     * @return the completion index.
+     */
+    public static synchronized HatomCompletionIndex getIndex() {
+        if (instance == null) {
+            instance = new HatomCompletionIndex();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Returns the completion items of the keywords starting with the given prefix that can be offered
+     * in the given scope.<br>
+     *
+     * @param prefix the text typed by the user
+     * @param scope the scope where completion is requested
+     * @return the items, sorted by keyword; the list cannot be modified
+     */
+    public List<HatomCompletionItem> getItems(String prefix, CompletionScope scope) {
+
+        List<HatomCompletionItem> result = new ArrayList<HatomCompletionItem>();
+
+        for (int i = findFirst(prefix); i < keywords.length && keywords[i].startsWith(prefix); i++) {
+            if (scope.includes(scopes[i])) {
+                result.add(items[i][(scopes[i] == scope) ? SCOPE_PRIORITY : OUTER_SCOPE_PRIORITY]);
+            }
+        }
+
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Narrows the result of a previous query to the keywords starting with a longer prefix.<br>
+     *
+     * @param items the items found for a shorter prefix
+     * @param prefix the text typed by the user
+     * @return the items starting with prefix, in the same order; the list cannot be modified
+     */
+    public static List<HatomCompletionItem> filter(List<HatomCompletionItem> items, String prefix) {
+
+        if (prefix.length() == 0) {
+            return items;
+        }
+
+        List<HatomCompletionItem> result = new ArrayList<HatomCompletionItem>();
+
+        for (HatomCompletionItem item : items) {
+            if (item.getText().startsWith(prefix)) {
+                result.add(item);
+            }
+        }
+
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Finds the first keyword not lower than the given prefix.<br>
+     * @param prefix the prefix
+     * @return the index of the first keyword that may start with prefix
+     */
+    private int findFirst(String prefix) {
+
+        int index = Arrays.binarySearch(keywords, prefix);
+
+        return (index >= 0) ? index : -index - 1;
+    }
+}
@@ -35,40 +35,35 @@ import org.openide.util.Exceptions;
 
 /**
  * The list that appears in the popup completion object.<br>
+ * Items are immutable and shared by all the completion queries (see <code>HatomCompletionIndex</code>),
+ * so the text they replace is found when they are applied.<br>
  * 
  * @author Andrea Castello
- * @version 1.0
+ * @version 1.2
  */
 public class HatomCompletionItem implements CompletionItem {
     
     /**
      * Completion text (ie: value "hfeed").
      */
-    private String text;
+    private final String text;
     /**
-     * Selected field color.
+     * Sort priority of the item.
      */
-    private static Color fieldColor = Color.decode("0x0000B2");
+    private final int sortPriority;
     /**
-     * Current caret postion inside the text/html document. 
-     */
-    private int caretOffset;
-    /**
-     * Index of the filter's starting character. This means that it is the index at which the completed text
-     * will be inserted.
+     * Selected field color.
      */
-    private int startOffset;
+    private static Color fieldColor = Color.decode("0x0000B2");
     
     /**
      * Creates a new instance with all the data needed to fill the object and use it.<br>
      * @param text text
-     * @param startOffset Index of the filter's starting character.
-     * @param caretOffset Current caret postion inside the used document.
+     * @param sortPriority sort priority, lower values are listed first
      */
-    public HatomCompletionItem(String text, int startOffset, int caretOffset){
+    public HatomCompletionItem(String text, int sortPriority){
         this.text = text;
-        this.caretOffset = caretOffset;
-        this.startOffset = startOffset;
+        this.sortPriority = sortPriority;
     }
     
     /**
@@ -98,6 +93,9 @@ public class HatomCompletionItem implements CompletionItem {
     public void defaultAction(JTextComponent textComponent) {
         
         StyledDocument styledDocument = (StyledDocument) textComponent.getDocument();
+        int caretOffset = textComponent.getCaretPosition();
+        // Index of the filter's starting character, where the completed text will be inserted.
+        int startOffset = Filter.create(styledDocument, caretOffset).getFilterOffset();
         try{
             int len = caretOffset - startOffset -1;
             if (len>0){
@@ -185,10 +183,10 @@ public class HatomCompletionItem implements CompletionItem {
      * Sort priority.<br>
      * From Netbeans API javadoc: "A lower value means a lower index of the item in the completion result list".<br>
      * 
-     * @return constant value zero.
+     * @return 0 for the keywords of the scope where completion is requested, 1 for the other ones.
      */
     public int getSortPriority() {
-        return 0;
+        return sortPriority;
     }
 
     public CharSequence getSortText() {
@@ -207,27 +205,4 @@ public class HatomCompletionItem implements CompletionItem {
         return text;
     }
 
-    /**
-     * Sets completion text.<br>
-     */ 
-    public void setText(String text) {
-        this.text = text;
-    }
-
-    /**
-     * 
-     * @return Current caret offset<br>.
-     */
-    public int getCaretOffset() {
-        return caretOffset;
-    }
-
-    /**
-     * Sets the current caret offset<br>.
-     * @param caretOffset carte offset
-     */
-    public void setCaretOffset(int caretOffset) {
-        this.caretOffset = caretOffset;
-    }
-
 }
\ No newline at end of file
@@ -16,7 +16,6 @@
 
 package it.pronetics.madstore.hatom.netbeans.syntax;
 
-import java.util.List;
 import org.netbeans.api.lexer.Token;
 import org.netbeans.spi.lexer.Lexer;
 import org.netbeans.spi.lexer.LexerInput;
@@ -25,10 +24,22 @@ import org.netbeans.spi.lexer.TokenFactory;
 
 /**
  * Lexical analyzer for hAtom keywords embedded in HTML or XHTML files.<br>
- * As of current version, it just creates tokens for simple keywords such <code>hentry</code>.
+ * As of current version, it just creates tokens for simple keywords such <code>hentry</code>.<br>
+ * Keywords are found by a <code>KeywordMatcher</code> built from the TagCache keywords, so each character
+ * is examined once.<br>
+ * Text tokens longer than the maximum text length are split, preferably right before the last tag start
+ * (<code>'&lt;'</code>), and never inside a keyword: lexing can restart from the beginning of any token, so
+ * the text relexed after an edit is bounded by the maximum length instead of by the document size.<br>
+ * The restart state is <code>null</code>, except right before a keyword, where it is the cached
+ * <code>HatomLexerState</code> holding the keyword length.<br>
+ * In attribute aware mode (the default) the lexer follows the HTML structure, and keywords are only looked
+ * for in the values of <code>class</code> and <code>rel</code> attributes, where they are whitespace separated
+ * words: keywords in text, comments, scripts or other attributes are not tokens, and all that text is skipped
+ * without running the keyword automaton. Text tokens are then only split where the HTML context can be
+ * carried by the restart state, which also holds that context.
  *
  * @author Andrea Castello
- * @version 1.1
+ * @version 1.5
  */
 public class HatomLexer implements Lexer<HatomTokenId> {
 
@@ -49,8 +60,60 @@ public class HatomLexer implements Lexer<HatomTokenId> {
     private int state;
     // Lenght of the currently analyzed token
     private int tokenLenght;
+    // Maximum length of the text tokens created by this lexer
+    private int maxLength;
     // cache containing all the hAtom keywords
     private final static TagCache tagCache = TagCache.getCache();
+    // automaton recognizing the hAtom keywords with their left border
+    private final static KeywordMatcher keywordMatcher = new KeywordMatcher(tagCache.getTagList(), PRE_KEYWORD_CHARS);
+    /** Default maximum length of text tokens.*/
+    public static final int DEFAULT_MAX_TEXT_LENGTH = 4096;
+    // Text tokens longer than this are split; 0 to never split them
+    private static volatile int maxTextLength = DEFAULT_MAX_TEXT_LENGTH;
+    // Whether the lexers look for keywords only in class and rel attribute values
+    private static volatile boolean attributeAware = true;
+    // HTML contexts of the attribute aware mode
+    private static final int CONTENT = 0;          // text out of any tag
+    private static final int TAG_OPEN = 1;         // right after '<'
+    private static final int BANG = 2;             // after "<!"
+    private static final int BANG_DASH = 3;        // after "<!-"
+    private static final int COMMENT = 4;          // inside a comment
+    private static final int DECLARATION = 5;      // end tags, declarations and processing instructions
+    private static final int ELEMENT_NAME = 6;     // element name of a start tag
+    private static final int IN_TAG = 7;           // start tag, between attributes
+    private static final int ATTRIBUTE_NAME = 8;   // attribute name
+    private static final int AFTER_ATTRIBUTE = 9;  // after an attribute name
+    private static final int BEFORE_VALUE = 10;    // after '='
+    private static final int VALUE = 11;           // quoted value of any other attribute
+    private static final int UNQUOTED_VALUE = 12;  // unquoted value of any other attribute
+    private static final int HATOM_VALUE = 13;     // quoted class or rel value
+    private static final int HATOM_UNQUOTED_VALUE = 14; // unquoted class or rel value
+    private static final int RAW_TEXT = 15;        // content of a script or style element
+    private static final int TAG_SLASH = 16;       // after '/' in a start tag
+    // Elements whose content is not markup
+    private static final String[] RAW_TEXT_ELEMENTS = {"script", "style"};
+    // Attributes whose values can hold hAtom keywords
+    private static final String[] HATOM_ATTRIBUTES = {"class", "rel"};
+    // Whether this lexer looks for keywords only in class and rel attribute values
+    private boolean attributeMode;
+    // Current HTML context
+    private int context;
+    // Quote of the current attribute value, 0 if unquoted
+    private int quote;
+    // Raw text element opened by the current tag (index in RAW_TEXT_ELEMENTS + 1), 0 if none
+    private int rawKind;
+    // Whether the current attribute is a class or rel one
+    private boolean hatomAttribute;
+    // Characters read of the current element or attribute name
+    private int nameIndex;
+    // Bits of the candidate names still matching the current element or attribute name
+    private int nameMatches;
+    // Dashes read before the end of a comment, or characters matched of a raw text end tag
+    private int progress;
+    // Characters read of the current word of a class or rel value, 0 between words
+    private int wordLength;
+    // Automaton state of the current word
+    private int wordState;
 
     /**
      * Creates the hAtom lexer instance starting from the infos retrieved by Netbeans platform.<br>
@@ -59,7 +122,21 @@ public class HatomLexer implements Lexer<HatomTokenId> {
     public HatomLexer(LexerRestartInfo<HatomTokenId> info) {
         this.input = info.input();
         this.tokenFactory = info.tokenFactory();
-        this.state = (info.state() != null) ? (Integer) info.state() : INIT;
+        HatomLexerState restartState = (HatomLexerState) info.state();
+
+        this.state = INIT;
+
+        if (restartState != null) {
+            this.tokenLenght = restartState.getKeywordLength();
+            if (tokenLenght > 0) {
+                this.state = ISI_KEYWORD;
+            }
+            this.context = restartState.getContext();
+            this.quote = restartState.getQuote();
+            this.rawKind = restartState.getRawKind();
+        }
+        this.maxLength = maxTextLength;
+        this.attributeMode = attributeAware;
 
     }
 
@@ -75,7 +152,7 @@ public class HatomLexer implements Lexer<HatomTokenId> {
 
         switch (state) {
             case INIT:
-                token = findNextToken(c);
+                token = attributeMode ? findNextAttributeToken(c) : findNextToken(c);
                 break;
             case ISI_KEYWORD:
                 token = goToKeywordEnd(c);
@@ -92,15 +169,64 @@ public class HatomLexer implements Lexer<HatomTokenId> {
 
     /**
      * Returns this lexer' state.<br>
+     * After a keyword, the lexer works as in its initial state, so both are represented by <code>null</code>
+     * unless, in attribute aware mode, the lexer is not out of any tag.<br>
      */
     public Object state() {
-        return this.state;
+
+        int keywordLength = (state == ISI_KEYWORD) ? tokenLenght : 0;
+
+        if (!attributeMode) {
+            return (keywordLength > 0) ? HatomLexerState.beforeKeyword(keywordLength) : null;
+        }
+        if (keywordLength == 0 && context == CONTENT) {
+            return null;
+        }
+
+        int valueQuote = (context == VALUE || context == HATOM_VALUE) ? quote : 0;
+        return HatomLexerState.get(keywordLength, context, valueQuote, rawKind);
     }
 
     // Not implemented
     public void release() {
     }
 
+    /**
+     * Returns the length above which text tokens are split.<br>
+     * @return the maximum text token length, 0 if text tokens are never split
+     */
+    public static int getMaxTextLength() {
+        return maxTextLength;
+    }
+
+    /**
+     * Sets the length above which text tokens are split, for the lexers created from now on.
+     * Default is <code>DEFAULT_MAX_TEXT_LENGTH</code>.<br>
+     * A token is longer than the maximum only when it cannot be split without splitting a keyword.<br>
+     * @param length the maximum text token length, 0 to never split text tokens
+     */
+    public static void setMaxTextLength(int length) {
+        maxTextLength = length;
+    }
+
+    /**
+     * Tells whether keywords are only looked for in <code>class</code> and <code>rel</code> attribute values.<br>
+     * @return <code>true</code> if the lexers are attribute aware
+     */
+    public static boolean isAttributeAware() {
+        return attributeAware;
+    }
+
+    /**
+     * Sets whether the lexers created from now on only look for keywords in <code>class</code> and
+     * <code>rel</code> attribute values. Default is <code>true</code>.<br>
+     * When <code>false</code>, a keyword is found anywhere it is delimited by the keyword border characters.<br>
+     * @param aware <code>true</code> to make the lexers attribute aware
+     */
+    public static void setAttributeAware(boolean aware) {
+        attributeAware = aware;
+    }
+
     /** 
      * Goes to the end of file and returns the last token.
      * @return the last text token
@@ -117,22 +243,6 @@ public class HatomLexer implements Lexer<HatomTokenId> {
         }
     }
 
-    /**
-     * Checks whether the passed character is one of the allowed keyword's left limits
-     * @param c the character to be analyzed
-     * @return <code>true</code> if c is an allowed character for keyword's left limit, <code>false</code> otherwise
-     */
-    private boolean isPreKeywordChar(int c) {
-
-        for (int i = 0; i < PRE_KEYWORD_CHARS.length; i++) {
-            if (c == PRE_KEYWORD_CHARS[i]) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
     /**
      * Checks whether the passed character is one of the allowed keyword's right limits
      * @param c the character to be analyzed
@@ -149,44 +259,6 @@ public class HatomLexer implements Lexer<HatomTokenId> {
         return false;
     }
 
-    /**
-     * Check if the parameter character is the end of an hAtom keyword.<br>
-     * @param c character to be analyzed
-     * @return true if the character is the end of a hAtom keyword, false otherwise
-     */
-    private boolean isKeyWordEnd(int c) {
-
-        List<String> tags = tagCache.getTagList();
-        CharSequence cs = input.readText();
-
-        for (String tag : tags) {
-            if (cs.toString().endsWith(tag)) {
-
-                // Key word end reach, we read one ore character
-                // in order to find if the keyword has been completed or is part of a longer word
-                c = input.read();
-
-                if (isPostKeywordChar(c)) { // keyword really ends here
-                    
-                    tokenLenght = tag.length();
-                    input.backup(tokenLenght + 2); // back two the characters before keyword starts
-
-                    // Now we also check that the character before the keyword is valid
-                    c = input.read();
-
-                    if (isPreKeywordChar(c)) {
-                        return true;
-                    } else {
-                        // Keyword not found, we can go right after the analyzed word
-                        skip(tokenLenght);
-                    }
-                }
-            }
-        }
-
-        return false;
-    }
-
     /**
      * Searches for the token following a hAtom keyword.<br>
      * 
@@ -194,7 +266,7 @@ public class HatomLexer implements Lexer<HatomTokenId> {
      * @return the Token to which the character belongs
      */
     private Token<HatomTokenId> nextTokenAfterKeyword(int c) {
-        return findNextToken(c);
+        return attributeMode ? findNextAttributeToken(c) : findNextToken(c);
     }
 
     /**
@@ -215,29 +287,274 @@ public class HatomLexer implements Lexer<HatomTokenId> {
     /**
      * Finds the next text token, analyzing all the characters in the input until it
      * finds one or EOF.<br>
+     * A keyword is found when it is preceded by one of the <code>PRE_KEYWORD_CHARS</code> and followed
+     * by one of the <code>POST_KEYWORD_CHARS</code>: the text token ends right before the keyword.<br>
      * @param c character to be analyzed
      * @return the id of the found token or null if it reaches the EOF.
      */
     private Token<HatomTokenId> findNextToken(int c) {
 
+        int matcherState = KeywordMatcher.START;
+        // Length of the text before the last tag start
+        int tagStart = 0;
+
         while (true) {
-            
-            switch (c) {
-                
-                case 'd': // character that are all the possible end letters for hAtom keywords.
-                case 'e':
-                case 'y':
-                case 't':
-                case 'r':
-                case 'k':
-                case 'g':
-                    if (isKeyWordEnd(c)) {
-                        state = ISI_KEYWORD;
-                        return tokenFactory.createToken(HatomTokenId.TEXT);
+
+            if (c == EOF) {
+                return goToEOF();
+            }
+
+            // Length of the text read before c
+            int length = input.readLength() - 1;
+
+            if (c == '<') {
+                tagStart = length;
+            } else if (maxLength > 0 && length >= maxLength) {
+
+                // Splits before the last tag or, if there is none, before a keyword that may start here
+                int splitLength = (tagStart > 0) ? tagStart : length - keywordMatcher.getDepth(matcherState);
+
+                if (splitLength > 0) {
+                    input.backup(input.readLength() - splitLength);
+
+                    state = INIT;
+                    return tokenFactory.createToken(HatomTokenId.TEXT);
+                }
+            }
+
+            matcherState = keywordMatcher.next(matcherState, c);
+            int keywordLength = keywordMatcher.getKeywordLength(matcherState);
+
+            c = input.read();
+
+            if (keywordLength > 0) {
+
+                if (isPostKeywordChar(c)) { // keyword really ends here
+
+                    // back to the keyword start
+                    tokenLenght = keywordLength;
+                    input.backup(tokenLenght + 1);
+
+                    state = ISI_KEYWORD;
+                    return tokenFactory.createToken(HatomTokenId.TEXT);
+                }
+
+                // The keyword is part of a longer word: the following character cannot end another keyword
+                if (c == EOF) {
+                    return goToEOF();
+                }
+                matcherState = keywordMatcher.next(matcherState, c);
+                c = input.read();
+            }
+        }
+    }
+
+    /**
+     * Finds the next token in attribute aware mode, following the HTML context character by character.<br>
+     * A keyword is found when it is a whitespace separated word of a <code>class</code> or <code>rel</code>
+     * attribute value: the text token ends right before the keyword.<br>
+     * @param c character to be analyzed
+     * @return the id of the found token or null if it reaches the EOF.
+     */
+    private Token<HatomTokenId> findNextAttributeToken(int c) {
+
+        // Length of the text before the last tag start out of any tag
+        int tagStart = 0;
+
+        while (true) {
+
+            if (c == EOF) {
+                return goToEOF();
+            }
+
+            // Length of the text read before c
+            int length = input.readLength() - 1;
+
+            if (context == CONTENT && c == '<') {
+                tagStart = length;
+            }
+
+            if (maxLength > 0 && length >= maxLength) {
+
+                // Splits before the last tag or, if there is none, here if the context can be restarted
+                int splitLength = (tagStart > 0) ? tagStart : (isRestartPoint() ? length : 0);
+
+                if (splitLength > 0) {
+                    input.backup(input.readLength() - splitLength);
+
+                    if (splitLength == tagStart) {
+                        context = CONTENT;
+                        rawKind = 0;
+                        wordLength = 0;
+                    }
+                    state = INIT;
+                    return tokenFactory.createToken(HatomTokenId.TEXT);
+                }
+            }
+
+            switch (context) {
+                case CONTENT:
+                    if (c != '<') {
+                        c = skipTo(c, '<');
+                        continue;
                     }
+                    context = TAG_OPEN;
+                    break;
+                case TAG_OPEN:
+                    rawKind = 0;
+                    if (c == '!') {
+                        context = BANG;
+                    } else if (c == '/' || c == '?') {
+                        context = DECLARATION;
+                    } else if (Character.isLetter(c)) {
+                        context = ELEMENT_NAME;
+                        startName(c, RAW_TEXT_ELEMENTS);
+                    } else if (c != '<') {
+                        context = CONTENT;
+                    }
+                    break;
+                case BANG:
+                    context = (c == '-') ? BANG_DASH : (c == '>') ? CONTENT : DECLARATION;
+                    break;
+                case BANG_DASH:
+                    context = (c == '-') ? COMMENT : (c == '>') ? CONTENT : DECLARATION;
+                    progress = 0;
+                    break;
+                case COMMENT:
+                    if (progress == 0 && c != '-') {
+                        c = skipTo(c, '-');
+                        continue;
+                    }
+                    if (c == '-') {
+                        progress++;
+                    } else if (c == '>' && progress >= 2) {
+                        context = CONTENT;
+                        progress = 0;
+                    } else {
+                        progress = 0;
+                    }
+                    break;
+                case DECLARATION:
+                    if (c != '>') {
+                        c = skipTo(c, '>');
+                        continue;
+                    }
+                    context = CONTENT;
+                    break;
+                case ELEMENT_NAME:
+                    if (isWhitespace(c) || c == '/' || c == '>') {
+                        rawKind = matchedName(RAW_TEXT_ELEMENTS);
+                        afterName(c);
+                    } else if (nameMatches == 0) {
+                        c = skipName(c);
+                        continue;
+                    } else {
+                        matchName(c, RAW_TEXT_ELEMENTS);
+                    }
+                    break;
+                case TAG_SLASH:
+                    if (c == '>') { // empty element
+                        rawKind = 0;
+                        endTag();
+                        break;
+                    }
+                    context = IN_TAG;
+                    // falls through
+                case IN_TAG:
+                    if (c == '>') {
+                        endTag();
+                    } else if (c == '/') {
+                        context = TAG_SLASH;
+                    } else if (!isWhitespace(c)) {
+                        context = ATTRIBUTE_NAME;
+                        startName(c, HATOM_ATTRIBUTES);
+                    }
+                    break;
+                case ATTRIBUTE_NAME:
+                    if (isWhitespace(c) || c == '/' || c == '>' || c == '=') {
+                        hatomAttribute = matchedName(HATOM_ATTRIBUTES) > 0;
+                        if (c == '=') {
+                            context = BEFORE_VALUE;
+                        } else {
+                            afterName(c);
+                        }
+                    } else if (nameMatches == 0) {
+                        c = skipName(c);
+                        continue;
+                    } else {
+                        matchName(c, HATOM_ATTRIBUTES);
+                    }
+                    break;
+                case AFTER_ATTRIBUTE:
+                    if (c == '=') {
+                        context = BEFORE_VALUE;
+                    } else if (c == '/' || c == '>') {
+                        afterName(c);
+                    } else if (!isWhitespace(c)) {
+                        context = ATTRIBUTE_NAME;
+                        startName(c, HATOM_ATTRIBUTES);
+                    }
+                    break;
+                case BEFORE_VALUE:
+                    if (c == '"' || c == '\'') {
+                        context = hatomAttribute ? HATOM_VALUE : VALUE;
+                        quote = c;
+                        wordLength = 0;
+                    } else if (c == '>') {
+                        endTag();
+                    } else if (!isWhitespace(c)) {
+                        quote = 0;
+                        if (hatomAttribute) {
+                            context = HATOM_UNQUOTED_VALUE;
+                            wordLength = 0;
+                            addWordChar(c);
+                        } else {
+                            context = UNQUOTED_VALUE;
+                        }
+                    }
+                    break;
+                case VALUE:
+                    if (c != quote) {
+                        c = skipTo(c, quote);
+                        continue;
+                    }
+                    context = IN_TAG;
+                    break;
+                case UNQUOTED_VALUE:
+                    if (c == '>') {
+                        endTag();
+                    } else if (isWhitespace(c)) {
+                        context = IN_TAG;
+                    }
+                    break;
+                case HATOM_VALUE:
+                case HATOM_UNQUOTED_VALUE:
+                    boolean valueEnd = (context == HATOM_VALUE) ? c == quote : c == '>';
+
+                    if (valueEnd || isWhitespace(c)) {
+
+                        Token<HatomTokenId> keyword = endWord();
+                        if (keyword != null) {
+                            return keyword;
+                        }
+
+                        if (valueEnd && c == '>') {
+                            endTag();
+                        } else if (valueEnd || context == HATOM_UNQUOTED_VALUE) {
+                            context = IN_TAG;
+                        }
+                    } else {
+                        c = readWord(c, (context == HATOM_VALUE) ? quote : '>');
+                        continue;
+                    }
+                    break;
+                case RAW_TEXT:
+                    if (progress == 0 && c != '<') {
+                        c = skipTo(c, '<');
+                        continue;
+                    }
+                    matchRawTextEnd(c);
                     break;
-                case EOF:
-                    return goToEOF();
                 default:
                     ;
             }
@@ -247,14 +564,226 @@ public class HatomLexer implements Lexer<HatomTokenId> {
     }
 
     /**
-     * Reads a variable number of character which have to be skipped by the lexer.<br>
-     * Skipped characters must have already been analyzed by the lexer.<br>
-     * @param skipChars Number of characters that must be skipped.
+     * Skips the characters that cannot change the current HTML context, without any other check.<br>
+     * @param c the current character
+     * @param stop the first character that can change the context
+     * @return the stop character, or EOF, or the character that makes the token reach the maximum length
      */
-    private void skip(int skipChars) {
-        
-        for (int i = 0; i < skipChars; i++) {
-            input.read();
+    private int skipTo(int c, int stop) {
+
+        int limit = (maxLength > 0) ? maxLength : Integer.MAX_VALUE;
+        // Length of the text read before c
+        int length = input.readLength() - 1;
+
+        while (c != stop && c != EOF && length < limit) {
+            c = input.read();
+            length++;
+        }
+
+        return c;
+    }
+
+    /**
+     * Checks whether lexing can restart from the current HTML context, as held by <code>HatomLexerState</code>,
+     * right before the character being analyzed.<br>
+     * @return <code>true</code> if the context does not depend on partially read names or words
+     */
+    private boolean isRestartPoint() {
+
+        switch (context) {
+            case CONTENT:
+            case DECLARATION:
+            case IN_TAG:
+            case VALUE:
+            case UNQUOTED_VALUE:
+                return true;
+            case COMMENT:
+            case RAW_TEXT:
+                return progress == 0;
+            case HATOM_VALUE:
+            case HATOM_UNQUOTED_VALUE:
+                return wordLength == 0;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks whether the word of a class or rel value just ended is a keyword and, if so, goes back to
+     * the keyword start.<br>
+     * @return the text token before the keyword, the keyword token if nothing precedes it in the current
+     * token, <code>null</code> if the word is not a keyword
+     */
+    private Token<HatomTokenId> endWord() {
+
+        int length = wordLength;
+        wordLength = 0;
+
+        if (length == 0 || keywordMatcher.getKeywordLength(wordState) != length) {
+            return null;
+        }
+
+        // back to the keyword start
+        tokenLenght = length;
+        input.backup(tokenLenght + 1);
+
+        if (input.readLength() > 0) {
+            state = ISI_KEYWORD;
+            return tokenFactory.createToken(HatomTokenId.TEXT);
+        }
+
+        return goToKeywordEnd(input.read());
+    }
+
+    /**
+     * Feeds the characters of a class or rel value word to the keyword automaton.<br>
+     * Words are never split, so there is no need to check the token length.<br>
+     * @param c first word character
+     * @param valueEnd the character ending the value
+     * @return the character following the word
+     */
+    private int readWord(int c, int valueEnd) {
+
+        do {
+            addWordChar(c);
+            c = input.read();
+        } while (c != valueEnd && c != EOF && !isWhitespace(c));
+
+        return c;
+    }
+
+    /**
+     * Feeds a character of a class or rel value word to the keyword automaton.<br>
+     * The automaton sees each word as preceded by a space, so that keywords must start with the word.<br>
+     * @param c the word character
+     */
+    private void addWordChar(int c) {
+
+        if (wordLength == 0) {
+            wordState = keywordMatcher.next(KeywordMatcher.START, ' ');
+        }
+        wordState = keywordMatcher.next(wordState, c);
+        wordLength++;
+    }
+
+    /**
+     * Handles the character ending an element or attribute name, when it is not a <code>'='</code>.<br>
+     * Unlike other elements, empty <code>script</code> and <code>style</code> elements have no raw text.<br>
+     * @param c whitespace, <code>'/'</code> or <code>'&gt;'</code>
+     */
+    private void afterName(int c) {
+
+        if (c == '>') {
+            endTag();
+        } else if (c == '/') {
+            context = TAG_SLASH;
+        } else if (context == ATTRIBUTE_NAME) {
+            context = AFTER_ATTRIBUTE;
+        } else {
+            context = IN_TAG;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Ends the current start tag: the content of script and style elements is raw text.<br>
+     */
+    private void endTag() {
+        context = (rawKind > 0) ? RAW_TEXT : CONTENT;
+        progress = 0;
+    }
+
+    /**
+     * Looks for the end tag of the current raw text element, case insensitively.<br>
+     * @param c character to be analyzed
+     */
+    private void matchRawTextEnd(int c) {
+
+        String name = RAW_TEXT_ELEMENTS[rawKind - 1];
+
+        if (progress == 0) {
+            progress = (c == '<') ? 1 : 0;
+        } else if (progress == 1) {
+            progress = (c == '/') ? 2 : (c == '<') ? 1 : 0;
+        } else if (Character.toLowerCase((char) c) == name.charAt(progress - 2)) {
+            progress++;
+
+            if (progress - 2 == name.length()) {
+                context = DECLARATION;
+                rawKind = 0;
+                progress = 0;
+            }
+        } else {
+            progress = (c == '<') ? 1 : 0;
+        }
+    }
+
+    /**
+     * Skips the rest of an element or attribute name that does not match any candidate.<br>
+     * @param c the current name character
+     * @return the first character that can end the name
+     */
+    private int skipName(int c) {
+
+        do {
+            c = input.read();
+        } while (c != '=' && c != '/' && c != '>' && c != EOF && !isWhitespace(c));
+
+        return c;
+    }
+
+    /**
+     * Starts matching an element or attribute name against the given candidates.<br>
+     * @param c first name character
+     * @param names the candidate names, lower case
+     */
+    private void startName(int c, String[] names) {
+        nameIndex = 0;
+        nameMatches = (1 << names.length) - 1;
+        matchName(c, names);
+    }
+
+    /**
+     * Matches the next character of an element or attribute name, case insensitively.<br>
+     * @param c name character
+     * @param names the candidate names, lower case
+     */
+    private void matchName(int c, String[] names) {
+
+        if (nameMatches == 0) {
+            return;
+        }
+
+        char lower = Character.toLowerCase((char) c);
+
+        for (int i = 0; i < names.length; i++) {
+            if (nameIndex >= names[i].length() || names[i].charAt(nameIndex) != lower) {
+                nameMatches &= ~(1 << i);
+            }
+        }
+        nameIndex++;
+    }
+
+    /**
+     * Returns the candidate equal to the name just read.<br>
+     * @param names the candidate names
+     * @return the index of the matched name + 1, 0 if the name is not a candidate
+     */
+    private int matchedName(String[] names) {
+
+        for (int i = 0; i < names.length; i++) {
+            if ((nameMatches & (1 << i)) != 0 && names[i].length() == nameIndex) {
+                return i + 1;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * @param c the character to be analyzed
+     * @return <code>true</code> if c is an HTML whitespace character
+     */
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.syntax;
+
+/**
+ * Restart state of HatomLexer.<br>
+ * When the next token is a keyword, it holds the keyword length, so that lexing can restart right at the keyword.<br>
+ * In attribute aware mode, it also holds the HTML context the lexer was in (e.g. inside a <code>class</code>
+ * attribute value), together with the quote of the current attribute value and the raw text element
+ * (<code>script</code> or <code>style</code>) whose start tag is being read.<br>
+ * The initial state, out of any tag and before anything but a keyword, is <code>null</code>.<br>
+ * Instances are immutable and cached: states can be compared with <code>==</code> and getting a state
+ * never allocates.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.1
+ */
+public final class HatomLexerState {
+
+    /** Number of HTML contexts a state can hold; lexer contexts range from 0 to CONTEXTS - 1.*/
+    static final int CONTEXTS = 17;
+    // Quotes an attribute value can be delimited by; 0 for unquoted values
+    private static final char[] QUOTES = {0, '"', '\''};
+    // Number of raw text element kinds, 0 included
+    private static final int RAW_KINDS = 3;
+    // Longest keyword length
+    private static final int MAX_KEYWORD_LENGTH;
+    // Cached states, indexed by context, quote, raw text element and keyword length
+    private static final HatomLexerState[] STATES;
+
+    static {
+        int maxLength = 0;
+
+        for (String tag : TagCache.getCache().getTagList()) {
+            maxLength = Math.max(maxLength, tag.length());
+        }
+
+        MAX_KEYWORD_LENGTH = maxLength;
+        STATES = new HatomLexerState[CONTEXTS * QUOTES.length * RAW_KINDS * (maxLength + 1)];
+
+        for (int context = 0; context < CONTEXTS; context++) {
+            for (int quote = 0; quote < QUOTES.length; quote++) {
+                for (int rawKind = 0; rawKind < RAW_KINDS; rawKind++) {
+                    for (int length = 0; length <= maxLength; length++) {
+                        STATES[index(length, context, quote, rawKind)] =
+                                new HatomLexerState(length, context, QUOTES[quote], rawKind);
+                    }
+                }
+            }
+        }
+    }
+
+    // Length of the keyword that starts the next token, 0 if the next token is not a keyword
+    private final int keywordLength;
+    // HTML context
+    private final int context;
+    // Quote of the current attribute value, 0 if none
+    private final char quote;
+    // Raw text element opened by the current tag, 0 if none
+    private final int rawKind;
+
+    private HatomLexerState(int keywordLength, int context, char quote, int rawKind) {
+        this.keywordLength = keywordLength;
+        this.context = context;
+        this.quote = quote;
+        this.rawKind = rawKind;
+    }
+
+    /**
+     * Returns the state of a lexer whose next token is a keyword of the given length.<br>
+     *
+     * @param keywordLength the keyword length, greater than 0
+     * @return the state
+     */
+    public static HatomLexerState beforeKeyword(int keywordLength) {
+
+        if (keywordLength <= 0) {
+            throw new IllegalArgumentException("Invalid keyword length: " + keywordLength);
+        }
+
+        return get(keywordLength, 0, 0, 0);
+    }
+
+    /**
+     * Returns the state of an attribute aware lexer.<br>
+     *
+     * @param keywordLength length of the keyword that starts the next token, 0 if none
+     * @param context the HTML context, from 0 to <code>CONTEXTS - 1</code>
+     * @param quote quote of the current attribute value, 0 if none
+     * @param rawKind raw text element opened by the current tag, 0 if none
+     * @return the state
+     */
+    static HatomLexerState get(int keywordLength, int context, int quote, int rawKind) {
+
+        if (keywordLength < 0 || context < 0 || context >= CONTEXTS || rawKind < 0 || rawKind >= RAW_KINDS) {
+            throw new IllegalArgumentException("Invalid lexer state: " + keywordLength + ", " + context + ", " + rawKind);
+        }
+
+        int quoteIndex = -1;
+
+        for (int i = 0; i < QUOTES.length; i++) {
+            if (quote == QUOTES[i]) {
+                quoteIndex = i;
+            }
+        }
+
+        if (quoteIndex < 0) {
+            throw new IllegalArgumentException("Invalid attribute quote: " + quote);
+        }
+
+        return (keywordLength <= MAX_KEYWORD_LENGTH) ? STATES[index(keywordLength, context, quoteIndex, rawKind)]
+                : new HatomLexerState(keywordLength, context, QUOTES[quoteIndex], rawKind);
+    }
+
+    // Index of a cached state
+    private static int index(int keywordLength, int context, int quoteIndex, int rawKind) {
+        return ((context * QUOTES.length + quoteIndex) * RAW_KINDS + rawKind) * (MAX_KEYWORD_LENGTH + 1) + keywordLength;
+    }
+
+    /**
+     * @return the length of the keyword that starts the next token, 0 if the next token is not a keyword
+     */
+    public int getKeywordLength() {
+        return keywordLength;
+    }
+
+    /**
+     * @return the HTML context
+     */
+    int getContext() {
+        return context;
+    }
+
+    /**
+     * @return the quote of the current attribute value, 0 if none
+     */
+    char getQuote() {
+        return quote;
+    }
+
+    /**
+     * @return the raw text element opened by the current tag, 0 if none
+     */
+    int getRawKind() {
+        return rawKind;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+
+        if (!(obj instanceof HatomLexerState)) {
+            return false;
+        }
+
+        HatomLexerState other = (HatomLexerState) obj;
+
+        return other.keywordLength == keywordLength && other.context == context && other.quote == quote
+                && other.rawKind == rawKind;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((keywordLength * 31 + context) * 31 + quote) * 31 + rawKind;
+    }
+
+    @Override
+    public String toString() {
+        return "HatomLexerState[keywordLength=" + keywordLength + ", context=" + context + ", quote=" + quote
+                + ", rawKind=" + rawKind + "]";
+    }
+}
@@ -0,0 +1,194 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.syntax;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Finite automaton that finds hAtom keywords in a stream of characters.<br>
+ * The automaton recognizes every keyword preceded by one of the given "left border" characters
+ * (Aho-Corasick automaton, with all the transitions computed in advance): each character is consumed
+ * with a single table lookup, and the automaton state tells the length of the keyword ending at the
+ * last consumed character, if any.<br>
+ * Matcher instances are immutable and can be shared by any number of lexers.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.1
+ */
+public class KeywordMatcher {
+
+    /** State of the automaton before any character has been consumed.*/
+    public static final int START = 0;
+
+    // Characters used in the keywords, mapped to their column in the transition table; -1 for other characters
+    private final int[] columns = new int[128];
+
+    // Number of columns of the transition table
+    private final int width;
+
+    // Transition table: next state is transitions[state * width + column]
+    private final int[] transitions;
+
+    // Length of the keyword ending in each state, without its left border; 0 if no keyword ends there
+    private final int[] keywordLengths;
+
+    // Number of the last consumed characters that can still be part of a keyword, for each state
+    private final int[] depths;
+
+    /**
+     * Builds the automaton for the given keywords.<br>
+     *
+     * @param keywords keywords to be recognized, containing only ASCII characters
+     * @param leftBorders characters that must precede a keyword
+     */
+    public KeywordMatcher(List<String> keywords, char[] leftBorders) {
+
+        Arrays.fill(columns, -1);
+
+        int count = 0;
+        for (char c : leftBorders) {
+            count = addColumn(c, count);
+        }
+        for (String keyword : keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                count = addColumn(keyword.charAt(i), count);
+            }
+        }
+        width = count;
+
+        // Trie of the patterns: each keyword after each left border
+        List<int[]> children = new ArrayList<int[]>();
+        List<Integer> lengths = new ArrayList<Integer>();
+        List<Integer> trieDepths = new ArrayList<Integer>();
+        children.add(newNode());
+        lengths.add(0);
+        trieDepths.add(0);
+
+        for (String keyword : keywords) {
+            for (char border : leftBorders) {
+
+                int state = addChild(START, columns[border], children, lengths, trieDepths);
+
+                for (int i = 0; i < keyword.length(); i++) {
+                    state = addChild(state, columns[keyword.charAt(i)], children, lengths, trieDepths);
+                }
+
+                lengths.set(state, keyword.length());
+            }
+        }
+
+        // Turns the trie into the automaton, visiting states breadth first
+        int states = children.size();
+        transitions = new int[states * width];
+        keywordLengths = new int[states];
+        depths = new int[states];
+        int[] failures = new int[states];
+
+        LinkedList<Integer> queue = new LinkedList<Integer>();
+        queue.add(START);
+
+        while (!queue.isEmpty()) {
+
+            int state = queue.removeFirst();
+            int[] next = children.get(state);
+
+            // A state without its own keyword ends the longest keyword of its failure state
+            keywordLengths[state] = (lengths.get(state) > 0) ? lengths.get(state) : keywordLengths[failures[state]];
+            depths[state] = trieDepths.get(state);
+
+            for (int column = 0; column < width; column++) {
+
+                if (next[column] > 0) {
+                    failures[next[column]] = (state == START) ? START : transitions[failures[state] * width + column];
+                    transitions[state * width + column] = next[column];
+                    queue.add(next[column]);
+                } else {
+                    transitions[state * width + column] = (state == START) ? START : transitions[failures[state] * width + column];
+                }
+            }
+        }
+    }
+
+    private int addColumn(char c, int count) {
+
+        if (c >= columns.length) {
+            throw new IllegalArgumentException("Keyword character is not ASCII: " + c);
+        }
+        if (columns[c] < 0) {
+            columns[c] = count++;
+        }
+
+        return count;
+    }
+
+    private int[] newNode() {
+        return new int[width];
+    }
+
+    private int addChild(int state, int column, List<int[]> children, List<Integer> lengths, List<Integer> trieDepths) {
+
+        int[] next = children.get(state);
+
+        if (next[column] == 0) {
+            next[column] = children.size();
+            children.add(newNode());
+            lengths.add(0);
+            trieDepths.add(trieDepths.get(state) + 1);
+        }
+
+        return next[column];
+    }
+
+    /**
+     * Consumes a character.<br>
+     *
+     * @param state current state, <code>START</code> for the first character
+     * @param c the character
+     * @return the new state
+     */
+    public int next(int state, int c) {
+
+        int column = (c >= 0 && c < columns.length) ? columns[c] : -1;
+
+        return (column < 0) ? START : transitions[state * width + column];
+    }
+
+    /**
+     * Returns the length of the keyword that ends with the last character consumed to reach the given state.<br>
+     *
+     * @param state automaton state
+     * @return the keyword length, without its left border, or 0 if no keyword ends in this state
+     */
+    public int getKeywordLength(int state) {
+        return keywordLengths[state];
+    }
+
+    /**
+     * Returns how many of the last consumed characters may be the beginning of a keyword, including its
+     * left border.<br>
+     * Consuming these characters again from <code>START</code> leads to the same state.<br>
+     *
+     * @param state automaton state
+     * @return the number of characters, 0 for <code>START</code>
+     */
+    public int getDepth(int state) {
+        return depths[state];
+    }
+}
@@ -0,0 +1,223 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package it.pronetics.madstore.hatom.netbeans.validator.action;
+
+import it.pronetics.madstore.hatom.netbeans.validator.engine.Report;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.StyledDocument;
+
+/**
+ * Publishes the validation reports of a document as editor annotations.<br>
+ *
+ * Each validation run is compared with the annotations published by the previous one (see <code>MarkerDiff</code>):
+ * only the annotations of the errors that have been fixed are removed, and only the new errors are annotated,
+ * so the editor repaints in proportion to the change and not to the number of errors. The difference is computed
+ * on the calling thread; annotations are then added and removed on the event dispatch thread, in batches of
+ * <code>BATCH_SIZE</code>, so that the editor stays responsive while thousands of markers are published.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.2
+ */
+public class AnnotationPublisher {
+
+    // Number of annotations added or removed by a single event of the dispatch thread
+    public static final int BATCH_SIZE = 100;
+
+    // The annotated document
+    private StyledDocument document;
+
+    // Published annotations, including the ones still waiting to be attached
+    private List<ReportAnnotation> annotations = new ArrayList<ReportAnnotation>();
+
+    // Pending changes of the editor, in order
+    private final LinkedList<Change> changes = new LinkedList<Change>();
+
+    // True after dispose has been called
+    private boolean disposed;
+
+    // True while a batch is scheduled on the event dispatch thread
+    private boolean scheduled;
+
+    // Applies the next batch of pending changes
+    private final Runnable batch = new Runnable() {
+
+        public void run() {
+            applyBatch();
+        }
+    };
+
+    /**
+     * Attachment or detachment of an annotation, waiting for the event dispatch thread.<br>
+     */
+    private static final class Change {
+
+        // The annotation to be attached or detached
+        final ReportAnnotation annotation;
+
+        // True to attach the annotation, false to detach it
+        final boolean attach;
+
+        Change(ReportAnnotation annotation, boolean attach) {
+            this.annotation = annotation;
+            this.attach = attach;
+        }
+    }
+
+    /**
+     * Creates a new publisher for the given document.<br>
+     * @param document the annotated document
+     */
+    public AnnotationPublisher(StyledDocument document) {
+        this.document = document;
+    }
+
+    /**
+     * Replaces the published annotations with the given reports, adding and removing only the changed ones.<br>
+     * This method may be called from any thread; it does nothing once the publisher has been disposed.<br>
+     *
+     * @param reports the reports of the last validation run
+     */
+    public synchronized void publish(List<Report> reports) {
+
+        if (!disposed) {
+            update(reports);
+        }
+    }
+
+    /**
+     * Removes all the published annotations. Reports published afterwards are ignored.<br>
+     */
+    public synchronized void dispose() {
+        update(Collections.<Report>emptyList());
+        disposed = true;
+    }
+
+    /**
+     * Replaces the published annotations with the given reports.<br>
+     */
+    private void update(List<Report> reports) {
+
+        Map<ReportKey, ReportAnnotation> previous = new LinkedHashMap<ReportKey, ReportAnnotation>();
+        List<ReportAnnotation> removed = new ArrayList<ReportAnnotation>();
+
+        for (ReportAnnotation annotation : annotations) {
+
+            // Edits may have moved two annotations to the same offset: one is enough
+            if (previous.put(annotation.getKey(), annotation) != null) {
+                removed.add(annotation);
+            }
+        }
+
+        MarkerDiff<ReportAnnotation> diff = new MarkerDiff<ReportAnnotation>(previous, reports);
+
+        if (diff.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+
+        removed.addAll(diff.getRemoved());
+
+        List<ReportAnnotation> added = new ArrayList<ReportAnnotation>(diff.getAdded().size());
+
+        for (Report report : diff.getAdded()) {
+            added.add(new ReportAnnotation(report));
+        }
+
+        annotations = new ArrayList<ReportAnnotation>(diff.getKept());
+        annotations.addAll(added);
+
+        enqueue(removed, false);
+        enqueue(added, true);
+    }
+
+    /**
+     * @return the number of published annotations
+     */
+    public synchronized int getAnnotationCount() {
+        return annotations.size();
+    }
+
+    /**
+     * Removes an annotation that could not be attached from the published ones.<br>
+     */
+    private synchronized void discard(ReportAnnotation annotation) {
+        annotations.remove(annotation);
+    }
+
+    /**
+     * Queues the given changes and schedules a batch, if needed.<br>
+     */
+    private void enqueue(List<ReportAnnotation> list, boolean attach) {
+
+        synchronized (changes) {
+
+            for (ReportAnnotation annotation : list) {
+                changes.add(new Change(annotation, attach));
+            }
+
+            if (!scheduled && !changes.isEmpty()) {
+                scheduled = true;
+                SwingUtilities.invokeLater(batch);
+            }
+        }
+    }
+
+    /**
+     * Applies up to <code>BATCH_SIZE</code> pending changes, then schedules the next batch if changes are left.<br>
+     * Called on the event dispatch thread.<br>
+     */
+    private void applyBatch() {
+
+        List<Change> next = new ArrayList<Change>(BATCH_SIZE);
+
+        synchronized (changes) {
+            while (next.size() < BATCH_SIZE && !changes.isEmpty()) {
+                next.add(changes.removeFirst());
+            }
+        }
+
+        for (Change change : next) {
+
+            if (change.attach) {
+                try {
+                    change.annotation.attach(document);
+                } catch (BadLocationException ex) {
+                    // Not published: the next validation will annotate the report again
+                    discard(change.annotation);
+                }
+            } else {
+                change.annotation.detach(document);
+            }
+        }
+
+        synchronized (changes) {
+            if (changes.isEmpty()) {
+                scheduled = false;
+            } else {
+                SwingUtilities.invokeLater(batch);
+            }
+        }
+    }
+}
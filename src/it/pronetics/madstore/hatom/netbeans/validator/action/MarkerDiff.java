@@ -0,0 +1,106 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package it.pronetics.madstore.hatom.netbeans.validator.action;
+
+import it.pronetics.madstore.hatom.netbeans.validator.engine.Report;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Difference between the markers published by a validation run and the reports of the next one.<br>
+ *
+ * Markers are matched to reports by <code>ReportKey</code>: a marker whose key is found among the new reports
+ * is kept as it is, the others are removed, and a marker has to be added only for the reports that are left.
+ * Reports with the same key give a single marker. The difference is computed in linear time.<br>
+ *
+ * @param <T> type of the published markers
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public class MarkerDiff<T> {
+
+    // Markers to be kept, in report order
+    private List<T> kept = new ArrayList<T>();
+
+    // Markers to be removed
+    private List<T> removed = new ArrayList<T>();
+
+    // Reports that need a new marker
+    private List<Report> added = new ArrayList<Report>();
+
+    /**
+     * Computes the difference.<br>
+     *
+     * @param previous the published markers, by key
+     * @param reports the reports of the new validation run
+     */
+    public MarkerDiff(Map<ReportKey, T> previous, List<Report> reports) {
+
+        Map<ReportKey, Report> current = new LinkedHashMap<ReportKey, Report>();
+
+        for (Report report : reports) {
+            ReportKey key = ReportKey.of(report);
+
+            if (!current.containsKey(key)) {
+                current.put(key, report);
+            }
+        }
+
+        for (Map.Entry<ReportKey, T> entry : previous.entrySet()) {
+
+            if (current.remove(entry.getKey()) != null) {
+                kept.add(entry.getValue());
+            } else {
+                removed.add(entry.getValue());
+            }
+        }
+
+        added.addAll(current.values());
+    }
+
+    /**
+     * @return the markers that are still valid
+     */
+    public List<T> getKept() {
+        return kept;
+    }
+
+    /**
+     * @return the markers that have to be removed
+     */
+    public List<T> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return the reports that need a new marker
+     */
+    public List<Report> getAdded() {
+        return added;
+    }
+
+    /**
+     * @return <code>true</code> if no marker has to be added or removed
+     */
+    public boolean isEmpty() {
+        return removed.isEmpty() && added.isEmpty();
+    }
+}
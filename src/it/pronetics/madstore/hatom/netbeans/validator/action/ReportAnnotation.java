@@ -0,0 +1,111 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package it.pronetics.madstore.hatom.netbeans.validator.action;
+
+import it.pronetics.madstore.hatom.netbeans.validator.engine.Report;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Position;
+import javax.swing.text.StyledDocument;
+import org.openide.text.Annotation;
+import org.openide.text.NbDocument;
+
+/**
+ * Editor annotation that shows a validation report on the line of the reported element.<br>
+ * The annotation type is registered in the module layer, and gives the error glyph and the error stripe mark.<br>
+ * Annotations are attached and detached on the event dispatch thread only.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public class ReportAnnotation extends Annotation {
+
+    // Annotation type, as declared in the layer
+    public static final String ANNOTATION_TYPE = "it-pronetics-madstore-hatom-netbeans-validator-error";
+
+    // Id of the rule that has produced the report
+    private final String ruleId;
+
+    // Error message
+    private final String message;
+
+    // Offset of the report, used until the annotation is attached
+    private final int offset;
+
+    // Position of the annotation in the document, it follows the changes of the text
+    private volatile Position position;
+
+    /**
+     * Creates the annotation of the given report.<br>
+     * @param report the validation report
+     */
+    public ReportAnnotation(Report report) {
+        this.ruleId = report.getRuleId();
+        this.message = report.getMessage();
+        this.offset = report.getOffset();
+    }
+
+    public String getAnnotationType() {
+        return ANNOTATION_TYPE;
+    }
+
+    public String getShortDescription() {
+        return message;
+    }
+
+    /**
+     * Returns the key of the annotation at its current offset, which is moved by the changes of the text.<br>
+     * @return the annotation key
+     */
+    public ReportKey getKey() {
+        Position pos = position;
+        return new ReportKey(ruleId, message, (pos != null) ? pos.getOffset() : offset);
+    }
+
+    /**
+     * Adds the annotation to the document, on the line of the report.<br>
+     * Reports without a position are shown on the first line.<br>
+     *
+     * @param document the annotated document
+     * @throws javax.swing.text.BadLocationException if the position cannot be created
+     */
+    void attach(StyledDocument document) throws BadLocationException {
+
+        if (position != null) {
+            return;
+        }
+
+        int start = Math.min(Math.max(offset, 0), document.getLength());
+
+        position = document.createPosition(start);
+        NbDocument.addAnnotation(document, position, -1, this);
+    }
+
+    /**
+     * Removes the annotation from the document.<br>
+     * @param document the annotated document
+     */
+    void detach(StyledDocument document) {
+
+        if (position == null) {
+            return;
+        }
+
+        NbDocument.removeAnnotation(document, this);
+    }
+}
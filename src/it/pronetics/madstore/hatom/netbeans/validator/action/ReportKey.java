@@ -0,0 +1,104 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package it.pronetics.madstore.hatom.netbeans.validator.action;
+
+import it.pronetics.madstore.hatom.netbeans.validator.engine.Report;
+
+/**
+ * Identifies an editor marker by rule, message and offset.<br>
+ * Two validation runs reporting the same error at the same place give equal keys, so the marker
+ * published by the first run can be kept by the second one.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public final class ReportKey {
+
+    // Id of the rule that has produced the report
+    private final String ruleId;
+
+    // Error message
+    private final String message;
+
+    // Offset of the marker in the document
+    private final int offset;
+
+    /**
+     * Creates a new key.<br>
+     *
+     * @param ruleId id of the rule, or <code>null</code>
+     * @param message the error message
+     * @param offset offset of the marker in the document, or -1 if unknown
+     */
+    public ReportKey(String ruleId, String message, int offset) {
+        this.ruleId = ruleId;
+        this.message = message;
+        this.offset = offset;
+    }
+
+    /**
+     * @param report a validation report
+     * @return the key of the marker of the given report
+     */
+    public static ReportKey of(Report report) {
+        return new ReportKey(report.getRuleId(), report.getMessage(), report.getOffset());
+    }
+
+    public String getRuleId() {
+        return ruleId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+
+        if (this == obj) {
+            return true;
+        }
+
+        if (!(obj instanceof ReportKey)) {
+            return false;
+        }
+
+        ReportKey other = (ReportKey) obj;
+
+        return offset == other.offset
+                && (ruleId == null ? other.ruleId == null : ruleId.equals(other.ruleId))
+                && (message == null ? other.message == null : message.equals(other.message));
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = offset;
+        hash = 31 * hash + (ruleId != null ? ruleId.hashCode() : 0);
+        hash = 31 * hash + (message != null ? message.hashCode() : 0);
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return ruleId + "@" + offset + ": " + message;
+    }
+}
@@ -17,7 +17,7 @@
 package it.pronetics.madstore.hatom.netbeans.validator.action;
 
 import it.pronetics.madstore.hatom.netbeans.validator.engine.Report;
-import it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorCache;
+import it.pronetics.madstore.hatom.netbeans.validator.engine.ValidationScheduler;
 import it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorEngine;
 
 import java.beans.PropertyChangeEvent;
@@ -40,7 +40,7 @@ import org.openide.windows.OutputWriter;
  * Performs the validation action for currently selected (and opened) document.<br>
  * 
  * @author Andrea Castello
- * @version 1.4
+ * @version 1.10
  */
 public final class ValidatorAction extends CallableSystemAction implements PropertyChangeListener {
 
@@ -58,7 +58,109 @@ public final class ValidatorAction extends CallableSystemAction implements Prope
     }
     
     /**
-     * Performs the document's validation task.<br> 
+     * Background validation of a document.<br>
+     * Reports are published as editor annotations after every validation; the output tab is only written
+     * after the validation requested by the action. The validation is stopped when the document, or its
+     * last editor pane, is closed.<br>
+     */
+    private class BackgroundValidation implements ValidationScheduler.Listener, PropertyChangeListener {
+
+        // The validated document
+        private StyledDocument document;
+
+        // Name of the validated document
+        private String documentName;
+
+        // Editor of the document, notifies when the document or its panes are closed; may be null
+        private EditorCookie.Observable editor;
+
+        // Annotates the validated document
+        private AnnotationPublisher publisher;
+
+        // Validates the document on every change
+        private ValidationScheduler scheduler;
+
+        // True if the result of the next validation has to be written in the output tab
+        private volatile boolean printResult;
+
+        BackgroundValidation(StyledDocument document, String documentName, EditorCookie editor) {
+            this.document = document;
+            this.documentName = documentName;
+            this.publisher = new AnnotationPublisher(document);
+            this.scheduler = new ValidationScheduler(document, documentName, this);
+
+            if (editor instanceof EditorCookie.Observable) {
+                this.editor = (EditorCookie.Observable) editor;
+                this.editor.addPropertyChangeListener(this);
+            }
+        }
+
+        /**
+         * Validates the document as soon as possible, and writes the result in the output tab.<br>
+         */
+        void validateNow() {
+            printResult = true;
+            scheduler.validateNow();
+        }
+
+        /**
+         * Stops validating the document and removes its annotations.<br>
+         */
+        void stop() {
+            scheduler.dispose();
+            publisher.dispose();
+
+            if (editor != null) {
+                editor.removePropertyChangeListener(this);
+            }
+        }
+
+        public void validationCompleted(List<Report> reports, long elapsedTime) {
+            publisher.publish(reports);
+
+            if (printResult) {
+                printResult = false;
+                printSummary(reports, openOutput(documentName), elapsedTime);
+            }
+        }
+
+        public void validationFailed(Exception ex) {
+
+            // While the document is being edited it may not be well formed: annotations are kept as they are
+            if (!printResult) {
+                return;
+            }
+
+            printResult = false;
+
+            ValidatorEngine engine = new ValidatorEngine();
+
+            if (ex instanceof BadLocationException) {
+                Report.addErrorReport(engine, "Unable to read document \n "+ ex.getClass().getName()+": "+ex.getMessage());
+            } else {
+                Report.addErrorReport(engine, "Unable to parse document \n "+ ex.getClass().getName()+": "+ex.getMessage());
+            }
+
+            printReports(engine.getReports(), openOutput(documentName), 0);
+        }
+
+        /**
+         * Stops the validation when the document, or its last editor pane, is closed.<br>
+         */
+        public void propertyChange(PropertyChangeEvent evt) {
+
+            if (EditorCookie.Observable.PROP_DOCUMENT.equals(evt.getPropertyName()) && evt.getNewValue() == null) {
+                stopValidation(document);
+            } else if (EditorCookie.Observable.PROP_OPENED_PANES.equals(evt.getPropertyName()) && editor.getOpenedPanes() == null) {
+                stopValidation(document);
+            }
+        }
+    }
+
+    /**
+     * Validates the currently selected document and writes the result in the output tab.<br>
+     * From then on the document is also validated in background whenever it is changed, and the editor
+     * annotations are updated with the new reports, until the document is closed.<br>
      */
     public void performAction() {
         // Sets the validation process start time. 
@@ -67,59 +169,74 @@ public final class ValidatorAction extends CallableSystemAction implements Prope
         // Name of the document that has to be validated
         String documentName = getOpenDocumentName();
         
-        // The currently open and selected document
-        StyledDocument document = getStyledDocument();
+        // Editor of the currently open and selected document
+        EditorCookie editor = getEditorCookie();
         
-        // "Root" object for document validation. 
-        ValidatorEngine engine;
-       
-         // Object that writes into the output tab
-        OutputWriter writer = openOutput(documentName);
+        // The currently open and selected document
+        StyledDocument document = (editor != null) ? editor.getDocument() : null;
   
         if (document!=null){
-            try {
-                engine = ValidatorCache.getInstance().createEngine(documentName);         
-                engine.validate(document);
-            } catch (BadLocationException ex) {       
-                Report.addErrorReport(documentName, "Unable to read document \n "+ ex.getClass().getName()+": "+ex.getMessage());
-                
-            } catch (IOException ex) {
-                Report.addErrorReport(documentName, "Unable to parse document \n "+ ex.getClass().getName()+": "+ex.getMessage());
-            }
+            startValidation(document, documentName, editor);
         }
         else {
-             Report.addErrorReport(documentName, "Unable to load editor document \n ");
+             ValidatorEngine engine = new ValidatorEngine();
+             Report.addErrorReport(engine, "Unable to load editor document \n ");
+
+             // Prints the report then closes the output object 
+             printReports(engine.getReports(), openOutput(documentName), timeMeasurer.getElapsedTime());
         }
        
-        // Prints the report then closes the output object 
-        printReports(documentName, writer, timeMeasurer);
-        
-        // removes the ValidatorEngine object from the cache of validation engines
-        ValidatorCache.getInstance().remove(documentName);
+    }
+
+    /**
+     * Validates the given document now, starting its background validation if it is not running yet.<br>
+     * 
+     * @param document the document to be validated
+     * @param documentName the document's name
+     * @param editor the editor of the document
+     */
+    private synchronized void startValidation(StyledDocument document, String documentName, EditorCookie editor) {
         
+        BackgroundValidation validation = (BackgroundValidation) document.getProperty(BackgroundValidation.class);
+
+        if (validation == null) {
+            validation = new BackgroundValidation(document, documentName, editor);
+            document.putProperty(BackgroundValidation.class, validation);
+        }
+
+        validation.validateNow();
     }
 
     /**
-     * Find the currently used document in the list of the IDE's open nodes.<br>
+     * Stops the background validation of the given document, if any.<br>
      * 
-     * @param arr all the nodes open in Netbeans editor.
-     * @return the found document, or null
+     * @param document the validated document
      */
-    private StyledDocument findUsedDocument(Node[] activatedNodes) {
+    private synchronized void stopValidation(StyledDocument document) {
+        
+        BackgroundValidation validation = (BackgroundValidation) document.getProperty(BackgroundValidation.class);
         
-        StyledDocument styledDoc = null;
+        if (validation != null) {
+            document.putProperty(BackgroundValidation.class, null);
+            validation.stop();
+        }
+    }
+
+    /**
+     * Find the editor of the currently used document in the list of the IDE's open nodes.<br>
+     * 
+     * @param activatedNodes all the nodes open in Netbeans editor.
+     * @return the editor of the found document, or null
+     */
+    private EditorCookie findUsedEditor(Node[] activatedNodes) {
         
         for (int j = 0; j < activatedNodes.length; j++) {
 
             EditorCookie ec = activatedNodes[j].getCookie(EditorCookie.class);
-            if (ec != null) {
-                // try to get the document which is currently used by the IDE user.
-                styledDoc = ec.getDocument();
-                
-                if (styledDoc != null) {
-                    //documentName = arr[j].getName();
-                    return styledDoc;
-                }
+            
+            // try to get the document which is currently used by the IDE user.
+            if (ec != null && ec.getDocument() != null) {
+                return ec;
             }
         } //end for
         
@@ -128,10 +245,10 @@ public final class ValidatorAction extends CallableSystemAction implements Prope
     }
     
     /**
-     * Gets the currently open and selected document in the IDE.<br>
-     * @return document associated with the selected and opened node in the IDE, or null if nothing has been found.
+     * Gets the editor of the currently open and selected document in the IDE.<br>
+     * @return editor associated with the selected and opened node in the IDE, or null if nothing has been found.
      */
-    private StyledDocument getStyledDocument() {
+    private EditorCookie getEditorCookie() {
         // First, get the list of the open nodes in the IDE.
         TopComponent activeComponent = TopComponent.getRegistry().getActivated();
         
@@ -139,10 +256,9 @@ public final class ValidatorAction extends CallableSystemAction implements Prope
             
             if (activatedNodes != null) {
                 
-                return findUsedDocument(activatedNodes);
+                return findUsedEditor(activatedNodes);
                 
             }
-        // end for
 
         // if no node is opened, return null
         return null;
@@ -178,21 +294,20 @@ public final class ValidatorAction extends CallableSystemAction implements Prope
     }
 
     /**
-     * Rettrieves the IO handler and the out writer objects, the opens the output tab.<br>
-     * <b>Each new invocation of a validation process opens a new tab</b><br> 
+     * Retrieves the IO handler and the out writer objects of the output tab, and clears the tab.<br>
+     * <b>All the validations share the same tab</b>, which is not selected, so the editor keeps the focus.<br>
      */
     private OutputWriter openOutput(String documentName) {
         
         // "hAtom" tab is created in output window for writing the list of tags
-        InputOutput io = IOProvider.getDefault().getIO(TAB_NAME, true);
-        io.select();
+        InputOutput io = IOProvider.getDefault().getIO(TAB_NAME, false);
 
         OutputWriter writer = io.getOut();
 
         try {
             writer.reset(); //clean the output tab
 
-            writer.println("Validating file "+ documentName +". Please wait..." + "\n");
+            writer.println("Validation of file "+ documentName + "\n");
         }
         catch (IOException ex) { // Usually occurs when is not possible to clean output tab
             writer.println("I/O Error: " + ex.getMessage());
@@ -205,15 +320,12 @@ public final class ValidatorAction extends CallableSystemAction implements Prope
     /**
      * Prints validation reports in a dedicated tab of the IDE.<br>
      * 
-     * @param documentName name of the document that has to be validated
+     * @param reports reports of the validated document
      * @param writer dedicated IO writer for validation output tab
-     * @param timeMeasurer 
+     * @param elapsedTime validation time in milliseconds
      */ 
-    private void printReports(String documentName, OutputWriter writer, TimeMeasurer timeMeasurer) {
-
-        ValidatorEngine engine = ValidatorCache.getInstance().getEngine(documentName);
+    private void printReports(List<Report> reports, OutputWriter writer, long elapsedTime) {
 
-        List<Report> reports = engine.getReports();
         if (reports != null && reports.size() > 0) {
             
             writer.println("Document contains " + reports.size() +" errors \n");
@@ -226,12 +338,34 @@ public final class ValidatorAction extends CallableSystemAction implements Prope
             writer.println("Document contains valid hAtom microformat \n");
         }
 
-        writer.print(" Validation completed in: " + timeMeasurer.getElapsedTime() + " milliseconds");
+        writer.print(" Validation completed in: " + elapsedTime + " milliseconds");
          
         writer.flush();
         writer.close();
     }
     
+    /**
+     * Prints the number of errors of a validated document in a dedicated tab of the IDE.<br>
+     * Errors themselves are shown as editor annotations.<br>
+     *
+     * @param reports reports of the validated document
+     * @param writer dedicated IO writer for validation output tab
+     * @param elapsedTime validation time in milliseconds
+     */
+    private void printSummary(List<Report> reports, OutputWriter writer, long elapsedTime) {
+
+        if (reports != null && reports.size() > 0) {
+            writer.println("Document contains " + reports.size() +" errors, marked in the editor \n");
+        } else {
+            writer.println("Document contains valid hAtom microformat \n");
+        }
+
+        writer.print(" Validation completed in: " + elapsedTime + " milliseconds");
+
+        writer.flush();
+        writer.close();
+    }
+
     /**
      * On every property change event occurring to the activated component, it enables or disables
      * the action button according to the document's extension.<br>
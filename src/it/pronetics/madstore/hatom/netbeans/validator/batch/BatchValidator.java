@@ -0,0 +1,418 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package it.pronetics.madstore.hatom.netbeans.validator.batch;
+
+import it.pronetics.madstore.hatom.netbeans.validator.engine.Report;
+import it.pronetics.madstore.hatom.netbeans.validator.engine.ValidationMode;
+import it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorEngine;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Validates the XHTML files of whole directory trees, without the NetBeans runtime.<br>
+ * Files are validated by a fixed number of threads; directories are walked while files are validated,
+ * and no more than a few files per thread are waiting to be validated at any time.<br>
+ * The reports of each file are passed to the listener as soon as the file has been validated.<br>
+ * <br>
+ * Usage: <code>java BatchValidator [-threads n] [-mode SINGLE_PASS|MULTI_PASS|STREAMING|PARALLEL] [-quiet] path...</code><br>
+ * The exit status is 0 if all files are valid, 1 if any report has been found and 2 if any file
+ * could not be validated.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public class BatchValidator {
+
+    // Extensions of the files validated by default
+    public static final String[] DEFAULT_EXTENSIONS = {".xhtml", ".html", ".htm"};
+
+    /**
+     * Receives the result of each file validation.<br>
+     * Methods are called by the validation threads, one file at a time.<br>
+     */
+    public interface Listener {
+
+        /**
+         * Called when a file has been validated.<br>
+         * @param file the validated file
+         * @param reports the reports found in the file
+         * @param elapsedTime validation time in milliseconds
+         */
+        void fileValidated(File file, List<Report> reports, long elapsedTime);
+
+        /**
+         * Called when a file could not be read or parsed.<br>
+         * @param file the file
+         * @param ex the error
+         */
+        void fileFailed(File file, Exception ex);
+    }
+
+    // Number of validation threads
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    // How files are validated
+    private ValidationMode validationMode = ValidationMode.SINGLE_PASS;
+
+    // Extensions of the files to be validated, lower case
+    private String[] extensions = DEFAULT_EXTENSIONS;
+
+    // Receives the results
+    private Listener listener;
+
+    // Statistics of the last run
+    private final AtomicInteger fileCount = new AtomicInteger();
+    private final AtomicInteger invalidFileCount = new AtomicInteger();
+    private final AtomicInteger failedFileCount = new AtomicInteger();
+    private final AtomicLong reportCount = new AtomicLong();
+    private final AtomicLong byteCount = new AtomicLong();
+    private long elapsedTime;
+
+    /**
+     * Creates a new batch validator that passes the results to the given listener.<br>
+     * @param listener receives the results
+     */
+    public BatchValidator(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Validates the given files and all the files with a matching extension found under the given directories.<br>
+     * Returns when all the files have been validated.<br>
+     *
+     * @param paths files and directories to be validated
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the validation threads
+     */
+    public void validate(List<File> paths) throws InterruptedException {
+
+        fileCount.set(0);
+        invalidFileCount.set(0);
+        failedFileCount.set(0);
+        reportCount.set(0);
+        byteCount.set(0);
+
+        long startTime = System.nanoTime();
+
+        // When the queue is full, the walking thread validates the file itself: this bounds the pending files
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * 2), new ThreadFactory() {
+
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "hAtom batch validation");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+        try {
+            for (File path : paths) {
+                if (path.isDirectory()) {
+                    walk(path, executor);
+                } else {
+                    submit(path, executor);
+                }
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            elapsedTime = (System.nanoTime() - startTime) / 1000000;
+        }
+    }
+
+    /**
+     * Submits the files found under the given directory, in name order.<br>
+     */
+    private void walk(File directory, ThreadPoolExecutor executor) {
+
+        File[] files = directory.listFiles();
+
+        if (files == null) {
+            listener.fileFailed(directory, new IOException("Unable to list directory " + directory));
+            failedFileCount.incrementAndGet();
+            return;
+        }
+
+        Arrays.sort(files);
+
+        for (File file : files) {
+            if (file.isDirectory()) {
+                walk(file, executor);
+            } else if (isValidatedFile(file)) {
+                submit(file, executor);
+            }
+        }
+    }
+
+    private void submit(final File file, ThreadPoolExecutor executor) {
+
+        executor.execute(new Runnable() {
+
+            public void run() {
+                validateFile(file);
+            }
+        });
+    }
+
+    /**
+     * Validates a single file, updating the statistics and notifying the listener.<br>
+     */
+    private void validateFile(File file) {
+
+        long startTime = System.nanoTime();
+
+        ValidatorEngine engine = new ValidatorEngine();
+        engine.setDocumentName(file.getPath());
+        engine.setValidationMode(validationMode);
+
+        try {
+            InputStream is = new BufferedInputStream(new FileInputStream(file));
+            try {
+                engine.validate(is);
+            } finally {
+                is.close();
+            }
+        } catch (Exception ex) {
+            fileCount.incrementAndGet();
+            failedFileCount.incrementAndGet();
+            listener.fileFailed(file, ex);
+            return;
+        }
+
+        List<Report> reports = engine.getReports();
+
+        fileCount.incrementAndGet();
+        byteCount.addAndGet(file.length());
+        reportCount.addAndGet(reports.size());
+
+        if (reports.size() > 0) {
+            invalidFileCount.incrementAndGet();
+        }
+
+        listener.fileValidated(file, reports, (System.nanoTime() - startTime) / 1000000);
+    }
+
+    private boolean isValidatedFile(File file) {
+
+        String name = file.getName().toLowerCase();
+
+        for (int i = 0; i < extensions.length; i++) {
+            if (name.endsWith(extensions[i])) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the number of files validated by the last run, including failed ones
+     */
+    public int getFileCount() {
+        return fileCount.get();
+    }
+
+    /**
+     * @return the number of files of the last run containing at least a report
+     */
+    public int getInvalidFileCount() {
+        return invalidFileCount.get();
+    }
+
+    /**
+     * @return the number of files of the last run that could not be validated
+     */
+    public int getFailedFileCount() {
+        return failedFileCount.get();
+    }
+
+    /**
+     * @return the number of reports found by the last run
+     */
+    public long getReportCount() {
+        return reportCount.get();
+    }
+
+    /**
+     * @return the size in bytes of the files validated by the last run
+     */
+    public long getByteCount() {
+        return byteCount.get();
+    }
+
+    /**
+     * @return the duration of the last run in milliseconds
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Returns a one line summary of the last run, with its throughput.<br>
+     * @return the summary
+     */
+    public String getSummary() {
+
+        double seconds = Math.max(elapsedTime, 1) / 1000.0;
+        double megabytes = getByteCount() / (1024.0 * 1024.0);
+
+        return String.format("Validated %d files (%d invalid, %d failed), %d errors, %.2f MB in %d ms: %.1f files/s, %.2f MB/s",
+                getFileCount(), getInvalidFileCount(), getFailedFileCount(), getReportCount(), megabytes, elapsedTime,
+                getFileCount() / seconds, megabytes / seconds);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of validation threads. Default is the number of available processors.<br>
+     * @param threads number of threads, at least 1
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+    }
+
+    public ValidationMode getValidationMode() {
+        return validationMode;
+    }
+
+    /**
+     * Sets the way files are validated. Default is <code>SINGLE_PASS</code>.<br>
+     * @param validationMode the validation mode
+     */
+    public void setValidationMode(ValidationMode validationMode) {
+        this.validationMode = validationMode;
+    }
+
+    public String[] getExtensions() {
+        return extensions;
+    }
+
+    /**
+     * Sets the extensions of the files validated in directories. Default is <code>DEFAULT_EXTENSIONS</code>.<br>
+     * @param extensions file extensions, including the dot
+     */
+    public void setExtensions(String[] extensions) {
+        this.extensions = new String[extensions.length];
+
+        for (int i = 0; i < extensions.length; i++) {
+            this.extensions[i] = extensions[i].toLowerCase();
+        }
+    }
+
+    /**
+     * Listener that prints the results of each file on the given stream.<br>
+     */
+    public static class PrintListener implements Listener {
+
+        // Where results are printed
+        private PrintStream out;
+
+        // If true, only the number of reports of each file is printed
+        private boolean quiet;
+
+        public PrintListener(PrintStream out, boolean quiet) {
+            this.out = out;
+            this.quiet = quiet;
+        }
+
+        public synchronized void fileValidated(File file, List<Report> reports, long elapsedTime) {
+
+            out.println(file.getPath() + ": " + reports.size() + " errors in " + elapsedTime + " milliseconds");
+
+            if (!quiet) {
+                for (Report report : reports) {
+                    out.println(report.asString());
+                }
+            }
+            out.flush();
+        }
+
+        public synchronized void fileFailed(File file, Exception ex) {
+            out.println(file.getPath() + ": unable to validate, " + ex.getClass().getName() + ": " + ex.getMessage());
+            out.flush();
+        }
+    }
+
+    /**
+     * Validates the files and directories given on the command line.<br>
+     * @param args command line arguments
+     */
+    public static void main(String[] args) throws InterruptedException {
+
+        PrintListener listener;
+        List<File> paths = new ArrayList<File>();
+        int threads = 0;
+        ValidationMode validationMode = ValidationMode.SINGLE_PASS;
+        boolean quiet = false;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-threads")) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-mode")) {
+                    validationMode = ValidationMode.valueOf(args[++i].toUpperCase());
+                } else if (args[i].equals("-quiet")) {
+                    quiet = true;
+                } else {
+                    paths.add(new File(args[i]));
+                }
+            }
+        } catch (RuntimeException ex) {
+            // Missing option value, invalid number or unknown mode
+            paths.clear();
+        }
+
+        if (paths.isEmpty()) {
+            System.err.println("Usage: BatchValidator [-threads n] [-mode SINGLE_PASS|MULTI_PASS|STREAMING|PARALLEL] [-quiet] path...");
+            System.exit(2);
+        }
+
+        listener = new PrintListener(System.out, quiet);
+        BatchValidator validator = new BatchValidator(listener);
+        validator.setValidationMode(validationMode);
+        if (threads > 0) {
+            validator.setThreads(threads);
+        }
+
+        validator.validate(paths);
+
+        System.out.println(validator.getSummary());
+
+        if (validator.getFailedFileCount() > 0) {
+            System.exit(2);
+        }
+        System.exit(validator.getReportCount() > 0 ? 1 : 0);
+    }
+}
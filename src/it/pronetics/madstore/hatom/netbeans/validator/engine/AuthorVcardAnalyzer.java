@@ -18,7 +18,6 @@ package it.pronetics.madstore.hatom.netbeans.validator.engine;
 
 import java.io.IOException;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 /**
  * Analyzer for hAtom "author" nodes.<br>
@@ -29,7 +28,7 @@ import org.w3c.dom.NodeList;
  * <br>
  * 
  * @author Andrea Castello
- * @version 1.1
+ * @version 1.4
  */
 public class AuthorVcardAnalyzer extends HentryChildAnalyzer {
 
@@ -87,20 +86,13 @@ public class AuthorVcardAnalyzer extends HentryChildAnalyzer {
      */
     private void checkFn() {
 
-        NodeList nl = getNode().getChildNodes();
-        if (nl != null) {
-            Node child;
-            for (int i = 0; i < nl.getLength(); i++) {
-                child = nl.item(i);
-                if (isFn(child)) {
-                    return;
-                }
+        for (Node child = getNode().getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (isFn(child)) {
+                return;
             }
-            // If we arrive here, no fn attribute has been found
-            createNoFnReport();
-        } else {
-            createNoFnReport();
         }
+        // If we arrive here, no fn attribute has been found
+        createNoFnReport();
     }
 
     /**
@@ -108,9 +100,8 @@ public class AuthorVcardAnalyzer extends HentryChildAnalyzer {
      */
     private void createNoFnReport() {
         String message = "Node" + getNode().getNodeName() + "must be a valid hCard and must contain a fn property";
-        Report report = new Report(message, getNode());
-        engine = ValidatorCache.getInstance().getEngine(getDocumentName());
-        engine.addReport(report);
+        Report report = new Report(Report.RULE_AUTHOR_FN, message, getNode());
+        addReport(report);
     }
 
     /**
@@ -24,8 +24,6 @@ import java.util.Map;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.w3c.dom.traversal.NodeIterator;
 import static it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorEngine.ATTR_CLASS;
 import static it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorEngine.ATTR_REL;
 
@@ -35,10 +33,14 @@ import static it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorEng
  * It also stores data that will be widely used by most of its subclasses.<br>
  * In a few cases, <code>xhtmlDoc</code> and <code>node</code> variable may reference the same object: this happens
  * when a hfeed is found as a "whole page" entity. In all the other cases, they reference different objects.<br>
+ * The DOM document is never modified: nodes found by <code>searchNodes</code> are marked in <code>matchedNodes</code>,
+ * which can be shared between the analyzers of the same validation process.<br>
+ * Reports are added to the engine of the validation process, which must be set before the analysis and is
+ * passed from an analyzer to the analyzers it creates.<br>
  *
  *
  * @author Andrea Castello
- * @version 1.4
+ * @version 1.10
  */
 public abstract class BaseAnalyzer implements Analyzer {
 
@@ -59,21 +61,21 @@ public abstract class BaseAnalyzer implements Analyzer {
     // Name of the document to be validated
     private String documentName = "";
 
-    // Instance of the engine used to validate the documents
-    protected ValidatorEngine engine;
+    // Instance of the engine used to validate the documents, that collects the reports
+    private ValidatorEngine engine;
 
     // DOM document cointaining the whole XHTML document to be validated
     private Document xhtmlDoc;
 
-    // Iterator on the DOM document object
-    protected NodeIterator nodeIterator;
-
     // Node to be analyzed (can be the same of Document in case of "page hfeed"
     protected Node node;
 
     // Cache for generic attribute values lists
     protected Map<String, List<String>> attrValueCache;
 
+    // Subtrees already matched by searchNodes, skipped by the following searches
+    protected NodeMarks matchedNodes;
+
     /**
      * Method that all the subclasses must implement in order to perform some kind of analysis on hAtom nodes.<br>
      *
@@ -84,6 +86,7 @@ public abstract class BaseAnalyzer implements Analyzer {
     protected BaseAnalyzer(){
 
         attrValueCache = new HashMap<String, List<String>>();
+        matchedNodes = new NodeMarks();
 
     }
 
@@ -105,8 +108,28 @@ public abstract class BaseAnalyzer implements Analyzer {
     }
 
 
+    /**
+     * Stops the analysis if the validation of the document has been cancelled.<br>
+     * Subclasses call it inside their loops, so that a stale validation does not run until its end.<br>
+     *
+     * @throws ValidationCancelledException if the engine of the document has been cancelled
+     */
+    protected void checkCancelled() {
+        getEngine().checkCancelled();
+    }
+
+    /**
+     * Adds a report to the engine of the validation process.<br>
+     * @param report the report
+     */
+    protected void addReport(Report report) {
+        getEngine().addReport(report);
+    }
+
     /**
      * Search for a node with the given name and attribute.<br>
+     * Matching nodes are marked in <code>matchedNodes</code>: their subtrees are not searched, neither by this
+     * nor by the following searches. Subtrees marked by previous searches are skipped as well.<br>
      * @param node Node to be searched
      * @param attrName name of the attribute to be found
      * @param attrValue value of the attribute to be checked
@@ -114,23 +137,16 @@ public abstract class BaseAnalyzer implements Analyzer {
      */
     protected List<Node> searchNodes(Node node, String attrName, String attrValue) {
 
-        setNodeIterator(XMLUtils.getNodeIterator(getXhtmlDoc(), node));
-
-
         List<Node> matchingList = new ArrayList<Node>();
-        Node n;
-        while((n = getNodeIterator().nextNode())!=null){
+
+        for (Node n = node; n != null; n = matchedNodes.nextNode(n, node)) {
 
             if (XMLUtils.nodeAttributeMatches(n, attrName, attrValue)){
                 matchingList.add(n);
-                if( n.getParentNode() != null ){
-                    n.getParentNode().removeChild(n); // we remove the matching child from the document
-                }
+                matchedNodes.mark(n); // we mark the matching node instead of removing it from the document
             }
         }
 
-        getNodeIterator().detach();
-
         return matchingList;
     }
 
@@ -146,23 +162,18 @@ public abstract class BaseAnalyzer implements Analyzer {
     protected void checkNestedNode(Node node, String attrName, String attrValue) {
 
 
-        NodeList nodeList = node.getChildNodes();
         Report report;
 
-        if (nodeList != null) {
-            // If we catch a child node that matches the given values, it is a nested node
-            for (int i = 0; i < nodeList.getLength(); i++) {
-                Node child = nodeList.item(i);
-                if (XMLUtils.nodeAttributeMatches(child, attrName, attrValue)) {
-                    report = new Report(attrValue + " keyword cannot be contained inside another hAtom node of the same or lower level", child);
-                    engine = ValidatorCache.getInstance().getEngine(documentName);
-                    engine.addReport(report);
-
-                }
-                // Recursively check for nested occurrences
-                checkNestedNode(child, attrName, attrValue);
+        // If we catch a child node that matches the given values, it is a nested node
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (XMLUtils.nodeAttributeMatches(child, attrName, attrValue)) {
+                report = new Report(Report.RULE_NESTED_KEYWORD, attrValue + " keyword cannot be contained inside another hAtom node of the same or lower level", child);
+                addReport(report);
 
             }
+            // Recursively check for nested occurrences
+            checkNestedNode(child, attrName, attrValue);
+
         }
     }
 
@@ -176,14 +187,33 @@ public abstract class BaseAnalyzer implements Analyzer {
 
 
     /**
-     * Sets the name of the document. Also retrieves and sets the reference to the engine oject associated
-     * to this document's validation task.<br>
+     * Sets the name of the document.<br>
      *
      * @param documentName Name of the document
      */
     public void setDocumentName(String documentName) {
         this.documentName = documentName;
-        this.engine = ValidatorCache.getInstance().getEngine(documentName);
+    }
+
+    /**
+     * Returns the engine that collects the reports of this analyzer.<br>
+     *
+     * @return the validation engine
+     * @throws IllegalStateException if no engine has been set
+     */
+    public ValidatorEngine getEngine() {
+        if (engine == null) {
+            throw new IllegalStateException("No validator engine set for " + documentName);
+        }
+        return engine;
+    }
+
+    /**
+     * Sets the engine that collects the reports of this analyzer.<br>
+     * @param engine the validation engine
+     */
+    public void setEngine(ValidatorEngine engine) {
+        this.engine = engine;
     }
 
     /**
@@ -203,25 +233,20 @@ public abstract class BaseAnalyzer implements Analyzer {
     }
 
     /**
-     * Returns the iterator associated to the XHTML document or to a portion of it.<br>
-     * Note that there is no direct association between this class' Document object and
-     * the Iterator. The iterator <b>may</b> iterate over the entire document or, if needed,
-     * over one of its child nodes (see <code>node</code> variable).<br>
-     * @return the document's or one of its nodes' iterator
+     * Returns the subtrees already matched during the current validation process.<br>
+     * @return the matched subtrees
      */
-    public NodeIterator getNodeIterator() {
-        return nodeIterator;
+    public NodeMarks getMatchedNodes() {
+        return matchedNodes;
     }
 
     /**
-     * Sets the iterator associated to the XHTML document or to a portion of it.<br>
-     * Note that there is no direct association between this class' Document object and
-     * the Iterator. The iterator <b>may</b> iterate over the entire document or, if needed,
-     * over one of its child nodes (see <code>node</code> variable).<br>
-     * @param the document's or one of its nodes' iterator
+     * Sets the subtrees already matched during the current validation process, so that
+     * they can be shared with other analyzers.<br>
+     * @param matchedNodes the matched subtrees
      */
-    private void setNodeIterator(NodeIterator nodeIterator) {
-        this.nodeIterator = nodeIterator;
+    public void setMatchedNodes(NodeMarks matchedNodes) {
+        this.matchedNodes = matchedNodes;
     }
 
     /**
@@ -27,15 +27,18 @@ import org.w3c.dom.Node;
  * (ie: updated or published).<br>
  * 
  * @author Andrea Castello
- * @version 1.1
+ * @version 1.4
  */
 public class DateTimeAnalyzer extends HentryChildAnalyzer {
     
     // Regular expression that validates the date pattern YYYY-MM-DDTHH:MM:SSZ. Right now it does not validate the date value.
     private final static String DATETIME_REGEXP = "^[0-9]{4}-[0-9]{2}-[0-9]{2}.*T[^+\\-]*([1-9]|1[0-2]):[0-5]\\d(:[0-5]\\d(\\.\\d{1,3})?)?[+\\-]?[0-9]{2}:[0-9]{2}";
     
+    // Compiled datetime pattern, shared by all the analyzer instances
+    private final static Pattern DATETIME_PATTERN = Pattern.compile(DATETIME_REGEXP);
+    
     // Name of the HTML tag where datetime pattern is usually found
-    private String DATE_TIME_PATTERN_TAG = "abbr";
+    static final String DATE_TIME_PATTERN_TAG = "abbr";
     
     /**
      * Creates a new instance of DateTimeAnalyzer.<br>
@@ -78,16 +81,14 @@ public class DateTimeAnalyzer extends HentryChildAnalyzer {
         
             // Check if hAtom value is inside an <abbr> tag
             if(!isAbbrNode()){
-                report = new Report(getAttributeValue() + " hAtom keyword must be contained inside an <abbr> tag", getNode());
-                engine = ValidatorCache.getInstance().getEngine(getDocumentName());
-                engine.addReport(report);
+                report = new Report(Report.RULE_DATETIME_TAG, getAttributeValue() + " hAtom keyword must be contained inside an <abbr> tag", getNode());
+                addReport(report);
             }
         
             // Analyze date and time pattern
             if(!dateTimeMatches()){
-                report = new Report(getAttributeValue()+" date does not match pattern YYYY-MM-DDTHH:MM:SS+ZZ:ZZ", getNode());
-                engine = ValidatorCache.getInstance().getEngine(getDocumentName());
-                engine.addReport(report);
+                report = new Report(Report.RULE_DATETIME_FORMAT, getAttributeValue()+" date does not match pattern YYYY-MM-DDTHH:MM:SS+ZZ:ZZ", getNode());
+                addReport(report);
             }
         }
         
@@ -100,12 +101,22 @@ public class DateTimeAnalyzer extends HentryChildAnalyzer {
      */
     private boolean dateTimeMatches() {
        
+        String dateTime = ((Element)getNode()).getAttribute(Analyzer.ATTR_NAME_TITLE);
+        
+        return isDateTime(dateTime);
+    }
+
+    /**
+     * Check if the given value matches the datetime design pattern for hAtom microformat.<br>
+     * @param dateTime the value to be checked, usually a title attribute value
+     * @return <code>true</code> if the value matches the pattern, <code>false</code> otherwise (even if value is null)
+     */
+    static boolean isDateTime(String dateTime) {
+        
         boolean result = false;
         
-        String dateTime = ((Element)getNode()).getAttribute(Analyzer.ATTR_NAME_TITLE);
         if (dateTime!=null){
-            Pattern p = Pattern.compile(DATETIME_REGEXP);
-            Matcher matcher = p.matcher(dateTime);
+            Matcher matcher = DATETIME_PATTERN.matcher(dateTime);
             result = matcher.matches();
         }
         
@@ -0,0 +1,135 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import java.io.IOException;
+import java.io.Reader;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+/**
+ * Reader over the text of a Swing document.<br>
+ * Text is fetched in chunks through a <code>Segment</code> in partial return mode, so the characters
+ * are copied straight from the document's own storage into the caller's buffer, without building
+ * a string of the whole document.<br>
+ * Since the segment shares the document storage, the reader must be consumed while holding the
+ * document's read lock (see <code>Document.render</code>).<br>
+ * The line starts of the text are recorded while it is read, so that the line and column numbers
+ * reported by the parser can be turned into document offsets (see <code>getLineMap</code>).<br>
+ *
+ * @author Andrea Castello
+ * @version 1.1
+ */
+public class DocumentReader extends Reader {
+
+    // The document to be read
+    private Document document;
+
+    // Current chunk of text, shared with the document
+    private Segment segment;
+
+    // Characters of the current chunk that have already been read
+    private int segmentIndex;
+
+    // Document offset of the next chunk
+    private int position;
+
+    // Document offset at which reading stops
+    private int end;
+
+    // Line starts of the text read so far, relative to the first character read
+    private LineMap lineMap = new LineMap();
+
+    /**
+     * Creates a reader over the whole text of the given document.<br>
+     * @param document the document to be read
+     */
+    public DocumentReader(Document document) {
+        this(document, 0, document.getLength());
+    }
+
+    /**
+     * Creates a reader over a portion of the given document.<br>
+     *
+     * @param document the document to be read
+     * @param offset offset of the first character to be read
+     * @param length number of characters to be read
+     */
+    public DocumentReader(Document document, int offset, int length) {
+        this.document = document;
+        this.position = offset;
+        this.end = offset + length;
+
+        segment = new Segment();
+        segment.setPartialReturn(true);
+    }
+
+    public int read(char[] cbuf, int off, int len) throws IOException {
+
+        if (len == 0) {
+            return 0;
+        }
+
+        if (segmentIndex == segment.count) {
+
+            if (position >= end) {
+                return -1;
+            }
+
+            try {
+                document.getText(position, end - position, segment);
+            } catch (BadLocationException e) {
+                IOException ioe = new IOException(e.getMessage());
+                ioe.initCause(e);
+                throw ioe;
+            }
+
+            position += segment.count;
+            segmentIndex = 0;
+
+            if (segment.count == 0) {
+                return -1;
+            }
+        }
+
+        int count = Math.min(len, segment.count - segmentIndex);
+        System.arraycopy(segment.array, segment.offset + segmentIndex, cbuf, off, count);
+        segmentIndex += count;
+        lineMap.add(cbuf, off, count);
+
+        return count;
+    }
+
+    /**
+     * Returns the line starts of the text read so far.<br>
+     * Offsets are relative to the first character read, so they are document offsets when the
+     * reader starts at the beginning of the document.<br>
+     * @return the line map
+     */
+    public LineMap getLineMap() {
+        return lineMap;
+    }
+
+    public void close() {
+        segment.array = null;
+        segment.offset = 0;
+        segment.count = 0;
+        segmentIndex = 0;
+        position = end;
+    }
+}
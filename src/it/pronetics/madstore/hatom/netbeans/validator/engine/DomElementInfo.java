@@ -0,0 +1,85 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+
+/**
+ * ElementInfo implementation backed by a DOM element.<br>
+ * Reports created by this class reference the DOM element itself.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.2
+ */
+public class DomElementInfo extends ElementInfo {
+
+    // The wrapped element
+    private Element element;
+
+    // Element attributes
+    private NamedNodeMap attributes;
+
+    /**
+     * Creates a new view of the given element.<br>
+     * @param element the DOM element
+     */
+    public DomElementInfo(Element element) {
+        this.element = element;
+        this.attributes = element.getAttributes();
+    }
+
+    /**
+     * @return the wrapped DOM element
+     */
+    public Element getElement() {
+        return element;
+    }
+
+    public String getName() {
+        return element.getNodeName();
+    }
+
+    public String getAttribute(String attrName) {
+        return element.getAttribute(attrName);
+    }
+
+    public int getAttributeCount() {
+        return (attributes != null) ? attributes.getLength() : 0;
+    }
+
+    public String getAttributeName(int index) {
+        return attributes.item(index).getNodeName();
+    }
+
+    public String getAttributeValue(int index) {
+        return attributes.item(index).getNodeValue();
+    }
+
+    public String getPath() {
+        return new Report(null, element).getNodePath();
+    }
+
+    public SourcePosition getPosition() {
+        Object position = element.getUserData(XMLUtils.POSITION);
+        return (position instanceof SourcePosition) ? (SourcePosition) position : null;
+    }
+
+    public Report createReport(String ruleId, String message) {
+        return new Report(ruleId, message, element);
+    }
+}
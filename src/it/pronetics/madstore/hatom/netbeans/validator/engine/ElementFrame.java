@@ -0,0 +1,88 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+/**
+ * Entry of the ancestor stack kept by the single pass validation.<br>
+ * It holds the element itself, the hfeed and hentry scopes it belongs to, and the
+ * state that rules need to keep until the element ends.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public class ElementFrame {
+
+    // The element
+    final ElementInfo info;
+
+    // Frame of the parent element, null for the document root
+    final ElementFrame parent;
+
+    // hfeed scope of the element (it may be the page itself), null if outside any hfeed
+    RuleContext.FeedScope feed;
+
+    // hentry scope of the element, null if outside any hentry
+    RuleContext.EntryScope entry;
+
+    // Number of hentry children keywords, bound to class and rel attributes, matched by this element
+    int classKeywords;
+    int relKeywords;
+
+    // True if this element is an "author vcard" node, that must contain a fn child
+    boolean authorVcard;
+
+    // True if a fn child node has been found
+    boolean fnFound;
+
+    /**
+     * Creates a new frame for the given element.<br>
+     * @param info the element
+     * @param parent the parent element's frame
+     */
+    ElementFrame(ElementInfo info, ElementFrame parent) {
+        this.info = info;
+        this.parent = parent;
+    }
+
+    /**
+     * @return the element
+     */
+    public ElementInfo getInfo() {
+        return info;
+    }
+
+    /**
+     * @return the parent element's frame, or <code>null</code> for the document root
+     */
+    public ElementFrame getParent() {
+        return parent;
+    }
+
+    /**
+     * @return <code>true</code> if this element is the root of its hfeed scope
+     */
+    public boolean isFeedRoot() {
+        return feed != null && feed.root == this;
+    }
+
+    /**
+     * @return <code>true</code> if this element is the root of its hentry scope
+     */
+    public boolean isEntryRoot() {
+        return entry != null && entry.root == this;
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+/**
+ * Read-only view of a single element, as seen by the single pass validation rules.<br>
+ * It exposes just the element name and its attributes, so that the rules do not depend on
+ * the way the document has been read.<br>
+ * hAtom keywords of the attribute values are tokenized once per element (see <code>KeywordSet</code>).<br>
+ *
+ * @author Andrea Castello
+ * @version 1.3
+ */
+public abstract class ElementInfo {
+
+    // Keyword bits of each attribute value, in attribute order; computed on first use
+    private long[] attributeKeywords;
+
+    /**
+     * Returns the element's tag name.<br>
+     * @return the element name
+     */
+    public abstract String getName();
+
+    /**
+     * Returns the value of the given attribute.<br>
+     * As for DOM elements, an empty string is returned if the attribute is not present.<br>
+     *
+     * @param attrName name of the attribute
+     * @return the attribute value, or an empty string
+     */
+    public abstract String getAttribute(String attrName);
+
+    /**
+     * @return the number of attributes of the element
+     */
+    public abstract int getAttributeCount();
+
+    /**
+     * @param index attribute index, from 0 to <code>getAttributeCount() - 1</code>
+     * @return the name of the attribute at the given index
+     */
+    public abstract String getAttributeName(int index);
+
+    /**
+     * @param index attribute index, from 0 to <code>getAttributeCount() - 1</code>
+     * @return the value of the attribute at the given index
+     */
+    public abstract String getAttributeValue(int index);
+
+    /**
+     * Returns the path from the document root to this element, in the form
+     * <code>#document &gt; html &gt; body &gt; div</code>.<br>
+     * @return the element path
+     */
+    public abstract String getPath();
+
+    /**
+     * Returns the position of the element in the validated source.<br>
+     * @return the element position, or <code>null</code> if the parser did not provide it
+     */
+    public abstract SourcePosition getPosition();
+
+    /**
+     * Creates a report of the given rule, associated with this element.<br>
+     *
+     * @param ruleId id of the rule that has produced the report (see <code>Report</code>)
+     * @param message the error message
+     * @return the report
+     */
+    public abstract Report createReport(String ruleId, String message);
+
+    /**
+     * Creates a report associated with this element.<br>
+     *
+     * @param message the error message
+     * @return the report
+     */
+    public Report createReport(String message) {
+        return createReport(null, message);
+    }
+
+    /**
+     * Creates a report associated with this element.<br>
+     * Since report paths are resolved on first use, this is the same as <code>createReport</code>.<br>
+     *
+     * @param message the error message
+     * @return the report
+     */
+    public Report createPathReport(String message) {
+        return createReport(null, message);
+    }
+
+    /**
+     * Returns the hAtom keyword bits of the attribute at the given index.<br>
+     *
+     * @param index attribute index, from 0 to <code>getAttributeCount() - 1</code>
+     * @return the keyword bits of the attribute value
+     */
+    public long getAttributeKeywords(int index) {
+
+        if (attributeKeywords == null) {
+            attributeKeywords = new long[getAttributeCount()];
+
+            for (int i = 0; i < attributeKeywords.length; i++) {
+                attributeKeywords[i] = KeywordSet.tokenize(getAttributeValue(i));
+            }
+        }
+
+        return attributeKeywords[index];
+    }
+
+    /**
+     * Returns the hAtom keyword bits of the given attribute.<br>
+     *
+     * @param attrName name of the attribute
+     * @return the keyword bits of the attribute value, 0 if the attribute is not present
+     */
+    public long getKeywords(String attrName) {
+
+        int count = getAttributeCount();
+
+        for (int i = 0; i < count; i++) {
+            if (getAttributeName(i).equals(attrName)) {
+                return getAttributeKeywords(i);
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Check whether any attribute of the element contains an hAtom keyword.<br>
+     * @return <code>true</code> if at least one keyword has been found
+     */
+    public boolean hasKeywords() {
+
+        int count = getAttributeCount();
+
+        for (int i = 0; i < count; i++) {
+            if (getAttributeKeywords(i) != 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Check whether the element contains an attribute with the given name and value.<br>
+     * Matching follows the same rules of <code>XMLUtils.nodeAttributeMatches</code>.<br>
+     *
+     * @param attrName the attribute name to be matched
+     * @param attrValue the attribute value to be matched
+     * @return <code>true</code> if the element contains the given attribute, <code>false</code> otherwise
+     */
+    public boolean matches(String attrName, String attrValue) {
+
+        long mask = KeywordSet.getMask(attrValue);
+
+        if (mask != 0) {
+            return KeywordSet.containsAll(getKeywords(attrName), mask);
+        }
+
+        String value = getAttribute(attrName);
+        return (value != null && value.length() > 0 && XMLUtils.attributeValueMatches(value, attrValue));
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+/**
+ * Interface for the validation rules used by the single pass validation.<br>
+ * Every element of the document is passed to each rule exactly once, when it starts
+ * and when it ends, in document order.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public interface ElementRule {
+
+    /**
+     * Invoked when an element starts, after its hfeed/hentry scope has been resolved.<br>
+     *
+     * @param frame the element being visited
+     * @param context the validation context
+     */
+    public void startElement(ElementFrame frame, RuleContext context);
+
+    /**
+     * Invoked when an element ends, after all of its descendants have been visited.<br>
+     *
+     * @param frame the element being visited
+     * @param context the validation context
+     */
+    public void endElement(ElementFrame frame, RuleContext context);
+
+}
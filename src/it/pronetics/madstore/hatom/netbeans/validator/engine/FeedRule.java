@@ -0,0 +1,84 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.Analyzer.ATTR_NAME_TITLE;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.Analyzer.KEYWORD_HENTRY;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.Analyzer.KEYWORD_HFEED;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.HfeedAnalyzer.FEED_KEY;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorEngine.ATTR_CLASS;
+
+/**
+ * Single pass version of the hfeed checks performed by HfeedAnalyzer: nested hfeed nodes, presence,
+ * uniqueness and position of the feed-key keyword.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.1
+ */
+public class FeedRule implements ElementRule {
+
+    public void startElement(ElementFrame frame, RuleContext context) {
+
+        RuleContext.FeedScope feed = frame.feed;
+
+        if (feed == null) {
+            return;
+        }
+
+        ElementInfo info = frame.info;
+
+        if (!feed.page && feed.root != frame && info.matches(ATTR_CLASS, KEYWORD_HFEED)) {
+            Report report = info.createReport(Report.RULE_NESTED_KEYWORD, KEYWORD_HFEED + " keyword cannot be contained inside another hAtom node of the same or lower level");
+            context.addReport(frame, report);
+        }
+
+        if (info.matches(ATTR_CLASS, FEED_KEY)) {
+
+            String value = info.getAttribute(ATTR_NAME_TITLE);
+
+            // Duplicate values only matter if the document turns out to have more than one hfeed
+            if (!feed.page && context.getFeedKeyValues().contains(value)) {
+                context.addMultiFeedReport(info.createReport(Report.RULE_DUPLICATE_KEY_VALUE, FEED_KEY + " value " + value + " is already present in the document"));
+            }
+
+            feed.feedKeyPositionChecked = true;
+
+            if (!feed.feedKeyFound) {
+                feed.feedKeyFound = true;
+
+                if ("".equals(value)) {
+                    context.addReport(frame, info.createReport(Report.RULE_EMPTY_KEY, FEED_KEY + " cannot have empty value"));
+                } else if (!feed.page) {
+                    context.getFeedKeyValues().add(value);
+                }
+            } else {
+                context.addReport(frame, info.createReport(Report.RULE_DUPLICATE_KEY, FEED_KEY + " keyword is already present for this hfeed"));
+            }
+
+        } else if (!feed.feedKeyPositionChecked && info.matches(ATTR_CLASS, KEYWORD_HENTRY)) {
+            feed.feedKeyPositionChecked = true;
+            context.addReport(frame, info.createReport(Report.RULE_KEY_POSITION, FEED_KEY + " MUST be placed before any hentry"));
+        }
+    }
+
+    public void endElement(ElementFrame frame, RuleContext context) {
+
+        if (frame.isFeedRoot() && !frame.feed.feedKeyFound) {
+            context.addReport(frame, frame.info.createReport(Report.RULE_MISSING_CHILD, "Mandatory hfeed child keyword " + FEED_KEY + " is missing"));
+        }
+    }
+}
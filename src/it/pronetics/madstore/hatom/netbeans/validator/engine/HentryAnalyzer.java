@@ -24,16 +24,32 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import org.openide.util.Exceptions;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.w3c.dom.traversal.NodeIterator;
 
 /**
  * Performs validation subtask for hentry attributes
+ * <br>
+ * In <code>PARALLEL</code> validation mode, the children of the hentry nodes are validated by a pool of threads
+ * when the hentry nodes are at least as many as the engine's parallel threshold. Each hentry collects its own
+ * reports, which are then added to the engine in document order, so reports are the same of a sequential
+ * validation. Tasks do not read the DOM user data: the keyword bits of each hentry subtree are collected
+ * before submitting its task, and owned by the task (see <code>KeywordSet.setThreadKeywords</code>).<br>
+ *
  * @author Andrea Castello
- * @version 1.3
+ * @version 1.10
  */
 public class HentryAnalyzer extends BaseAnalyzer {
 
@@ -68,6 +84,12 @@ public class HentryAnalyzer extends BaseAnalyzer {
     // If true, it is both a hfeed AND a hentry node.
     private boolean hfeedHentryNode = false;
 
+    // Threads that validate hentry nodes in PARALLEL mode, shared by all the validations; created on first use
+    private static ExecutorService executor;
+
+    // Number of hentry validation tasks submitted to the executor
+    private static final AtomicLong parallelTaskCount = new AtomicLong();
+
     /**
      * Creates a new instance of HentryAnalyzer and fills the VALIDATION_CONFIG_CLASSES map with the association between
      * hAtom keywords and their analyzeer classes.<br>
@@ -103,7 +125,9 @@ public class HentryAnalyzer extends BaseAnalyzer {
             // We search for unmatching nodes under the root node.
             // This finds hentry children placed outside hentry nodes
             for (int i = 0; i < nodeList.getLength(); i++) {
-                ValidatorEngine.analyzeUnmatchingNodes(getXhtmlDoc(), nodeList.item(i), getDocumentName(), CHECKABLE_KEYWORDS);
+                if (!matchedNodes.isMarked(nodeList.item(i))) {
+                    ValidatorEngine.analyzeUnmatchingNodes(nodeList.item(i), getEngine(), CHECKABLE_KEYWORDS, matchedNodes);
+                }
             }
         }
 
@@ -126,9 +150,8 @@ public class HentryAnalyzer extends BaseAnalyzer {
     private void addEntryKeyValue(Node aNode) {
 
         if (!addMappedAttributeValue(Analyzer.ATTR_NAME_TITLE, aNode)) {
-            Report report = new Report(KEYWORD_ENTRY_KEY + " cannot have empty value", aNode);
-            engine = ValidatorCache.getInstance().getEngine(getDocumentName());
-            engine.addReport(report);
+            Report report = new Report(Report.RULE_EMPTY_KEY, KEYWORD_ENTRY_KEY + " cannot have empty value", aNode);
+            addReport(report);
         }
 
     }
@@ -146,9 +169,8 @@ public class HentryAnalyzer extends BaseAnalyzer {
         String value = ((Element) aNode).getAttribute(Analyzer.ATTR_NAME_TITLE);
 
         if (isDuplicateAttributeValue(Analyzer.ATTR_NAME_TITLE, value)) {
-            Report report = new Report(KEYWORD_ENTRY_KEY + " value " + value + " is already present in current hentry", aNode);
-            engine = ValidatorCache.getInstance().getEngine(getDocumentName());
-            engine.addReport(report);
+            Report report = new Report(Report.RULE_DUPLICATE_KEY_VALUE, KEYWORD_ENTRY_KEY + " value " + value + " is already present in current hentry", aNode);
+            addReport(report);
         } else { // entry-key is unique, we add it to the entry-key values list.
             addEntryKeyValue(aNode);
         }
@@ -161,15 +183,11 @@ public class HentryAnalyzer extends BaseAnalyzer {
      */
     private void checkMandatoryAttributes(Node hentryNode) {
 
-        NodeIterator iterator = XMLUtils.getNodeIterator(getXhtmlDoc(), hentryNode);
-
         String keywordValue = "";
 
-        Node n;
-
         for (int i = 0; i < MANDATORY_KEYWORDS.length; i++) {
 
-            while ((n = iterator.nextNode()) != null) {
+            for (Node n = hentryNode; n != null; n = XMLUtils.nextNode(n, hentryNode)) {
 
                 if (XMLUtils.nodeAttributeMatches(n, ATTR_CLASS, MANDATORY_KEYWORDS[i])) {
                     keywordValue = MANDATORY_KEYWORDS[i];
@@ -177,23 +195,16 @@ public class HentryAnalyzer extends BaseAnalyzer {
 
             }
 
-            // Bring iterator back to first node
-            while ((n = iterator.previousNode()) != null) {
-            }
-
             // No mandatory keyword, has been found
             if ("".equals(keywordValue)) {
-                Report report = new Report("Mandatory entry child keyword " + MANDATORY_KEYWORDS[i] + " is missing", hentryNode);
-                engine = ValidatorCache.getInstance().getEngine(getDocumentName());
-                engine.addReport(report);
+                Report report = new Report(Report.RULE_MISSING_CHILD, "Mandatory entry child keyword " + MANDATORY_KEYWORDS[i] + " is missing", hentryNode);
+                addReport(report);
             } else {
                 // mandatory keyword has been found, reset it for the next iteration
                 keywordValue = "";
             }
         }
 
-        iterator.detach();
-
     }
 
     /**
@@ -212,10 +223,11 @@ public class HentryAnalyzer extends BaseAnalyzer {
             analyzer = (HentryChildAnalyzer) Class.forName(className).newInstance();
         } catch (Exception ex) {
             analyzer = new HentryChildAnalyzer(); // we fall back to the basic analyzer
-            Exceptions.printStackTrace(ex);
+            Logger.getLogger(HentryAnalyzer.class.getName()).log(Level.WARNING, "Unable to create analyzer " + className, ex);
         }
 
         analyzer.setDocumentName(getDocumentName());
+        analyzer.setEngine(getEngine());
         analyzer.setXhtmlDoc(getXhtmlDoc());
         analyzer.setNode(item);
         analyzer.setAttributeName(attrName);
@@ -253,9 +265,8 @@ public class HentryAnalyzer extends BaseAnalyzer {
                 if ("".equals(keywordValue)) {
                     keywordValue = KEYWORD_ENTRY_KEY;
                 } else { // There's more than one feed-key for this hfeed, this makes the feed invalid.
-                    Report report = new Report("There's more than one " + KEYWORD_ENTRY_KEY + " in the hentry", aNode);
-                    engine = ValidatorCache.getInstance().getEngine(getDocumentName());
-                    engine.addReport(report);
+                    Report report = new Report(Report.RULE_DUPLICATE_KEY, "There's more than one " + KEYWORD_ENTRY_KEY + " in the hentry", aNode);
+                    addReport(report);
                 }
             }
         }
@@ -272,6 +283,7 @@ public class HentryAnalyzer extends BaseAnalyzer {
 
         for (Node aNode : nodes) {
 
+            checkCancelled();
             validateEntryKeyValues(aNode);
 
         }
@@ -279,22 +291,21 @@ public class HentryAnalyzer extends BaseAnalyzer {
 
     /**
      * Performs all the possibile validations (one for each type of hAtom keyword that is under hentry)
-     * on the current piece of document that is under the given node, using a NodeIterator that
-     * starts immediately under the node.<br>
+     * on the current piece of document that is under the given node, starting from the node itself.<br>
      *
      * @param node Node corresponding to the hAtom hentry.
      * @throws java.io.IOException
      */
     private void validateHentryChildren(Node node) throws IOException {
 
-        NodeIterator iterator = XMLUtils.getNodeIterator(getXhtmlDoc(), node);
         Analyzer childAnalyzer;
-        Node n;
 
         String[] keys = new String[HATOM_HENTRY_ATTRIBUTES.size()];
         HATOM_HENTRY_ATTRIBUTES.keySet().toArray(keys);
 
-        while ((n = iterator.nextNode()) != null) {
+        for (Node n = node; n != null; n = XMLUtils.nextNode(n, node)) {
+
+            checkCancelled();
 
             for (int j = 0; j < keys.length; j++) {
                 childAnalyzer = getChildAnalyzer(n, HATOM_HENTRY_ATTRIBUTES.get(keys[j]), keys[j]);
@@ -303,8 +314,6 @@ public class HentryAnalyzer extends BaseAnalyzer {
             }
 
         }
-
-        iterator.detach();
     }
 
     /**
@@ -317,21 +326,169 @@ public class HentryAnalyzer extends BaseAnalyzer {
      */
     private void validateHentriesChildren(List<Node> nodeList) throws IOException {
 
+        ValidatorEngine engine = getEngine();
+
+        if (engine.getValidationMode() == ValidationMode.PARALLEL && nodeList.size() >= engine.getParallelThreshold()) {
+            validateHentriesInParallel(nodeList);
+            return;
+        }
+
         for (Node hentryNode : nodeList) {
 
-            checkMandatoryAttributes(hentryNode);
+            checkCancelled();
+            validateHentry(hentryNode);
+
+        }
+    }
+
+    /**
+     * Checks the mandatory keywords and the children of a single hentry node.<br>
+     *
+     * @param hentryNode the hentry node
+     * @throws java.io.IOException
+     */
+    private void validateHentry(Node hentryNode) throws IOException {
+
+        checkMandatoryAttributes(hentryNode);
+
+        for (Node n = hentryNode.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n.getNodeType() == Node.ELEMENT_NODE) {
+
+                validateHentryChildren(n);
+            }
+        }
+    }
+
+    /**
+     * Validates each hentry node of the list in a separate task, then adds the reports of the hentries to the
+     * engine in the order of the list.<br>
+     *
+     * @param nodeList the hentry nodes, in document order
+     * @throws java.io.IOException
+     */
+    private void validateHentriesInParallel(List<Node> nodeList) throws IOException {
+
+        final ValidatorEngine engine = getEngine();
+        List<Future<List<Report>>> results = new ArrayList<Future<List<Report>>>(nodeList.size());
+
+        for (final Node hentryNode : nodeList) {
+
+            // DOM implementations may build nodes and caches on first access, and their user data is not safe
+            // for concurrent reads: the subtree is loaded, and its keyword bits collected, by this thread
+            final Map<Node, long[]> keywords = loadSubtree(hentryNode);
+
+            parallelTaskCount.incrementAndGet();
 
-            NodeList nl = hentryNode.getChildNodes();
-            Node n;
-            for (int i = 0; i < nl.getLength(); i++) {
-                n = nl.item(i);
-                if (n != null && n.getNodeType() == Node.ELEMENT_NODE) {
+            results.add(getExecutor().submit(new Callable<List<Report>>() {
 
-                    validateHentryChildren(n);
+                public List<Report> call() throws IOException {
+
+                    engine.checkCancelled();
+
+                    // Reports of the hentry are collected by an engine that is used by this task only
+                    ValidatorEngine entryEngine = new ValidatorEngine();
+                    entryEngine.setDocumentName(getDocumentName());
+
+                    HentryAnalyzer analyzer = new HentryAnalyzer(hentryNode);
+                    analyzer.setDocumentName(getDocumentName());
+                    analyzer.setEngine(entryEngine);
+                    analyzer.setXhtmlDoc(getXhtmlDoc());
+
+                    KeywordSet.setThreadKeywords(keywords);
+
+                    try {
+                        analyzer.validateHentry(hentryNode);
+                    } finally {
+                        KeywordSet.setThreadKeywords(null);
+                    }
+
+                    return entryEngine.getReports();
+                }
+            }));
+        }
+
+        try {
+            for (Future<List<Report>> result : results) {
+                for (Report report : getResult(result)) {
+                    addReport(report);
+                }
+            }
+        } finally {
+            // Stops the remaining tasks if a task has failed
+            for (Future<List<Report>> result : results) {
+                result.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Waits for the given task and returns its reports, rethrowing the exception of a failed task.<br>
+     */
+    private List<Report> getResult(Future<List<Report>> result) throws IOException {
+
+        try {
+            return result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ValidationCancelledException(getDocumentName());
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Reads every element and attribute of the given subtree, so that any node cache is built before the
+     * subtree is read by another thread, and returns the keyword bits of its elements.<br>
+     */
+    private Map<Node, long[]> loadSubtree(Node root) {
+
+        for (Node n = root; n != null; n = XMLUtils.nextNode(n, root)) {
+
+            if (n.getNodeType() == Node.ELEMENT_NODE) {
+
+                NamedNodeMap attributes = n.getAttributes();
+                for (int i = 0; i < attributes.getLength(); i++) {
+                    attributes.item(i).getNodeValue();
                 }
             }
+        }
+
+        return KeywordSet.collect(root);
+    }
 
+    /**
+     * @return the number of hentry nodes validated by the PARALLEL mode threads so far
+     */
+    static long getParallelTaskCount() {
+        return parallelTaskCount.get();
+    }
+
+    /**
+     * Returns the threads that validate hentry nodes in PARALLEL mode.<br>
+     */
+    private static synchronized ExecutorService getExecutor() {
+
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "hAtom hentry validation");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
         }
+
+        return executor;
     }
 
     public boolean isHfeedHentryNode() {
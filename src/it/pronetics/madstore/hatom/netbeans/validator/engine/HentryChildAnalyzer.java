@@ -24,7 +24,7 @@ import org.w3c.dom.Node;
  * Base class for analyzing nodes that are children of an hentry node.<br>
  * 
  * @author Andrea Castello
- * @version 1.5
+ * @version 1.7
  */
 public class HentryChildAnalyzer extends BaseAnalyzer {
 
@@ -129,9 +129,8 @@ public class HentryChildAnalyzer extends BaseAnalyzer {
 
                     if (XMLUtils.attributeValueMatches(attrValue, getAttributeValue())) {
 
-                        report = new Report("hAtom keyword " + getAttributeValue() + " cannot be used in attribute " + attrName, getNode());
-                        engine = ValidatorCache.getInstance().getEngine(getDocumentName());
-                        engine.addReport(report);
+                        report = new Report(Report.RULE_INVALID_ATTRIBUTE, "hAtom keyword " + getAttributeValue() + " cannot be used in attribute " + attrName, getNode());
+                        addReport(report);
 
                     }
                 }
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.Analyzer.ATTR_NAME_TITLE;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.Analyzer.KEYWORD_AUTHOR;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.Analyzer.KEYWORD_PUBLISHED;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.Analyzer.KEYWORD_UPDATED;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.Analyzer.KEYWORD_VCARD;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.BaseAnalyzer.HATOM_HENTRY_ATTRIBUTES;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.HentryChildAnalyzer.HENTRY_CHILDREN;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorEngine.ATTR_CLASS;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorEngine.ATTR_REL;
+
+/**
+ * Single pass version of the checks performed by HentryChildAnalyzer, DateTimeAnalyzer and AuthorVcardAnalyzer
+ * on every node under a hentry.<br>
+ *
+ * Nested keywords are found without walking the subtree of every keyword node: each element that matches a
+ * hentry child keyword is counted in its hentry scope while it is open, so that its descendants are checked
+ * against all of their open keyword ancestors when they are visited.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.2
+ */
+public class HentryChildRule implements ElementRule {
+
+    // Class attribute value of a fn hCard property
+    private static final String ATTR_FN = "fn";
+
+    // Attribute names associated with the hentry children keywords, in the same order of HENTRY_CHILDREN
+    private static final String[] HENTRY_CHILDREN_ATTRIBUTES = new String[HENTRY_CHILDREN.length];
+
+    static {
+        for (int i = 0; i < HENTRY_CHILDREN.length; i++) {
+            HENTRY_CHILDREN_ATTRIBUTES[i] = HATOM_HENTRY_ATTRIBUTES.get(HENTRY_CHILDREN[i]);
+        }
+    }
+
+    public void startElement(ElementFrame frame, RuleContext context) {
+
+        RuleContext.EntryScope entry = frame.entry;
+
+        // The hentry node itself is not one of its children
+        if (entry == null || entry.root == frame) {
+            return;
+        }
+
+        ElementInfo info = frame.info;
+        ElementFrame parent = frame.parent;
+
+        if (parent.authorVcard && !parent.fnFound && info.matches(ATTR_CLASS, ATTR_FN)) {
+            parent.fnFound = true;
+        }
+
+        // Nested keywords, one report for each open keyword node
+        checkNestedKeywords(frame, ATTR_CLASS, entry.classKeywords, context);
+        checkNestedKeywords(frame, ATTR_REL, entry.relKeywords, context);
+
+        for (int i = 0; i < HENTRY_CHILDREN.length; i++) {
+
+            String keyword = HENTRY_CHILDREN[i];
+            String attrName = HENTRY_CHILDREN_ATTRIBUTES[i];
+            boolean author = KEYWORD_AUTHOR.equals(keyword);
+
+            if (!info.matches(attrName, author ? KEYWORD_VCARD + " " + keyword : keyword)) {
+                checkInvalidAttributes(frame, keyword, context);
+                continue;
+            }
+
+            if (ATTR_CLASS.equals(attrName)) {
+                frame.classKeywords++;
+            } else {
+                frame.relKeywords++;
+            }
+
+            if (KEYWORD_UPDATED.equals(keyword) || KEYWORD_PUBLISHED.equals(keyword)) {
+
+                if (!info.getName().equalsIgnoreCase(DateTimeAnalyzer.DATE_TIME_PATTERN_TAG)) {
+                    context.addReport(frame, info.createReport(Report.RULE_DATETIME_TAG, keyword + " hAtom keyword must be contained inside an <abbr> tag"));
+                }
+
+                if (!DateTimeAnalyzer.isDateTime(info.getAttribute(ATTR_NAME_TITLE))) {
+                    context.addReport(frame, info.createReport(Report.RULE_DATETIME_FORMAT, keyword + " date does not match pattern YYYY-MM-DDTHH:MM:SS+ZZ:ZZ"));
+                }
+            } else if (author) {
+                frame.authorVcard = true;
+            }
+        }
+
+        entry.classKeywords += frame.classKeywords;
+        entry.relKeywords += frame.relKeywords;
+    }
+
+    public void endElement(ElementFrame frame, RuleContext context) {
+
+        RuleContext.EntryScope entry = frame.entry;
+
+        if (entry == null || entry.root == frame) {
+            return;
+        }
+
+        entry.classKeywords -= frame.classKeywords;
+        entry.relKeywords -= frame.relKeywords;
+
+        if (frame.authorVcard && !frame.fnFound) {
+            String message = "Node" + frame.info.getName() + "must be a valid hCard and must contain a fn property";
+            context.addReport(frame, frame.info.createReport(Report.RULE_AUTHOR_FN, message));
+        }
+    }
+
+    /**
+     * Reports the hentry children keywords found in the given attribute of an element that has
+     * <code>openKeywords</code> keyword ancestors bound to the same attribute.<br>
+     */
+    private void checkNestedKeywords(ElementFrame frame, String attrName, int openKeywords, RuleContext context) {
+
+        if (openKeywords == 0) {
+            return;
+        }
+
+        ElementInfo info = frame.info;
+
+        for (int i = 0; i < HENTRY_CHILDREN.length; i++) {
+            if (info.matches(attrName, HENTRY_CHILDREN[i])) {
+                for (int j = 0; j < openKeywords; j++) {
+                    context.addReport(frame, info.createReport(Report.RULE_NESTED_KEYWORD, HENTRY_CHILDREN[i] + " keyword cannot be contained inside another hAtom node of the same or lower level"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports the given hAtom keyword if found in any attribute of an element that does not
+     * hold it in its regular attribute.<br>
+     */
+    private void checkInvalidAttributes(ElementFrame frame, String keyword, RuleContext context) {
+
+        ElementInfo info = frame.info;
+        long mask = KeywordSet.getMask(keyword);
+
+        for (int i = 0; i < info.getAttributeCount(); i++) {
+            if (KeywordSet.containsAll(info.getAttributeKeywords(i), mask)) {
+                context.addReport(frame, info.createReport(Report.RULE_INVALID_ATTRIBUTE, "hAtom keyword " + keyword + " cannot be used in attribute " + info.getAttributeName(i)));
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.Analyzer.ATTR_NAME_TITLE;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.Analyzer.KEYWORD_ENTRY_KEY;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.Analyzer.KEYWORD_HENTRY;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.HentryAnalyzer.CHECKABLE_KEYWORDS;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.HentryAnalyzer.MANDATORY_KEYWORDS;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorEngine.ATTR_CLASS;
+
+/**
+ * Single pass version of the hentry checks performed by HentryAnalyzer: keywords placed under the hfeed
+ * but outside any hentry, nested hentry nodes, mandatory hentry children and entry-key values.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.1
+ */
+public class HentryRule implements ElementRule {
+
+    public void startElement(ElementFrame frame, RuleContext context) {
+
+        RuleContext.FeedScope feed = frame.feed;
+
+        if (feed == null) {
+            return;
+        }
+
+        RuleContext.EntryScope entry = frame.entry;
+        ElementInfo info = frame.info;
+
+        if (entry == null) {
+            // hentry children placed outside hentry nodes
+            if (feed.root != frame) {
+                UnmatchingNodeRule.checkKeywords(frame, CHECKABLE_KEYWORDS, context, false);
+            }
+            return;
+        }
+
+        if (entry.root != frame && info.matches(ATTR_CLASS, KEYWORD_HENTRY)) {
+            context.addReport(frame, info.createReport(Report.RULE_NESTED_KEYWORD, KEYWORD_HENTRY + " keyword cannot be contained inside another hAtom node of the same or lower level"));
+        }
+
+        for (int i = 0; i < MANDATORY_KEYWORDS.length; i++) {
+            if (!entry.mandatoryFound[i] && info.matches(ATTR_CLASS, MANDATORY_KEYWORDS[i])) {
+                entry.mandatoryFound[i] = true;
+            }
+        }
+
+        if (info.matches(ATTR_CLASS, KEYWORD_ENTRY_KEY)) {
+
+            String value = info.getAttribute(ATTR_NAME_TITLE);
+
+            if (feed.entryKeyValues.contains(value)) {
+                context.addReport(frame, info.createReport(Report.RULE_DUPLICATE_KEY_VALUE, KEYWORD_ENTRY_KEY + " value " + value + " is already present in current hentry"));
+            } else if ("".equals(value)) {
+                context.addReport(frame, info.createReport(Report.RULE_EMPTY_KEY, KEYWORD_ENTRY_KEY + " cannot have empty value"));
+            } else {
+                feed.entryKeyValues.add(value);
+            }
+
+            if (entry.entryKeyFound) {
+                context.addReport(frame, entry.root.info.createReport(Report.RULE_DUPLICATE_KEY, "There's more than one " + KEYWORD_ENTRY_KEY + " in the hentry"));
+            }
+            entry.entryKeyFound = true;
+        }
+    }
+
+    public void endElement(ElementFrame frame, RuleContext context) {
+
+        if (!frame.isEntryRoot()) {
+            return;
+        }
+
+        RuleContext.EntryScope entry = frame.entry;
+
+        for (int i = 0; i < MANDATORY_KEYWORDS.length; i++) {
+            if (!entry.mandatoryFound[i]) {
+                context.addReport(frame, frame.info.createReport(Report.RULE_MISSING_CHILD, "Mandatory entry child keyword " + MANDATORY_KEYWORDS[i] + " is missing"));
+            }
+        }
+    }
+}
@@ -34,7 +34,7 @@ import static it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorEng
  * Delegates analysis of hfeed child entities to other specific Analyzer implementors.<br>
  *
  * @author Andrea Castello
- * @version 1.3
+ * @version 1.7
  */
 public class HfeedAnalyzer extends BaseAnalyzer {
 
@@ -73,6 +73,13 @@ public class HfeedAnalyzer extends BaseAnalyzer {
     }
 
     public void analyze() throws IOException {
+        // Results of previous validations of the same document are discarded
+        matchedNodes.clear();
+        for (List<String> values : attrValueCache.values()) {
+            values.clear();
+        }
+        state = STATE_EQUALS_PAGE;
+
         // 1- Check if hfeed exist
         List<Node> hfeedNodes = searchNodes(getXhtmlDoc(),  ValidatorEngine.ATTR_CLASS, KEYWORD_HFEED);
 
@@ -98,20 +105,21 @@ public class HfeedAnalyzer extends BaseAnalyzer {
                 // Hfeed is a single one, now we search for the entries under its node
                 analyzeHentries(hfeedNodes.get(0));
 
-                ValidatorEngine.analyzeUnmatchingNodes(getXhtmlDoc(), getXhtmlDoc(), getDocumentName(), ALL_KEYWORDS);
+                ValidatorEngine.analyzeUnmatchingNodes(getXhtmlDoc(), getEngine(), ALL_KEYWORDS, matchedNodes);
 
                 break;
 
             case STATE_MULTI_FEED:
 
                 for(Node tempNode: hfeedNodes){
+                    checkCancelled();
                     // Analyze feed keys
                     analyzeFeedKey(tempNode);
                     // Analyze single hentries
                     analyzeHentries(tempNode);
                 }
 
-                ValidatorEngine.analyzeUnmatchingNodes(getXhtmlDoc(), getXhtmlDoc(), getDocumentName(), ALL_KEYWORDS);
+                ValidatorEngine.analyzeUnmatchingNodes(getXhtmlDoc(), getEngine(), ALL_KEYWORDS, matchedNodes);
                 break;
         }
 
@@ -127,9 +135,8 @@ public class HfeedAnalyzer extends BaseAnalyzer {
     private void addFeedKeyValue(Node aNode) {
 
         if (!addMappedAttributeValue(Analyzer.ATTR_NAME_TITLE, aNode)){
-            Report report = new Report(FEED_KEY + " cannot have empty value", aNode);
-            engine = ValidatorCache.getInstance().getEngine(getDocumentName());
-            engine.addReport(report);
+            Report report = new Report(Report.RULE_EMPTY_KEY, FEED_KEY + " cannot have empty value", aNode);
+            addReport(report);
         }
 
     }
@@ -146,9 +153,8 @@ public class HfeedAnalyzer extends BaseAnalyzer {
         String value = ((Element)aNode).getAttribute(Analyzer.ATTR_NAME_TITLE);
 
         if (isDuplicateAttributeValue(Analyzer.ATTR_NAME_TITLE, value)){
-            Report report = new Report(FEED_KEY + " value " + value + " is already present in the document", aNode);
-            engine = ValidatorCache.getInstance().getEngine(getDocumentName());
-            engine.addReport(report);
+            Report report = new Report(Report.RULE_DUPLICATE_KEY_VALUE, FEED_KEY + " value " + value + " is already present in the document", aNode);
+            addReport(report);
         }
     }
 
@@ -169,6 +175,7 @@ public class HfeedAnalyzer extends BaseAnalyzer {
 
         while ((n = iterator.nextNode()) != null) {
 
+            checkCancelled();
 
             if (XMLUtils.nodeAttributeMatches(n, ValidatorEngine.ATTR_CLASS, FEED_KEY)) {
 
@@ -187,9 +194,8 @@ public class HfeedAnalyzer extends BaseAnalyzer {
                     keywordValue = FEED_KEY;
                     addFeedKeyValue(n);
                 } else { // There's more than one feed-key for this hfeed, this makes the feed invalid.
-                    Report report = new Report(FEED_KEY + " keyword is already present for this hfeed", n);
-                    engine = ValidatorCache.getInstance().getEngine(getDocumentName());
-                    engine.addReport(report);
+                    Report report = new Report(Report.RULE_DUPLICATE_KEY, FEED_KEY + " keyword is already present for this hfeed", n);
+                    addReport(report);
                 }
 
             } else {
@@ -200,9 +206,8 @@ public class HfeedAnalyzer extends BaseAnalyzer {
 
         // No feed-key has been found
         if ("".equals(keywordValue)) {
-            Report report = new Report("Mandatory hfeed child keyword "+ FEED_KEY + " is missing", aNode);
-            engine = ValidatorCache.getInstance().getEngine(getDocumentName());
-            engine.addReport(report);
+            Report report = new Report(Report.RULE_MISSING_CHILD, "Mandatory hfeed child keyword "+ FEED_KEY + " is missing", aNode);
+            addReport(report);
         }
 
     }
@@ -218,7 +223,9 @@ public class HfeedAnalyzer extends BaseAnalyzer {
     private void analyzeHentries(Node aNode) throws IOException {
         HentryAnalyzer hentryAnalizer = new HentryAnalyzer(aNode);
         hentryAnalizer.setDocumentName(getDocumentName());
+        hentryAnalizer.setEngine(getEngine());
         hentryAnalizer.setXhtmlDoc(getXhtmlDoc());
+        hentryAnalizer.setMatchedNodes(matchedNodes);
         hentryAnalizer.analyze();
     }
 
@@ -239,9 +246,8 @@ public class HfeedAnalyzer extends BaseAnalyzer {
                 currentPositionState == FEED_KEY_POS_UNDEFINDED) {
 
             currentPositionState = FEED_KEY_POS_AFTER;
-            Report report = new Report(FEED_KEY + " MUST be placed before any hentry", aNode);
-            engine = ValidatorCache.getInstance().getEngine(getDocumentName());
-            engine.addReport(report);
+            Report report = new Report(Report.RULE_KEY_POSITION, FEED_KEY + " MUST be placed before any hentry", aNode);
+            addReport(report);
 
         }
 
@@ -0,0 +1,611 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+
+/**
+ * Keeps the validation reports of an editor document up to date, validating again only the hentry
+ * elements that have been changed since the last validation.<br>
+ *
+ * The validator listens to the document changes. The first validation is a full streaming validation,
+ * which also records the text region and the validation state of each hentry of a hfeed element.
+ * When all the changes made since the last validation are inside the content of a single hentry, only that
+ * hentry is parsed and validated again, starting from its saved state, and its reports replace the old ones.
+ * Whenever the changes might affect the rest of the document (ie: a hfeed, feed-key or entry-key has been
+ * changed, or the changes span more than one hentry) a full validation is performed instead.<br>
+ *
+ * Documents are parsed as they are, without any encoding conversion. When a single hentry is validated,
+ * only its text is read from the document.<br>
+ *
+ * Report positions hold document offsets. After a single hentry has been validated, the positions of
+ * the reports that follow it are moved, so that they match the validated text.<br>
+ *
+ * A validation is cancelled, throwing a <code>ValidationCancelledException</code>, as soon as the document is
+ * changed again: its results would be stale anyway. Every change cancels the engine (see
+ * <code>ValidatorEngine.cancel</code>), and the cancel request is cleared when the next validation reads
+ * the document. The changes it was validating are kept, so they are validated by the next call of
+ * <code>validate</code>.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.4
+ */
+public class IncrementalValidator implements DocumentListener {
+
+    /**
+     * Text region and validation state of a hentry.<br>
+     */
+    private static class Region {
+
+        // Element name of the hentry
+        String name;
+
+        // Start and end offsets of the hentry content, between its start and end tags
+        int start;
+        int end;
+        Position startPosition;
+        Position endPosition;
+
+        // Context state before and after the hentry
+        RuleContext.EntryState before;
+        RuleContext.EntryState after;
+
+        // Reports produced by the hentry
+        List<Report> reports;
+
+        // Index of the first report of the hentry in the engine report list: the reports are always there,
+        // between the ones produced before and after the hentry, even when it has none
+        int reportIndex;
+    }
+
+    /**
+     * Full validation handler that records the hentry regions.<br>
+     */
+    private class RegionHandler extends SaxRuleHandler {
+
+        // Line starts of the text
+        private LineMap lines;
+
+        // Document text
+        private String text;
+
+        // Currently open hentry region, and its depth
+        private Region region;
+        private int regionDepth;
+
+        // Depth of the current element
+        private int depth;
+
+        // Regions found so far
+        private List<Region> found = new ArrayList<Region>();
+
+        // Number of engine reports before the currently open hentry region
+        private int reportCount;
+
+        // Offset where the root element starts
+        private int rootStart = -1;
+
+        // Document revision being validated
+        private int validatedRevision;
+
+        RegionHandler(RuleContext context, String text, LineMap lines, int validatedRevision) {
+            super(context);
+            this.text = text;
+            this.lines = lines;
+            this.validatedRevision = validatedRevision;
+        }
+
+        @Override
+        protected void startElement(SaxElementInfo info) {
+
+            RuleContext context = getContext();
+
+            checkRevision(validatedRevision);
+            depth++;
+
+            if (getLocator() == null) { // Regions cannot be located
+                super.startElement(info);
+                return;
+            }
+
+            if (rootStart < 0) {
+                rootStart = text.lastIndexOf('<', getOffset() - 1);
+            }
+
+            if (region == null && context.opensFeedEntry(info)) {
+                region = new Region();
+                region.name = info.getName();
+                region.start = getOffset();
+                region.before = context.getEntryState();
+                regionDepth = depth;
+                reportCount = engine.getReports().size();
+            }
+
+            super.startElement(info);
+        }
+
+        @Override
+        protected void endElement(SaxElementInfo info) {
+
+            super.endElement(info);
+
+            if (region != null && regionDepth == depth) {
+
+                region.end = text.lastIndexOf("</", getOffset() - 1);
+                region.after = getContext().getEntryState();
+                region.reports = new ArrayList<Report>(engine.getReports().subList(reportCount, engine.getReports().size()));
+                region.reportIndex = reportCount;
+
+                // Empty hentry elements have no content that can be changed
+                if (region.end >= region.start) {
+                    found.add(region);
+                }
+                region = null;
+            }
+
+            depth--;
+        }
+
+        /**
+         * @return the offset of the current parser position
+         */
+        private int getOffset() {
+            Locator locator = getLocator();
+
+            return lines.getOffset(locator.getLineNumber(), locator.getColumnNumber());
+        }
+    }
+
+    // Characters read at a time when scanning the document backwards
+    private static final int SCAN_CHUNK = 256;
+
+    // Editor document
+    private Document document;
+
+    // Engine holding the reports of the last validation
+    private ValidatorEngine engine;
+
+    // Serializes validations
+    private final Object validationLock = new Object();
+
+    // hentry regions of the last full validation, in document order; null if a full validation is needed
+    private List<Region> regions;
+
+    // Document text before the root element, used to parse a single hentry with the same entity declarations
+    private String prolog;
+
+    // Line starts of the last validated text
+    private LineMap lines;
+
+    // Range of the document changed since the last validation, -1 if nothing has been changed
+    private int changeStart = -1;
+    private int changeEnd = -1;
+
+    // Incremented at every change of the document
+    private volatile int revision;
+
+    /**
+     * Creates a new validator for the given document and starts listening to its changes.<br>
+     *
+     * @param document the document to be validated
+     * @param documentName name of the document, used for reporting purposes
+     */
+    public IncrementalValidator(Document document, String documentName) {
+        this.document = document;
+        this.engine = new ValidatorEngine();
+        this.engine.setDocumentName(documentName);
+
+        document.addDocumentListener(this);
+    }
+
+    /**
+     * Stops listening to the document changes.<br>
+     */
+    public void dispose() {
+        document.removeDocumentListener(this);
+    }
+
+    /**
+     * Returns the engine that contains the reports of the last validation.<br>
+     * @return the validation engine
+     */
+    public ValidatorEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Brings the validation reports up to date with the document.<br>
+     *
+     * @return <code>true</code> if reports have been updated without validating the whole document
+     * @throws BadLocationException if the document text cannot be read
+     * @throws IOException if the document cannot be parsed
+     * @throws ValidationCancelledException if the document has been changed during the validation
+     */
+    public boolean validate() throws BadLocationException, IOException {
+
+        synchronized (validationLock) {
+
+            final String[] entry = new String[1];
+            final int[] state = new int[6];
+            final BadLocationException[] failure = new BadLocationException[1];
+            final Region[] target = new Region[1];
+
+            // Changes and regions are read while the document cannot be changed
+            document.render(new Runnable() {
+
+                public void run() {
+                    synchronized (IncrementalValidator.this) {
+                        engine.resetCancel();
+                        state[0] = changeStart;
+                        state[1] = changeEnd;
+                        state[2] = revision;
+                        changeStart = -1;
+                        changeEnd = -1;
+                        target[0] = findRegion(state[0], state[1]);
+                    }
+
+                    // Only the text of the changed hentry is read
+                    if (target[0] != null) {
+                        try {
+                            state[3] = target[0].startPosition.getOffset();
+                            state[4] = target[0].endPosition.getOffset();
+                            state[5] = lastIndexOf('<', state[3] - 1);
+                            entry[0] = document.getText(state[5], Math.min(state[4] + 1, document.getLength()) - state[5]);
+                        } catch (BadLocationException ex) {
+                            failure[0] = ex;
+                        }
+                    }
+                }
+            });
+
+            if (failure[0] != null) {
+                invalidate();
+                throw failure[0];
+            }
+
+            if (regions != null) {
+
+                if (state[0] < 0) { // Nothing has been changed
+                    return true;
+                }
+
+                if (target[0] != null && validateRegion(target[0], entry[0], state[5], state[3], state[4], state[2])) {
+                    return true;
+                }
+            }
+
+            validateAll();
+
+            return false;
+        }
+    }
+
+    /**
+     * Returns a copy of the reports of the last validation.<br>
+     * It can be called while another thread is validating the document: the reports of the last
+     * completed validation are returned.<br>
+     *
+     * @return the validation reports
+     */
+    public List<Report> getReports() {
+        synchronized (validationLock) {
+            return new ArrayList<Report>(engine.getReports());
+        }
+    }
+
+    public void insertUpdate(DocumentEvent e) {
+        changed(e.getOffset(), e.getLength(), true);
+    }
+
+    public void removeUpdate(DocumentEvent e) {
+        changed(e.getOffset(), e.getLength(), false);
+    }
+
+    public void changedUpdate(DocumentEvent e) {
+        // Attribute changes do not modify the text
+    }
+
+    /**
+     * Merges the given change into the changed range, moving the range to the new offsets.<br>
+     */
+    private synchronized void changed(int offset, int length, boolean insert) {
+
+        revision++;
+        engine.cancel();
+
+        if (changeStart >= 0) {
+            if (insert) {
+                if (changeStart > offset) {
+                    changeStart += length;
+                }
+                if (changeEnd >= offset) {
+                    changeEnd += length;
+                }
+            } else {
+                changeStart = (changeStart > offset) ? Math.max(offset, changeStart - length) : changeStart;
+                changeEnd = (changeEnd > offset) ? Math.max(offset, changeEnd - length) : changeEnd;
+            }
+        }
+
+        addChange(offset, insert ? offset + length : offset);
+    }
+
+    /**
+     * Adds the given range to the changed range.<br>
+     */
+    private synchronized void addChange(int start, int end) {
+        changeStart = (changeStart < 0) ? start : Math.min(changeStart, start);
+        changeEnd = Math.max(changeEnd, end);
+    }
+
+    /**
+     * Stops the running validation if the document has been changed since the given revision.<br>
+     */
+    private void checkRevision(int validatedRevision) {
+        if (revision != validatedRevision) {
+            throw new ValidationCancelledException(engine.getDocumentName());
+        }
+    }
+
+    /**
+     * Returns the region whose content contains the whole given range, or null.<br>
+     */
+    private Region findRegion(int start, int end) {
+
+        if (regions == null || start < 0) {
+            return null;
+        }
+
+        for (Region region : regions) {
+            if (region.startPosition.getOffset() <= start && end <= region.endPosition.getOffset()) {
+                return region;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Validates again the content of a single hentry and replaces its reports.<br>
+     * <code>entry</code> is the text of the hentry, from its start tag to the end of its content, followed
+     * by the next character of the document, if any; <code>tagStart</code> is its document offset.
+     * <code>start</code> and <code>end</code> are the document offsets of the hentry content.<br>
+     *
+     * @return <code>false</code> if the hentry cannot be validated on its own, so the whole document
+     * must be validated
+     */
+    private boolean validateRegion(final Region region, String entry, int tagStart, int start, int end, final int validatedRevision) {
+
+        StringBuffer fragment = new StringBuffer(prolog.length() + end - tagStart + region.name.length() + 3);
+        fragment.append(prolog).append(entry, 0, end - tagStart).append("</").append(region.name).append('>');
+
+        // Element positions are moved from the fragment to the document
+        final LineMap fragmentLines = LineMap.of(fragment);
+        final LineMap newLines = lines.replace(start, region.end, entry, tagStart, end);
+        final int shift = tagStart - prolog.length();
+
+        ValidatorEngine fragmentEngine = new ValidatorEngine();
+        RuleContext context = new RuleContext(fragmentEngine, region.before);
+        SaxElementInfo parent = (SaxElementInfo) region.before.getParent().getInfo();
+
+        SaxRuleHandler handler = new SaxRuleHandler(context, parent) {
+
+            @Override
+            protected void startElement(SaxElementInfo info) {
+                checkRevision(validatedRevision);
+
+                SourcePosition position = info.getPosition();
+
+                if (position != null) {
+                    int offset = fragmentLines.getOffset(position.getLine(), position.getColumn());
+                    info.setPosition((offset >= 0) ? newLines.locate(offset + shift) : null);
+                }
+
+                super.startElement(info);
+            }
+        };
+
+        try {
+            XMLUtils.parse(new InputSource(new StringReader(fragment.toString())), handler);
+        } catch (IOException ex) {
+            // The content is not well formed on its own, the hentry boundaries may have changed
+            return false;
+        } catch (ValidationCancelledException ex) {
+            // The hentry content is still to be validated
+            addChange(region.startPosition.getOffset(), region.endPosition.getOffset());
+            throw ex;
+        }
+
+        if (!RuleContext.sameEffects(region.before, region.after, context.getEntryState())) {
+            return false;
+        }
+
+        movePositions(region, end, newLines);
+        replaceReports(region, fragmentEngine.getReports());
+
+        return true;
+    }
+
+    /**
+     * Moves the reports and the regions that follow the given region, whose content now ends at
+     * <code>end</code>.<br>
+     */
+    private void movePositions(Region region, int end, LineMap newLines) {
+
+        int delta = end - region.end;
+
+        for (Report report : engine.getReports()) {
+            int offset = report.getOffset();
+
+            if (offset > region.end) {
+                report.setPosition(newLines.locate(offset + delta));
+            }
+        }
+
+        for (Region other : regions) {
+            if (other.start > region.end) {
+                other.start += delta;
+                other.end += delta;
+            }
+        }
+
+        region.end = end;
+        lines = newLines;
+    }
+
+    /**
+     * Replaces the reports of the given region in the engine report list, in the same order of a full
+     * validation, and moves the report indexes of the following regions.<br>
+     */
+    private void replaceReports(Region region, List<Report> newReports) {
+
+        List<Report> reports = engine.getReports();
+        List<Report> entryReports = reports.subList(region.reportIndex, region.reportIndex + region.reports.size());
+
+        entryReports.clear();
+        entryReports.addAll(newReports);
+
+        int delta = newReports.size() - region.reports.size();
+
+        for (int i = regions.indexOf(region) + 1; i < regions.size(); i++) {
+            regions.get(i).reportIndex += delta;
+        }
+
+        region.reports = new ArrayList<Report>(newReports);
+    }
+
+    /**
+     * Validates the whole document and records its hentry regions.<br>
+     * The document text is copied while holding the read lock, and parsed after releasing it: parsing
+     * inside <code>render</code> (see <code>DocumentReader</code>) would block the editor for the whole
+     * validation, and the validation could no longer be cancelled by the next change.<br>
+     */
+    private void validateAll() throws BadLocationException, IOException {
+
+        final String[] copy = new String[1];
+        final int[] copyRevision = new int[1];
+        final BadLocationException[] readFailure = new BadLocationException[1];
+
+        document.render(new Runnable() {
+
+            public void run() {
+                try {
+                    copy[0] = document.getText(0, document.getLength());
+                } catch (BadLocationException ex) {
+                    readFailure[0] = ex;
+                }
+
+                synchronized (IncrementalValidator.this) {
+                    copyRevision[0] = revision;
+                }
+            }
+        });
+
+        if (readFailure[0] != null) {
+            invalidate();
+            throw readFailure[0];
+        }
+
+        String text = copy[0];
+        int validatedRevision = copyRevision[0];
+
+        engine.getReports().clear();
+        regions = null;
+
+        RuleContext context = new RuleContext(engine);
+        lines = LineMap.of(text);
+        final RegionHandler handler = new RegionHandler(context, text, lines, validatedRevision);
+
+        XMLUtils.parse(new InputSource(new StringReader(text)), handler);
+
+        context.endDocument();
+        engine.resolveOffsets(0, lines);
+
+        prolog = (handler.rootStart > 0) ? text.substring(0, handler.rootStart) : "";
+
+        final List<Region> found = handler.found;
+        final int checkedRevision = validatedRevision;
+        final BadLocationException[] failure = new BadLocationException[1];
+
+        // Regions are only kept if the document has not been changed in the meantime
+        document.render(new Runnable() {
+
+            public void run() {
+                synchronized (IncrementalValidator.this) {
+
+                    if (revision != checkedRevision) {
+                        return;
+                    }
+
+                    try {
+                        for (Region region : found) {
+                            region.startPosition = document.createPosition(region.start);
+                            region.endPosition = document.createPosition(region.end);
+                        }
+                        regions = found;
+                    } catch (BadLocationException ex) {
+                        failure[0] = ex;
+                    }
+                }
+            }
+        });
+
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    /**
+     * Returns the offset of the last occurrence of the given character at or before <code>from</code>.<br>
+     * The document is read backwards in small chunks; it must be called while holding the read lock.<br>
+     */
+    private int lastIndexOf(char c, int from) throws BadLocationException {
+
+        Segment segment = new Segment();
+
+        for (int end = from + 1; end > 0; end -= SCAN_CHUNK) {
+            int start = Math.max(0, end - SCAN_CHUNK);
+            document.getText(start, end - start, segment);
+
+            for (int i = segment.count - 1; i >= 0; i--) {
+                if (segment.array[segment.offset + i] == c) {
+                    return start + i;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Forces a full validation at the next call of <code>validate</code>.<br>
+     */
+    private void invalidate() {
+        regions = null;
+    }
+}
@@ -0,0 +1,319 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Bitset representation of the hAtom keywords contained in an attribute value.<br>
+ * Attribute values such as <code>class="hfeed hentry"</code> are split into whitespace separated tokens
+ * only once; each known keyword is then represented by a single bit of a <code>long</code>, so that checking
+ * a keyword is a mask test instead of a string scan.<br>
+ * Tokens are compared ignoring case. Tokens that are not hAtom keywords are not represented in the bitset:
+ * values containing them are matched with <code>containsTokens</code>.<br>
+ * DOM user data is not safe for concurrent reads: threads that read a shared document use keyword bits
+ * collected beforehand instead (see <code>collect</code> and <code>setThreadKeywords</code>).<br>
+ *
+ * @author Andrea Castello
+ * @version 1.2
+ */
+public class KeywordSet {
+
+    // Keywords that can be represented as bits: the bit of KEYWORDS[i] is 1L << i
+    private static final String[] KEYWORDS;
+
+    static {
+        String[] all = ValidatorEngine.ALL_KEYWORDS;
+
+        KEYWORDS = new String[all.length + 2];
+        System.arraycopy(all, 0, KEYWORDS, 0, all.length);
+
+        KEYWORDS[KEYWORDS.length - 2] = Analyzer.KEYWORD_VCARD;
+        KEYWORDS[KEYWORDS.length - 1] = "fn";
+    }
+
+    // DOM user data key of the keyword bits cached for each element
+    private static final String USER_DATA_KEY = KeywordSet.class.getName();
+
+    // Indexes of the cached class and rel bits
+    private static final int CLASS_INDEX = 0;
+    private static final int REL_INDEX = 1;
+
+    // Keyword bits used by the current thread instead of the DOM user data, if any
+    private static final ThreadLocal<Map<Node, long[]>> THREAD_KEYWORDS = new ThreadLocal<Map<Node, long[]>>();
+
+    /**
+     * Since KeywordSet provides just static utility methods, no class instances
+     * are allowed.<br>
+     */
+    private KeywordSet() {}
+
+    /**
+     * Returns the bits of the hAtom keywords found in the given attribute value.<br>
+     * Tokens that are not hAtom keywords are ignored.<br>
+     *
+     * @param value an attribute value, possibly made of several tokens
+     * @return the keyword bits, 0 if no keyword is found or <code>value</code> is null
+     */
+    public static long tokenize(String value) {
+        return scan(value, false);
+    }
+
+    /**
+     * Returns the bits that an attribute value must contain in order to match all the tokens
+     * of <code>keywords</code>.<br>
+     *
+     * @param keywords one or more whitespace separated keywords
+     * @return the keyword bits, or 0 if any of the tokens is not an hAtom keyword
+     */
+    public static long getMask(String keywords) {
+        return scan(keywords, true);
+    }
+
+    /**
+     * Returns the keyword bits of the given attribute of a DOM node.<br>
+     * Bits of the <code>class</code> and <code>rel</code> attributes are computed once and cached
+     * in the node as user data; other attributes are tokenized at each call. If the current thread has
+     * its own keyword bits (see <code>setThreadKeywords</code>), they are used and the user data is
+     * neither read nor written.<br>
+     *
+     * @param node the node
+     * @param attrName name of the attribute
+     * @return the keyword bits, 0 if node is not an element or has no such attribute
+     */
+    public static long getKeywords(Node node, String attrName) {
+
+        if (node == null || node.getNodeType() != Node.ELEMENT_NODE) {
+            return 0;
+        }
+
+        int index;
+        if (ValidatorEngine.ATTR_CLASS.equals(attrName)) {
+            index = CLASS_INDEX;
+        } else if (ValidatorEngine.ATTR_REL.equals(attrName)) {
+            index = REL_INDEX;
+        } else {
+            return tokenize(((Element) node).getAttribute(attrName));
+        }
+
+        Map<Node, long[]> threadKeywords = THREAD_KEYWORDS.get();
+
+        if (threadKeywords != null) {
+            long[] bits = threadKeywords.get(node);
+            return (bits != null) ? bits[index] : getBits((Element) node)[index];
+        }
+
+        long[] bits = (long[]) node.getUserData(USER_DATA_KEY);
+
+        if (bits == null) {
+            bits = getBits((Element) node);
+            node.setUserData(USER_DATA_KEY, bits, null);
+        }
+
+        return bits[index];
+    }
+
+    /**
+     * Computes the keyword bits of the <code>class</code> and <code>rel</code> attributes of every element
+     * of the given subtree.<br>
+     *
+     * @param root root of the subtree
+     * @return the keyword bits, by element
+     */
+    public static Map<Node, long[]> collect(Node root) {
+
+        Map<Node, long[]> keywords = new IdentityHashMap<Node, long[]>();
+
+        for (Node n = root; n != null; n = XMLUtils.nextNode(n, root)) {
+            if (n.getNodeType() == Node.ELEMENT_NODE) {
+                keywords.put(n, getBits((Element) n));
+            }
+        }
+
+        return keywords;
+    }
+
+    /**
+     * Removes the keyword bits stored as user data by <code>getKeywords</code> in the given subtree, so that
+     * they are computed again by the next calls.<br>
+     *
+     * @param root root of the subtree
+     */
+    public static void clear(Node root) {
+
+        for (Node n = root; n != null; n = XMLUtils.nextNode(n, root)) {
+            if (n.getNodeType() == Node.ELEMENT_NODE) {
+                n.setUserData(USER_DATA_KEY, null, null);
+            }
+        }
+    }
+
+    /**
+     * Makes <code>getKeywords</code> use the given bits in the current thread, instead of the DOM user data.<br>
+     * Elements that are not in the map are tokenized at each call.<br>
+     *
+     * @param keywords keyword bits returned by <code>collect</code>, or <code>null</code> to use the user data again
+     */
+    public static void setThreadKeywords(Map<Node, long[]> keywords) {
+
+        if (keywords == null) {
+            THREAD_KEYWORDS.remove();
+        } else {
+            THREAD_KEYWORDS.set(keywords);
+        }
+    }
+
+    /**
+     * Tokenizes the <code>class</code> and <code>rel</code> attributes of an element.<br>
+     */
+    private static long[] getBits(Element element) {
+        return new long[]{
+            tokenize(element.getAttribute(ValidatorEngine.ATTR_CLASS)),
+            tokenize(element.getAttribute(ValidatorEngine.ATTR_REL))
+        };
+    }
+
+    /**
+     * Checks whether the given keyword bits contain all the bits of <code>mask</code>.<br>
+     *
+     * @param bits keyword bits of an attribute value
+     * @param mask keyword bits to be found, as returned by <code>getMask</code>
+     * @return <code>true</code> if the mask is not empty and all of its bits are set
+     */
+    public static boolean containsAll(long bits, long mask) {
+        return mask != 0 && (bits & mask) == mask;
+    }
+
+    /**
+     * Checks whether the given attribute value contains all the whitespace separated tokens
+     * of <code>expectedValue</code>, in any position and ignoring case.<br>
+     *
+     * @param value the attribute value
+     * @param expectedValue one or more tokens to be found
+     * @return <code>true</code> if all the tokens are found, <code>false</code> otherwise or if any value is null
+     */
+    public static boolean containsTokens(String value, String expectedValue) {
+
+        if (value == null || expectedValue == null) {
+            return false;
+        }
+
+        boolean found = false;
+        int length = expectedValue.length();
+        int start = skipWhitespace(expectedValue, 0);
+
+        while (start < length) {
+
+            int end = skipToken(expectedValue, start);
+
+            if (!containsToken(value, expectedValue, start, end - start)) {
+                return false;
+            }
+
+            found = true;
+            start = skipWhitespace(expectedValue, end);
+        }
+
+        return found;
+    }
+
+    /**
+     * Checks whether <code>value</code> contains the token of the given length found in
+     * <code>source</code> at the given offset.<br>
+     */
+    private static boolean containsToken(String value, String source, int offset, int tokenLength) {
+
+        int length = value.length();
+        int start = skipWhitespace(value, 0);
+
+        while (start < length) {
+
+            int end = skipToken(value, start);
+
+            if (end - start == tokenLength && value.regionMatches(true, start, source, offset, tokenLength)) {
+                return true;
+            }
+
+            start = skipWhitespace(value, end);
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the bits of the keywords in the given value.<br>
+     * If <code>strict</code> is true, 0 is returned as soon as a token is not a known keyword.<br>
+     */
+    private static long scan(String value, boolean strict) {
+
+        if (value == null) {
+            return 0;
+        }
+
+        long bits = 0;
+        int length = value.length();
+        int start = skipWhitespace(value, 0);
+
+        while (start < length) {
+
+            int end = skipToken(value, start);
+            int index = indexOf(value, start, end - start);
+
+            if (index >= 0) {
+                bits |= 1L << index;
+            } else if (strict) {
+                return 0;
+            }
+
+            start = skipWhitespace(value, end);
+        }
+
+        return bits;
+    }
+
+    /**
+     * Returns the index of the keyword equal to the given token, or -1 if the token is not a keyword.<br>
+     */
+    private static int indexOf(String value, int offset, int tokenLength) {
+
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            String keyword = KEYWORDS[i];
+            if (keyword.length() == tokenLength && value.regionMatches(true, offset, keyword, 0, tokenLength)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int skipWhitespace(String value, int index) {
+        while (index < value.length() && Character.isWhitespace(value.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int skipToken(String value, int index) {
+        while (index < value.length() && !Character.isWhitespace(value.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+/**
+ * Offsets where the lines of a text start, used to convert the line and column numbers reported by
+ * XML parsers into character offsets and back.<br>
+ * Line terminators are the same recognized by XML parsers (\n, \r\n and \r). Text can be added in
+ * chunks while it is being read, so that no further scan of the text is needed.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.1
+ */
+public class LineMap {
+
+    // Offsets of the beginning of each line; the first line always starts at 0
+    private int[] starts = new int[16];
+
+    // Number of lines found so far
+    private int count = 1;
+
+    // Number of characters added so far
+    private int length;
+
+    // True if the last character added is \r, which may be followed by \n
+    private boolean afterReturn;
+
+    /**
+     * Creates the line map of the given text.<br>
+     * @param text the text
+     * @return the line map
+     */
+    public static LineMap of(CharSequence text) {
+
+        LineMap lines = new LineMap();
+        int length = text.length();
+
+        for (int i = 0; i < length; i++) {
+            lines.add(text.charAt(i));
+        }
+
+        return lines;
+    }
+
+    /**
+     * Adds a chunk of text, following the characters already added.<br>
+     *
+     * @param buf buffer containing the text
+     * @param off offset of the first character in the buffer
+     * @param len number of characters
+     */
+    public void add(char[] buf, int off, int len) {
+
+        int end = off + len;
+
+        for (int i = off; i < end; i++) {
+            add(buf[i]);
+        }
+    }
+
+    private void add(char c) {
+
+        length++;
+
+        if (c == '\n') {
+            if (afterReturn) {
+                starts[count - 1] = length;
+                afterReturn = false;
+            } else {
+                addLine(length);
+            }
+        } else if (c == '\r') {
+            addLine(length);
+            afterReturn = true;
+        } else {
+            afterReturn = false;
+        }
+    }
+
+    private void addLine(int start) {
+
+        if (count == starts.length) {
+            int[] larger = new int[count * 2];
+            System.arraycopy(starts, 0, larger, 0, count);
+            starts = larger;
+        }
+        starts[count++] = start;
+    }
+
+    /**
+     * @return the number of lines found so far
+     */
+    public int getLineCount() {
+        return count;
+    }
+
+    /**
+     * Returns the offset of the given line and column.<br>
+     *
+     * @param line the line number, starting from 1
+     * @param column the column number, starting from 1
+     * @return the offset, or -1 if the line has not been added
+     */
+    public int getOffset(int line, int column) {
+
+        if (line < 1 || line > count || column < 1) {
+            return -1;
+        }
+
+        return starts[line - 1] + column - 1;
+    }
+
+    /**
+     * Returns the line containing the given offset.<br>
+     *
+     * @param offset the offset, starting from 0
+     * @return the line number, starting from 1
+     */
+    public int getLine(int offset) {
+
+        int low = 0;
+        int high = count - 1;
+
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+
+            if (starts[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return low + 1;
+    }
+
+    /**
+     * Returns the full position of the given line and column.<br>
+     *
+     * @param line the line number, starting from 1
+     * @param column the column number, starting from 1
+     * @return the position, whose offset is -1 if the line has not been added
+     */
+    public SourcePosition locate(int line, int column) {
+        return new SourcePosition(line, column, getOffset(line, column));
+    }
+
+    /**
+     * Returns the full position of the given offset.<br>
+     *
+     * @param offset the offset, starting from 0
+     * @return the position
+     */
+    public SourcePosition locate(int offset) {
+
+        int line = getLine(offset);
+
+        return new SourcePosition(line, offset - starts[line - 1] + 1, offset);
+    }
+
+    /**
+     * Returns the line map of the text obtained by replacing a range of this map's text.<br>
+     * Only the replacing characters are scanned; the lines that follow them are shifted.<br>
+     *
+     * @param start start offset of the replaced range
+     * @param end end offset of the replaced range, in this map's text
+     * @param text the new text
+     * @param newEnd end offset of the replacing characters, in the new text
+     * @return the new line map
+     */
+    public LineMap replace(int start, int end, CharSequence text, int newEnd) {
+        return replace(start, end, text, 0, newEnd);
+    }
+
+    /**
+     * Returns the line map of the text obtained by replacing a range of this map's text, when just a part
+     * of the new text is available.<br>
+     *
+     * @param start start offset of the replaced range
+     * @param end end offset of the replaced range, in this map's text
+     * @param text part of the new text, containing at least the replacing characters
+     * @param textOffset offset of <code>text</code> in the new text
+     * @param newEnd end offset of the replacing characters, in the new text
+     * @return the new line map
+     */
+    public LineMap replace(int start, int end, CharSequence text, int textOffset, int newEnd) {
+
+        LineMap lines = new LineMap();
+        int delta = newEnd - end;
+        int i = 1;
+
+        // Lines starting before or at the range start are unchanged
+        for (; i < count && starts[i] <= start; i++) {
+            lines.addLine(starts[i]);
+        }
+
+        for (int j = start - textOffset; j < newEnd - textOffset; j++) {
+            char c = text.charAt(j);
+
+            if (c == '\n' || (c == '\r' && (j + 1 >= text.length() || text.charAt(j + 1) != '\n'))) {
+                lines.addLine(j + 1 + textOffset);
+            }
+        }
+
+        // Lines starting after the range are shifted
+        for (; i < count; i++) {
+            if (starts[i] > end) {
+                lines.addLine(starts[i] + delta);
+            }
+        }
+
+        lines.length = length + delta;
+        lines.afterReturn = afterReturn;
+
+        return lines;
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.w3c.dom.Node;
+
+/**
+ * Set of DOM subtrees that have already been matched during a validation process.<br>
+ * Analyzers used to detach matching nodes from the document, so that the following searches would not
+ * find them again. Marking them here has the same effect on searches, while the document is left
+ * untouched and can be validated again or shared between analyzers.<br>
+ * Nodes are compared by identity.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public class NodeMarks {
+
+    // Marked subtree roots
+    private Map<Node, Boolean> marks = new IdentityHashMap<Node, Boolean>();
+
+    /**
+     * Marks the subtree under the given node.<br>
+     * @param node root of the subtree
+     */
+    public void mark(Node node) {
+        marks.put(node, Boolean.TRUE);
+    }
+
+    /**
+     * @param node the node to be checked
+     * @return <code>true</code> if the given node is the root of a marked subtree
+     */
+    public boolean isMarked(Node node) {
+        return !marks.isEmpty() && marks.containsKey(node);
+    }
+
+    /**
+     * Removes all the marks.<br>
+     */
+    public void clear() {
+        marks.clear();
+    }
+
+    /**
+     * Returns the node that follows <code>current</code> in document order, without leaving
+     * the subtree under <code>root</code> and skipping marked subtrees.<br>
+     * The root itself is never skipped, even if it is marked.<br>
+     *
+     * @param current the current node
+     * @param root root of the visited subtree
+     * @return the next node, or <code>null</code> if the whole subtree has been visited
+     */
+    public Node nextNode(Node current, Node root) {
+
+        if (current == root || !isMarked(current)) {
+
+            Node child = current.getFirstChild();
+
+            while (child != null && isMarked(child)) {
+                child = child.getNextSibling();
+            }
+
+            if (child != null) {
+                return child;
+            }
+        }
+
+        while (current != root) {
+
+            Node sibling = current.getNextSibling();
+
+            while (sibling != null && isMarked(sibling)) {
+                sibling = sibling.getNextSibling();
+            }
+
+            if (sibling != null) {
+                return sibling;
+            }
+
+            current = current.getParentNode();
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns all the nodes under the given root, root included, in document order and skipping
+     * marked subtrees.<br>
+     *
+     * @param root root of the visited subtree
+     * @return the list of nodes
+     */
+    public List<Node> getNodes(Node root) {
+
+        List<Node> nodes = new ArrayList<Node>();
+
+        for (Node n = root; n != null; n = nextNode(n, root)) {
+            nodes.add(n);
+        }
+
+        return nodes;
+    }
+}
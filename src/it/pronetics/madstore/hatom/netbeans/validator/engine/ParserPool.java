@@ -0,0 +1,350 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+/**
+ * Provides the XML parsers used by <code>XMLUtils</code>.<br>
+ *
+ * Looking up the parser factories and creating a parser costs more than parsing a small document, so each
+ * thread keeps its own SAX parser and DOM builder: they are created on first use and reset after each use,
+ * so the setup cost is paid once per thread. A parser that is acquired again by the same thread before being
+ * released, or that does not support <code>reset()</code>, is not reused.<br>
+ *
+ * SAX parser features can be set with <code>setFeature</code>; parsers created before the change are
+ * discarded on their next use.<br>
+ * All the methods are thread safe.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public class ParserPool {
+
+    /**
+     * Parsers of a single thread.<br>
+     */
+    private static class Slot {
+
+        // SAX parser of the thread
+        SAXParser parser;
+
+        // Feature generation of the parser
+        int parserGeneration;
+
+        // True while the parser is in use
+        boolean parserBusy;
+
+        // DOM builder of the thread
+        DocumentBuilder builder;
+
+        // True while the builder is in use
+        boolean builderBusy;
+    }
+
+    // Unique instance of the pool.
+    private static ParserPool instance;
+
+    // SAX parser features, by name
+    private Map<String, Boolean> features = new LinkedHashMap<String, Boolean>();
+
+    // Incremented whenever the features change
+    private int generation;
+
+    // Factories, created on first use
+    private SAXParserFactory parserFactory;
+    private DocumentBuilderFactory builderFactory;
+
+    // Parsers of each thread
+    private final ThreadLocal<Slot> slots = new ThreadLocal<Slot>() {
+
+        @Override
+        protected Slot initialValue() {
+            return new Slot();
+        }
+    };
+
+    // Pool statistics
+    private long createCount;
+    private long reuseCount;
+
+    // Creates the pool, with no features set
+    private ParserPool() {
+    }
+
+    /**
+     * Instance's access method.<br>
+     * @return the parser pool
+     */
+    public static synchronized ParserPool getInstance() {
+        if (instance == null) {
+            instance = new ParserPool();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Sets a feature of the SAX parsers, as in <code>SAXParserFactory.setFeature</code>.<br>
+     *
+     * @param name the feature name
+     * @param value the feature value
+     * @throws IllegalArgumentException if the parser does not support the feature
+     */
+    public synchronized void setFeature(String name, boolean value) {
+
+        Map<String, Boolean> newFeatures = new LinkedHashMap<String, Boolean>(features);
+        newFeatures.put(name, Boolean.valueOf(value));
+
+        try {
+            parserFactory = createParserFactory(newFeatures);
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("Unsupported parser feature " + name + ": " + ex.getMessage(), ex);
+        }
+
+        features = newFeatures;
+        generation++;
+    }
+
+    /**
+     * Returns the value of a feature set with <code>setFeature</code>.<br>
+     *
+     * @param name the feature name
+     * @return the feature value, or <code>null</code> if the feature has not been set
+     */
+    public synchronized Boolean getFeature(String name) {
+        return features.get(name);
+    }
+
+    /**
+     * Removes all the features set with <code>setFeature</code>, restoring the parser defaults.<br>
+     */
+    public synchronized void clearFeatures() {
+        features = new LinkedHashMap<String, Boolean>();
+        parserFactory = null;
+        generation++;
+    }
+
+    /**
+     * Returns the SAX parser of the current thread, creating it if needed.<br>
+     * The parser must be given back with <code>releaseParser</code> when the parsing is over.<br>
+     *
+     * @return a SAX parser
+     * @throws IOException if the parser cannot be created
+     */
+    public SAXParser acquireParser() throws IOException {
+
+        Slot slot = slots.get();
+
+        if (slot.parserBusy) {
+            return newParser(null);
+        }
+
+        if (slot.parser == null || !reuse(slot.parserGeneration)) {
+            slot.parser = newParser(slot);
+        }
+
+        slot.parserBusy = true;
+        return slot.parser;
+    }
+
+    /**
+     * Resets a parser returned by <code>acquireParser</code>, so that it can be used again by the current thread.<br>
+     * @param parser the parser
+     */
+    public void releaseParser(SAXParser parser) {
+
+        Slot slot = slots.get();
+
+        if (parser != slot.parser) {
+            return;
+        }
+
+        slot.parserBusy = false;
+
+        try {
+            parser.reset();
+        } catch (UnsupportedOperationException ex) {
+            slot.parser = null;
+        }
+    }
+
+    /**
+     * Returns the DOM builder of the current thread, creating it if needed.<br>
+     * The builder must be given back with <code>releaseBuilder</code> when it is no longer used.<br>
+     *
+     * @return a DOM builder
+     * @throws IOException if the builder cannot be created
+     */
+    public DocumentBuilder acquireBuilder() throws IOException {
+
+        Slot slot = slots.get();
+
+        if (slot.builderBusy) {
+            return newBuilder();
+        }
+
+        if (slot.builder == null) {
+            slot.builder = newBuilder();
+        } else {
+            countReuse();
+        }
+
+        slot.builderBusy = true;
+        return slot.builder;
+    }
+
+    /**
+     * Resets a builder returned by <code>acquireBuilder</code>, so that it can be used again by the current thread.<br>
+     * @param builder the builder
+     */
+    public void releaseBuilder(DocumentBuilder builder) {
+
+        Slot slot = slots.get();
+
+        if (builder != slot.builder) {
+            return;
+        }
+
+        slot.builderBusy = false;
+
+        try {
+            builder.reset();
+        } catch (UnsupportedOperationException ex) {
+            slot.builder = null;
+        }
+    }
+
+    /**
+     * Creates an empty DOM document with the builder of the current thread.<br>
+     * @return a new document
+     * @throws IOException if the builder cannot be created
+     */
+    public Document newDocument() throws IOException {
+
+        DocumentBuilder builder = acquireBuilder();
+
+        try {
+            return builder.newDocument();
+        } finally {
+            releaseBuilder(builder);
+        }
+    }
+
+    /**
+     * @return the number of parsers and builders created by the pool
+     */
+    public synchronized long getCreateCount() {
+        return createCount;
+    }
+
+    /**
+     * @return the number of times a parser or builder has been used again
+     */
+    public synchronized long getReuseCount() {
+        return reuseCount;
+    }
+
+    /**
+     * Creates a new SAX parser, with the current features.<br>
+     * Factories are not thread safe, so parsers are created while holding the pool lock.<br>
+     *
+     * @param slot slot that will cache the parser, or <code>null</code>
+     */
+    private synchronized SAXParser newParser(Slot slot) throws IOException {
+
+        try {
+            if (parserFactory == null) {
+                parserFactory = createParserFactory(features);
+            }
+
+            SAXParser parser = parserFactory.newSAXParser();
+            createCount++;
+
+            if (slot != null) {
+                slot.parserGeneration = generation;
+            }
+
+            return parser;
+        } catch (ParserConfigurationException e) {
+            throw new IOException(e.getMessage());
+        } catch (SAXException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    /**
+     * Creates a new DOM builder.<br>
+     */
+    private synchronized DocumentBuilder newBuilder() throws IOException {
+
+        try {
+            if (builderFactory == null) {
+                builderFactory = DocumentBuilderFactory.newInstance();
+            }
+
+            DocumentBuilder builder = builderFactory.newDocumentBuilder();
+            createCount++;
+
+            return builder;
+        } catch (ParserConfigurationException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    /**
+     * Creates a non validating SAX parser factory with the given features.<br>
+     */
+    private static SAXParserFactory createParserFactory(Map<String, Boolean> features) throws ParserConfigurationException, SAXException {
+
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setValidating(false);
+
+        for (Map.Entry<String, Boolean> feature : features.entrySet()) {
+            factory.setFeature(feature.getKey(), feature.getValue().booleanValue());
+        }
+
+        return factory;
+    }
+
+    /**
+     * Counts the reuse of a parser, unless it has been created with older features.<br>
+     */
+    private synchronized boolean reuse(int parserGeneration) {
+
+        if (parserGeneration != generation) {
+            return false;
+        }
+
+        reuseCount++;
+        return true;
+    }
+
+    private synchronized void countReuse() {
+        reuseCount++;
+    }
+}
@@ -16,8 +16,7 @@
 
 package it.pronetics.madstore.hatom.netbeans.validator.engine;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
 import org.w3c.dom.Attr;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
@@ -25,11 +24,36 @@ import org.w3c.dom.Node;
 /**
  * Contains info about a validation error, including the node where it is occurred,
  * an error message and complete node path.<br>
+ * When a document is validated without building a DOM (streaming validation), the report
+ * references an <code>ElementInfo</code> instead of a node.<br>
+ * Reports are kept small, since a validation may produce thousands of them: the rule id is interned,
+ * and the node path is computed only when it is requested. Once the validation is over, the engine
+ * detaches the reports from the DOM (see <code>detach</code>), so that the parsed document can be
+ * garbage collected.<br>
+ * When the parser has provided it, the report also holds the position of the node in the validated
+ * source (see <code>SourcePosition</code>), so the error can be located without searching the text.<br>
  * 
  * @author Andrea Castello
- * @version 1.2
+ * @version 1.7
  */
 public class Report {
+
+    // Rule ids, identifying the check that has produced a report
+    public static final String RULE_ERROR = "error";
+    public static final String RULE_NESTED_KEYWORD = "nested-keyword";
+    public static final String RULE_INVALID_POSITION = "invalid-position";
+    public static final String RULE_INVALID_ATTRIBUTE = "invalid-attribute";
+    public static final String RULE_MISSING_CHILD = "missing-child";
+    public static final String RULE_EMPTY_KEY = "empty-key";
+    public static final String RULE_DUPLICATE_KEY = "duplicate-key";
+    public static final String RULE_DUPLICATE_KEY_VALUE = "duplicate-key-value";
+    public static final String RULE_KEY_POSITION = "key-position";
+    public static final String RULE_DATETIME_TAG = "datetime-tag";
+    public static final String RULE_DATETIME_FORMAT = "datetime-format";
+    public static final String RULE_AUTHOR_FN = "author-fn";
+
+    // Empty attribute list of the ancestors of detached nodes
+    private static final String[] NO_ATTRIBUTES = new String[0];
     
     /**
      * Creates a new empty instance fo Report.<br>
@@ -42,26 +66,90 @@ public class Report {
      * @param node
      */
     public Report(String message, Node node){
+        this(null, message, node);
+    }
+
+    /**
+     * Creates a report of the given rule, for the given node and with the given message.<br>
+     * @param ruleId id of the rule that has produced the report
+     * @param message
+     * @param node
+     */
+    public Report(String ruleId, String message, Node node){
+        setRuleId(ruleId);
         this.message = message;
         this.node = node;
     }
 
+    /**
+     * Creates a report for the given element and with the given message.<br>
+     * Used when no DOM node is available.<br>
+     * @param message
+     * @param element
+     */
+    public Report(String message, ElementInfo element){
+        this(null, message, element);
+    }
+
+    /**
+     * Creates a report of the given rule, for the given element and with the given message.<br>
+     * Used when no DOM node is available.<br>
+     * @param ruleId id of the rule that has produced the report
+     * @param message
+     * @param element
+     */
+    public Report(String ruleId, String message, ElementInfo element){
+        setRuleId(ruleId);
+        this.message = message;
+        this.element = element;
+    }
+
     // Node that has been analyzed
     private Node node;
+
+    // Element that has been analyzed, when no DOM node is available
+    private ElementInfo element;
+
+    // Id of the rule that has produced the report, interned
+    private String ruleId;
     
     // Report Message
     private String message = "";
     
-    // Path from root to node
-    private String nodePath = "";
+    // Path from root to node, computed on first use
+    private String nodePath;
+
+    // Position of the node in the validated source; read from the node or the element on first use
+    private SourcePosition position;
 
     public Node getNode() {
         return node;
     }
 
+    public ElementInfo getElement() {
+        return element;
+    }
+
     public void setNode(Node node) {
         this.node = node;
-        extractPath();
+        this.nodePath = null;
+        this.position = null;
+    }
+
+    /**
+     * @return the id of the rule that has produced the report, <code>null</code> if unknown
+     */
+    public String getRuleId() {
+        return ruleId;
+    }
+
+    /**
+     * Sets the id of the rule that has produced the report.<br>
+     * Ids are interned, so they can be compared by reference.<br>
+     * @param ruleId the rule id
+     */
+    public void setRuleId(String ruleId) {
+        this.ruleId = (ruleId != null) ? ruleId.intern() : null;
     }
 
     public String getMessage() {
@@ -72,41 +160,161 @@ public class Report {
         this.message = message;
     }
 
+    /**
+     * Returns the position of the reported node in the validated source.<br>
+     * Positions of DOM nodes are read from the node's user data (see <code>XMLUtils.POSITION</code>).<br>
+     * @return the node position, or <code>null</code> if unknown
+     */
+    public SourcePosition getPosition() {
+
+        if (position == null) {
+            if (node != null) {
+                Object data = node.getUserData(XMLUtils.POSITION);
+                position = (data instanceof SourcePosition) ? (SourcePosition) data : null;
+            } else if (element != null) {
+                position = element.getPosition();
+            }
+        }
+
+        return position;
+    }
+
+    /**
+     * @param position the position of the reported node in the validated source
+     */
+    public void setPosition(SourcePosition position) {
+        this.position = position;
+    }
+
+    /**
+     * @return the line of the reported node, starting from 1, or -1 if unknown
+     */
+    public int getLine() {
+        SourcePosition pos = getPosition();
+        return (pos != null) ? pos.getLine() : -1;
+    }
+
+    /**
+     * @return the column of the reported node, starting from 1, or -1 if unknown
+     */
+    public int getColumn() {
+        SourcePosition pos = getPosition();
+        return (pos != null) ? pos.getColumn() : -1;
+    }
+
+    /**
+     * @return the offset of the reported node in the validated source, or -1 if unknown
+     */
+    public int getOffset() {
+        SourcePosition pos = getPosition();
+        return (pos != null) ? pos.getOffset() : -1;
+    }
+
+    /**
+     * Returns the path from the document root to the reported node, in the form
+     * <code>#document &gt; html &gt; body &gt; div</code>.<br>
+     * The path is built on first use.<br>
+     * @return the node path, or an empty string if the report has no node
+     */
     public String getNodePath() {
+
+        if (nodePath == null) {
+            if (node != null) {
+                nodePath = extractPath(node);
+            } else if (element != null) {
+                nodePath = element.getPath();
+            } else {
+                return "";
+            }
+        }
+
         return nodePath;
     }
-    
-    private void setNodePath(String path) {
-        this.nodePath = path;
+
+    /**
+     * Replaces the reported DOM node with an <code>ElementInfo</code> holding its name, its attributes and
+     * the names of its ancestors, so that the report no longer references the DOM. The node position is kept.<br>
+     * Ancestors are shared between the reports detached with the same map.<br>
+     *
+     * @param ancestors element views of the ancestors of the already detached nodes
+     */
+    void detach(Map<Node, SaxElementInfo> ancestors) {
+
+        if (node == null) {
+            return;
+        }
+
+        getPosition();
+
+        Node parent = node.getParentNode();
+
+        if (node.getNodeType() == Node.ELEMENT_NODE && isInDocument(parent)) {
+            NamedNodeMap attrMap = node.getAttributes();
+            int length = (attrMap != null) ? attrMap.getLength() : 0;
+
+            String[] attrNames = new String[length];
+            String[] attrValues = new String[length];
+
+            for (int i = 0; i < length; i++) {
+                attrNames[i] = attrMap.item(i).getNodeName();
+                attrValues[i] = attrMap.item(i).getNodeValue();
+            }
+
+            element = new SaxElementInfo(node.getNodeName(), attrNames, attrValues, getAncestor(parent, ancestors));
+        } else {
+            // Not an element of a document: the path cannot be rebuilt from an ElementInfo
+            getNodePath();
+        }
+
+        node = null;
     }
 
-    private void extractPath() {
-        
-        List<String> pathNames = new ArrayList<String>();
-        
-        Node temp;
-        
-        if (getNode()!=null){
-            
-            pathNames.add(getNode().getNodeName());
-            
-            temp = getNode();
-            
-            while( (temp = temp.getParentNode() )!=null){
-                pathNames.add(temp.getNodeName());
+    /**
+     * @return the view of the given ancestor node, with no attributes
+     */
+    private static SaxElementInfo getAncestor(Node node, Map<Node, SaxElementInfo> ancestors) {
+
+        if (node.getNodeType() == Node.DOCUMENT_NODE) {
+            return null;
+        }
+
+        SaxElementInfo info = ancestors.get(node);
+
+        if (info == null) {
+            info = new SaxElementInfo(node.getNodeName(), NO_ATTRIBUTES, NO_ATTRIBUTES, getAncestor(node.getParentNode(), ancestors));
+            ancestors.put(node, info);
+        }
+
+        return info;
+    }
+
+    /**
+     * Check whether the given node is a document or an element whose ancestors are all elements,
+     * up to the document.<br>
+     */
+    private static boolean isInDocument(Node node) {
+
+        for (Node temp = node; temp != null; temp = temp.getParentNode()) {
+            if (temp.getNodeType() == Node.DOCUMENT_NODE) {
+                return true;
             }
-            
-            StringBuffer buf = new StringBuffer();
-            
-            for(int i = pathNames.size() -1; i>=0; i--){
-                buf.append(pathNames.get(i));
-                if (i!=0){
-                    buf.append(" > ");
-                }
+            if (temp.getNodeType() != Node.ELEMENT_NODE) {
+                return false;
             }
-            
-            setNodePath(buf.toString());
         }
+
+        return false;
+    }
+
+    private static String extractPath(Node node) {
+
+        StringBuffer buf = new StringBuffer(node.getNodeName());
+
+        for (Node temp = node.getParentNode(); temp != null; temp = temp.getParentNode()) {
+            buf.insert(0, " > ").insert(0, temp.getNodeName());
+        }
+
+        return buf.toString();
     }
     
     private String getStringNode(){
@@ -130,6 +338,20 @@ public class Report {
             
             buf.append(">");
         }
+        else if (element!=null){
+            buf.append("<");
+            buf.append(element.getName());
+            buf.append(" ");
+
+            for (int i = 0; i < element.getAttributeCount(); i++) {
+                buf.append(element.getAttributeName(i));
+                buf.append("=\"");
+                buf.append(element.getAttributeValue(i));
+                buf.append("\" ");
+            }
+
+            buf.append(">");
+        }
         
         return buf.toString();
     }
@@ -143,6 +365,10 @@ public class Report {
             buf.append("Node name: "+getNode().getNodeName()+"\n");
             buf.append("Node path: "+getNodePath()+"\n");
         }
+        else if (getElement()!=null){
+            buf.append("Node name: "+getElement().getName()+"\n");
+            buf.append("Node path: "+getNodePath()+"\n");
+        }
         
         buf.append(getStringNode()+" \n");
         
@@ -152,15 +378,14 @@ public class Report {
     }
     
     /**
-     * Add a simple error report to the validator engine for the given document.<br>
-     * The report will only be a user readable error message.<br>
-     * @param documentName Name of the document (used to retrieve the proper validation enegine).
+     * Add a simple error report to the given validator engine.<br>
+     * @param engine the validation engine
      * @param message Error message
      */
-    public static void addErrorReport(String documentName, String message){
+    public static void addErrorReport(ValidatorEngine engine, String message){
         Report report = new Report();
+        report.setRuleId(RULE_ERROR);
         report.setMessage(message);
-        ValidatorEngine engine = ValidatorCache.getInstance().getEngine(documentName);
         engine.addReport(report);
     }
 }
\ No newline at end of file
@@ -0,0 +1,433 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.Analyzer.KEYWORD_HENTRY;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.Analyzer.KEYWORD_HFEED;
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorEngine.ATTR_CLASS;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State of a single pass validation.<br>
+ * It receives the start and end events of every element in document order, resolves the hfeed and
+ * hentry scope of each element and dispatches it to all the validation rules.<br>
+ *
+ * Since the hfeed layout of the page is not known until the whole document has been read, reports that
+ * depend on it are buffered: reports produced assuming the page is the hfeed are kept until the first
+ * hfeed is found, and reports about keywords outside any hfeed until the first hfeed shows up. Duplicate
+ * feed-key values are only reported when the document has more than one hfeed, as the multi pass
+ * HfeedAnalyzer does.<br>
+ *
+ * The state of the context just before a hentry is opened can be saved as an <code>EntryState</code>, so that
+ * the hentry can be validated again on its own (see <code>IncrementalValidator</code>).<br>
+ *
+ * @author Andrea Castello
+ * @version 1.2
+ */
+public class RuleContext {
+
+    /**
+     * State of a hfeed, which can also be the whole page.<br>
+     */
+    public static class FeedScope {
+
+        // Element that holds the hfeed keyword, or the document root for a page hfeed
+        final ElementFrame root;
+
+        // True if no hfeed keyword has been found, so the hfeed is the page itself
+        final boolean page;
+
+        // True if the hfeed node is also a hentry node
+        final boolean hentry;
+
+        // True when the feed-key has been found
+        boolean feedKeyFound;
+
+        // True after a feed-key or a hentry has been found, so feed-key position has been checked
+        boolean feedKeyPositionChecked;
+
+        // Values of the entry-key keywords found in this hfeed
+        final List<String> entryKeyValues = new ArrayList<String>();
+
+        // Currently open hentry
+        EntryScope entry;
+
+        // True when the page hfeed has been dropped because a hfeed keyword has been found
+        boolean discarded;
+
+        FeedScope(ElementFrame root, boolean page) {
+            this.root = root;
+            this.page = page;
+            this.hentry = root.info.matches(ATTR_CLASS, KEYWORD_HENTRY);
+        }
+
+        // Copy of the given scope, keeping only the first entryKeyCount entry-key values
+        FeedScope(FeedScope scope, int entryKeyCount) {
+            this.root = scope.root;
+            this.page = scope.page;
+            this.hentry = scope.hentry;
+            this.entryKeyValues.addAll(scope.entryKeyValues.subList(0, entryKeyCount));
+            this.discarded = scope.discarded;
+        }
+    }
+
+    /**
+     * State of a hentry.<br>
+     */
+    public static class EntryScope {
+
+        // Element that holds the hentry keyword
+        final ElementFrame root;
+
+        // Mandatory keywords that have been found, indexed as HentryAnalyzer.MANDATORY_KEYWORDS
+        final boolean[] mandatoryFound = new boolean[HentryAnalyzer.MANDATORY_KEYWORDS.length];
+
+        // True when the entry-key has been found
+        boolean entryKeyFound;
+
+        // Number of hentry children keywords, bound to class and rel attributes, matched by the open elements
+        int classKeywords;
+        int relKeywords;
+
+        EntryScope(ElementFrame root) {
+            this.root = root;
+        }
+    }
+
+    /**
+     * State of the context saved before a hentry of a hfeed element is opened, or after it is closed.<br>
+     * Lists are not copied: since values are only appended to them, the saved sizes are enough to
+     * tell which values have been added in between.<br>
+     */
+    public static class EntryState {
+
+        // Frame of the parent of the hentry element
+        final ElementFrame parent;
+
+        // The hfeed scope and its state
+        final FeedScope feed;
+        final boolean feedKeyFound;
+        final boolean feedKeyPositionChecked;
+        final int entryKeyCount;
+
+        // Document level state
+        final int feedCount;
+        final List<String> feedKeyValues;
+        final int feedKeyCount;
+        final int multiFeedReportCount;
+
+        EntryState(RuleContext context) {
+            this.parent = context.current;
+            this.feed = context.feedScope;
+            this.feedKeyFound = feed.feedKeyFound;
+            this.feedKeyPositionChecked = feed.feedKeyPositionChecked;
+            this.entryKeyCount = feed.entryKeyValues.size();
+            this.feedCount = context.feedCount;
+            this.feedKeyValues = context.feedKeyValues;
+            this.feedKeyCount = feedKeyValues.size();
+            this.multiFeedReportCount = context.multiFeedReports.size();
+        }
+
+        /**
+         * @return the element that contains the hentry
+         */
+        public ElementFrame getParent() {
+            return parent;
+        }
+    }
+
+    // Engine that collects the reports
+    private ValidatorEngine engine;
+
+    // Rules each element is dispatched to
+    private ElementRule[] rules;
+
+    // Frame of the currently visited element
+    private ElementFrame current;
+
+    // hfeed scope for the page, until a hfeed keyword is found
+    private FeedScope pageScope;
+
+    // Currently open hfeed
+    private FeedScope feedScope;
+
+    // Number of (not nested) hfeed elements found so far
+    private int feedCount;
+
+    // Values of the feed-key keywords found in the whole document
+    private List<String> feedKeyValues = new ArrayList<String>();
+
+    // Reports produced while assuming the page is the hfeed
+    private List<Report> pageReports = new ArrayList<Report>();
+
+    // Reports about keywords outside any hfeed, produced before the first hfeed is found
+    private List<Report> outsideFeedReports = new ArrayList<Report>();
+
+    // Reports that are valid only if the document contains more than one hfeed
+    private List<Report> multiFeedReports = new ArrayList<Report>();
+
+    /**
+     * Creates a new context that adds reports to the given engine, using the default rule set.<br>
+     * @param engine the validation engine
+     */
+    public RuleContext(ValidatorEngine engine) {
+        this(engine, new ElementRule[]{ new FeedRule(), new HentryRule(), new HentryChildRule(), new UnmatchingNodeRule() });
+    }
+
+    /**
+     * Creates a new context that adds reports to the given engine.<br>
+     * @param engine the validation engine
+     * @param rules the rules every element is dispatched to
+     */
+    public RuleContext(ValidatorEngine engine, ElementRule[] rules) {
+        this.engine = engine;
+        this.rules = rules;
+    }
+
+    /**
+     * Creates a new context, using the default rule set, restored to the given state saved just before
+     * a hentry was opened. The hentry can then be validated again by sending its events to this context.<br>
+     * Reports that depend on the rest of the document are not available to the restored context,
+     * so <code>endDocument</code> should not be called on it.<br>
+     *
+     * @param engine the validation engine
+     * @param state the saved state
+     */
+    public RuleContext(ValidatorEngine engine, EntryState state) {
+        this(engine);
+
+        this.current = state.parent;
+        this.feedScope = new FeedScope(state.feed, state.entryKeyCount);
+        this.feedScope.feedKeyFound = state.feedKeyFound;
+        this.feedScope.feedKeyPositionChecked = state.feedKeyPositionChecked;
+        this.feedCount = state.feedCount;
+        this.feedKeyValues.addAll(state.feedKeyValues.subList(0, state.feedKeyCount));
+    }
+
+    /**
+     * Receives the start of an element, resolves its scope and dispatches it to the rules.<br>
+     * @param info the element
+     * @throws ValidationCancelledException if the engine has been cancelled
+     */
+    public void startElement(ElementInfo info) {
+
+        engine.checkCancelled();
+
+        ElementFrame frame = new ElementFrame(info, current);
+
+        if (feedScope == null && info.matches(ATTR_CLASS, KEYWORD_HFEED)) {
+            openFeed(frame);
+        } else if (current == null && feedCount == 0) {
+            // Document root: until a hfeed is found, the hfeed is the page itself
+            pageScope = new FeedScope(frame, true);
+        }
+
+        frame.feed = (feedScope != null) ? feedScope : pageScope;
+
+        if (frame.feed != null) {
+            FeedScope feed = frame.feed;
+
+            if (feed.entry == null && isEntryRoot(frame, feed)) {
+                feed.entry = new EntryScope(frame);
+            }
+            frame.entry = feed.entry;
+        }
+
+        current = frame;
+
+        for (int i = 0; i < rules.length; i++) {
+            rules[i].startElement(frame, this);
+        }
+    }
+
+    /**
+     * Receives the end of the current element and dispatches it to the rules.<br>
+     */
+    public void endElement() {
+
+        ElementFrame frame = current;
+
+        for (int i = 0; i < rules.length; i++) {
+            rules[i].endElement(frame, this);
+        }
+
+        if (frame.isEntryRoot()) {
+            frame.feed.entry = null;
+        }
+
+        if (frame.feed == feedScope && frame.isFeedRoot()) {
+            feedScope = null;
+        }
+
+        current = frame.parent;
+    }
+
+    /**
+     * Completes validation, adding to the engine the reports that depend on the hfeed layout of the page.<br>
+     */
+    public void endDocument() {
+
+        if (feedCount == 0) {
+            addAll(pageReports);
+        } else if (feedCount > 1) {
+            addAll(multiFeedReports);
+        }
+
+        pageReports = null;
+        outsideFeedReports = null;
+        multiFeedReports = null;
+    }
+
+    /**
+     * Adds a report produced inside the hfeed scope of the given element.<br>
+     * @param frame element the report belongs to
+     * @param report the report
+     */
+    public void addReport(ElementFrame frame, Report report) {
+
+        FeedScope feed = frame.feed;
+
+        if (feed != null && feed.page) {
+            if (!feed.discarded) {
+                pageReports.add(report);
+            }
+        } else {
+            engine.addReport(report);
+        }
+    }
+
+    /**
+     * Adds a report about an hAtom keyword found outside any hfeed. It is discarded if the document
+     * turns out to have no hfeed.<br>
+     * @param report the report
+     */
+    public void addOutsideFeedReport(Report report) {
+        if (feedCount == 0) {
+            outsideFeedReports.add(report);
+        } else {
+            engine.addReport(report);
+        }
+    }
+
+    /**
+     * Adds a report that is valid only if the document contains more than one hfeed.<br>
+     * @param report the report
+     */
+    public void addMultiFeedReport(Report report) {
+        multiFeedReports.add(report);
+    }
+
+    /**
+     * Returns the feed-key values found in the whole document.<br>
+     * @return list of feed-key values
+     */
+    public List<String> getFeedKeyValues() {
+        return feedKeyValues;
+    }
+
+    /**
+     * Checks whether the given element, if started now, would open a hentry inside a hfeed element.<br>
+     * Hentries of a page hfeed and hfeed nodes that are also hentry nodes are not considered.<br>
+     *
+     * @param info the element
+     * @return <code>true</code> if the element is a hentry of the currently open hfeed element
+     */
+    public boolean opensFeedEntry(ElementInfo info) {
+        return feedScope != null && !feedScope.hentry && feedScope.entry == null && info.matches(ATTR_CLASS, KEYWORD_HENTRY);
+    }
+
+    /**
+     * Saves the state of the context. It must be called inside a hfeed element, when no hentry is open.<br>
+     * @return the saved state
+     */
+    public EntryState getEntryState() {
+        return new EntryState(this);
+    }
+
+    /**
+     * Checks whether validating a hentry again has the same effects on the rest of the document as the
+     * first validation.<br>
+     *
+     * @param before state saved before the hentry was first validated
+     * @param after state saved after the hentry was first validated
+     * @param revalidated state saved after the hentry was validated again, starting from <code>before</code>
+     * @return <code>true</code> if the hfeed and document states are the same, and no report depending on the
+     * rest of the document has been produced
+     */
+    public static boolean sameEffects(EntryState before, EntryState after, EntryState revalidated) {
+
+        return after.feedKeyFound == revalidated.feedKeyFound
+                && after.feedKeyPositionChecked == revalidated.feedKeyPositionChecked
+                && after.feedCount == revalidated.feedCount
+                && after.multiFeedReportCount == before.multiFeedReportCount
+                && revalidated.multiFeedReportCount == 0
+                && after.feed.entryKeyValues.subList(before.entryKeyCount, after.entryKeyCount).equals(
+                        revalidated.feed.entryKeyValues.subList(before.entryKeyCount, revalidated.entryKeyCount))
+                && after.feedKeyValues.subList(before.feedKeyCount, after.feedKeyCount).equals(
+                        revalidated.feedKeyValues.subList(before.feedKeyCount, revalidated.feedKeyCount));
+    }
+
+    /**
+     * @return <code>true</code> if the currently visited element is outside any hfeed
+     */
+    public boolean isOutsideFeed() {
+        return feedScope == null;
+    }
+
+    /**
+     * Opens a new hfeed scope. The first hfeed drops all the reports produced assuming the page was the hfeed.<br>
+     * @param frame hfeed element
+     */
+    private void openFeed(ElementFrame frame) {
+
+        feedCount++;
+
+        if (feedCount == 1) {
+
+            if (pageScope != null) {
+                pageScope.discarded = true;
+                pageScope = null;
+            }
+            pageReports.clear();
+
+            addAll(outsideFeedReports);
+            outsideFeedReports.clear();
+        }
+
+        feedScope = new FeedScope(frame, false);
+    }
+
+    /**
+     * Checks whether the given element is the root of a hentry: it may be the hfeed node itself if
+     * it is also a hentry, otherwise any hentry under the hfeed.<br>
+     */
+    private boolean isEntryRoot(ElementFrame frame, FeedScope feed) {
+        if (feed.hentry) {
+            return feed.root == frame;
+        }
+
+        return feed.root != frame && frame.info.matches(ATTR_CLASS, KEYWORD_HENTRY);
+    }
+
+    private void addAll(List<Report> reports) {
+        for (Report report : reports) {
+            engine.addReport(report);
+        }
+    }
+}
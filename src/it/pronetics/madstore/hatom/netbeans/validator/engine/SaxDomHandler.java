@@ -0,0 +1,171 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import org.w3c.dom.CDATASection;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * SAX handler that builds a DOM document, recording the source position of each element.<br>
+ * The document has the same nodes built by a non validating, not namespace aware
+ * <code>DocumentBuilder</code> that ignores element content whitespace; in addition, each element
+ * holds its <code>SourcePosition</code> as user data, with key <code>XMLUtils.POSITION</code>.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public class SaxDomHandler extends DefaultHandler implements LexicalHandler {
+
+    // Document being built
+    private Document document;
+
+    // Node that receives the next children
+    private Node current;
+
+    // Current parser position, null if the parser does not provide it
+    private Locator locator;
+
+    // Characters of the text node being read
+    private StringBuilder text = new StringBuilder();
+
+    // CDATA section being read, null outside CDATA sections
+    private CDATASection cdata;
+
+    // True while the DTD is being read: its comments and processing instructions are not document nodes
+    private boolean inDTD;
+
+    /**
+     * Creates a new handler.<br>
+     * @param document the empty document to be filled
+     */
+    public SaxDomHandler(Document document) {
+        this.document = document;
+        this.current = document;
+    }
+
+    /**
+     * @return the document
+     */
+    public Document getDocument() {
+        return document;
+    }
+
+    @Override
+    public void setDocumentLocator(Locator locator) {
+        this.locator = locator;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+
+        flushText();
+
+        Element element = document.createElement(qName);
+        int length = attributes.getLength();
+
+        for (int i = 0; i < length; i++) {
+            element.setAttribute(attributes.getQName(i), attributes.getValue(i));
+        }
+
+        if (locator != null) {
+            element.setUserData(XMLUtils.POSITION, new SourcePosition(locator.getLineNumber(), locator.getColumnNumber(), -1), null);
+        }
+
+        current.appendChild(element);
+        current = element;
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        flushText();
+        current = current.getParentNode();
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+
+        if (cdata != null) {
+            cdata.appendData(new String(ch, start, length));
+        } else {
+            text.append(ch, start, length);
+        }
+    }
+
+    @Override
+    public void processingInstruction(String target, String data) {
+
+        if (!inDTD) {
+            flushText();
+            current.appendChild(document.createProcessingInstruction(target, data));
+        }
+    }
+
+    @Override
+    public void endDocument() {
+        flushText();
+    }
+
+    public void startDTD(String name, String publicId, String systemId) {
+        inDTD = true;
+        document.appendChild(document.getImplementation().createDocumentType(name, publicId, systemId));
+    }
+
+    public void endDTD() {
+        inDTD = false;
+    }
+
+    public void startEntity(String name) {
+    }
+
+    public void endEntity(String name) {
+    }
+
+    public void startCDATA() {
+        flushText();
+        cdata = document.createCDATASection("");
+        current.appendChild(cdata);
+    }
+
+    public void endCDATA() {
+        cdata = null;
+    }
+
+    public void comment(char[] ch, int start, int length) {
+
+        if (!inDTD) {
+            flushText();
+            current.appendChild(document.createComment(new String(ch, start, length)));
+        }
+    }
+
+    /**
+     * Appends the characters read so far as a text node of the current node.<br>
+     */
+    private void flushText() {
+
+        if (text.length() > 0) {
+            current.appendChild(document.createTextNode(text.toString()));
+            text.setLength(0);
+        }
+    }
+}
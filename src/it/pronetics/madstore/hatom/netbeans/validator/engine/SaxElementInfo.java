@@ -0,0 +1,147 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import org.xml.sax.Attributes;
+
+/**
+ * ElementInfo implementation built from SAX events.<br>
+ * Since SAX parsers reuse their <code>Attributes</code> objects, attribute names and values are copied
+ * when the element is created. Each element keeps a reference to its parent, so that the element path
+ * can be rebuilt without a DOM tree.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.2
+ */
+public class SaxElementInfo extends ElementInfo {
+
+    // Name of the root of every path, as for DOM documents
+    private static final String DOCUMENT_NAME = "#document";
+
+    // Element tag name
+    private String name;
+
+    // Attribute names and values, in document order
+    private String[] attrNames;
+    private String[] attrValues;
+
+    // Enclosing element, null for the root element
+    private SaxElementInfo parent;
+
+    // Position of the element in the parsed source, null if unknown
+    private SourcePosition position;
+
+    /**
+     * Creates a new element from the given SAX start element data.<br>
+     *
+     * @param name the element qualified name
+     * @param attributes the element attributes
+     * @param parent the enclosing element, or <code>null</code> for the root element
+     */
+    public SaxElementInfo(String name, Attributes attributes, SaxElementInfo parent) {
+
+        this.name = name;
+        this.parent = parent;
+
+        int length = (attributes != null) ? attributes.getLength() : 0;
+
+        attrNames = new String[length];
+        attrValues = new String[length];
+
+        for (int i = 0; i < length; i++) {
+            attrNames[i] = attributes.getQName(i);
+            attrValues[i] = attributes.getValue(i);
+        }
+    }
+
+    /**
+     * Creates a new element with the given attributes.<br>
+     * The arrays are not copied.<br>
+     *
+     * @param name the element qualified name
+     * @param attrNames the attribute names
+     * @param attrValues the attribute values, in the same order of the names
+     * @param parent the enclosing element, or <code>null</code> for the root element
+     */
+    SaxElementInfo(String name, String[] attrNames, String[] attrValues, SaxElementInfo parent) {
+        this.name = name;
+        this.attrNames = attrNames;
+        this.attrValues = attrValues;
+        this.parent = parent;
+    }
+
+    /**
+     * @return the enclosing element, or <code>null</code> for the root element
+     */
+    public SaxElementInfo getParent() {
+        return parent;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getAttribute(String attrName) {
+
+        for (int i = 0; i < attrNames.length; i++) {
+            if (attrNames[i].equals(attrName)) {
+                return attrValues[i];
+            }
+        }
+
+        return "";
+    }
+
+    public int getAttributeCount() {
+        return attrNames.length;
+    }
+
+    public String getAttributeName(int index) {
+        return attrNames[index];
+    }
+
+    public String getAttributeValue(int index) {
+        return attrValues[index];
+    }
+
+    public String getPath() {
+
+        StringBuffer buf = new StringBuffer(name);
+
+        for (SaxElementInfo temp = parent; temp != null; temp = temp.parent) {
+            buf.insert(0, " > ").insert(0, temp.name);
+        }
+        buf.insert(0, " > ").insert(0, DOCUMENT_NAME);
+
+        return buf.toString();
+    }
+
+    public SourcePosition getPosition() {
+        return position;
+    }
+
+    /**
+     * @param position the position of the element in the parsed source
+     */
+    void setPosition(SourcePosition position) {
+        this.position = position;
+    }
+
+    public Report createReport(String ruleId, String message) {
+        return new Report(ruleId, message, this);
+    }
+}
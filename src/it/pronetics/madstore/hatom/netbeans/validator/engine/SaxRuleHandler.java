@@ -0,0 +1,118 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * SAX handler that forwards element events to the validation rules of a <code>RuleContext</code>.<br>
+ * When the parser provides a <code>Locator</code>, the position of each element is recorded (see
+ * <code>ElementInfo.getPosition</code>).<br>
+ *
+ * @author Andrea Castello
+ * @version 1.1
+ */
+public class SaxRuleHandler extends DefaultHandler {
+
+    // Rule dispatcher
+    private RuleContext context;
+
+    // Innermost open element
+    private SaxElementInfo current;
+
+    // Current parser position, null if the parser does not provide it
+    private Locator locator;
+
+    /**
+     * Creates a new handler for a whole document.<br>
+     * @param context the rule dispatcher
+     */
+    public SaxRuleHandler(RuleContext context) {
+        this(context, null);
+    }
+
+    /**
+     * Creates a new handler for a portion of a document.<br>
+     * @param context the rule dispatcher
+     * @param parent element that contains the parsed portion, used to build element paths
+     */
+    public SaxRuleHandler(RuleContext context, SaxElementInfo parent) {
+        this.context = context;
+        this.current = parent;
+    }
+
+    /**
+     * @return the rule dispatcher
+     */
+    public RuleContext getContext() {
+        return context;
+    }
+
+    /**
+     * @return the innermost open element
+     */
+    public SaxElementInfo getCurrent() {
+        return current;
+    }
+
+    /**
+     * @return the current parser position, or <code>null</code> if the parser does not provide it
+     */
+    public Locator getLocator() {
+        return locator;
+    }
+
+    @Override
+    public void setDocumentLocator(Locator locator) {
+        this.locator = locator;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        current = new SaxElementInfo(qName, attributes, current);
+
+        if (locator != null) {
+            current.setPosition(new SourcePosition(locator.getLineNumber(), locator.getColumnNumber(), -1));
+        }
+
+        startElement(current);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        endElement(current);
+        current = current.getParent();
+    }
+
+    /**
+     * Sends the start of the given element to the rules.<br>
+     * @param info the element
+     */
+    protected void startElement(SaxElementInfo info) {
+        context.startElement(info);
+    }
+
+    /**
+     * Sends the end of the given element to the rules.<br>
+     * @param info the element
+     */
+    protected void endElement(SaxElementInfo info) {
+        context.endElement();
+    }
+}
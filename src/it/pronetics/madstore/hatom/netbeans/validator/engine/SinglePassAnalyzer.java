@@ -0,0 +1,111 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import java.io.IOException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Analyzer that validates a whole hAtom document with a single traversal of its DOM.<br>
+ * Each element is visited once and dispatched to all the validation rules (see <code>RuleContext</code>),
+ * instead of walking the same subtrees once per keyword as HfeedAnalyzer and HentryAnalyzer do.
+ * The reports are the same ones of HfeedAnalyzer, but they are produced in document order.<br>
+ * The DOM document is never modified.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.1
+ */
+public class SinglePassAnalyzer extends BaseAnalyzer {
+
+    /**
+     * Sets the document to be analyzed.<br>
+     * @param doc The document to be analyzed
+     */
+    public void init(Document doc) {
+        setXhtmlDoc(doc);
+    }
+
+    public void analyze() throws IOException {
+
+        RuleContext context = new RuleContext(getEngine());
+
+        Element root = getXhtmlDoc().getDocumentElement();
+
+        if (root != null) {
+            traverse(root, context);
+        }
+
+        context.endDocument();
+    }
+
+    /**
+     * Visits the element tree under the given root in document order, without recursion.<br>
+     *
+     * @param root the root element
+     * @param context receives element start and end events
+     */
+    private void traverse(Element root, RuleContext context) {
+
+        Node current = root;
+        context.startElement(new DomElementInfo(root));
+
+        while (current != null) {
+
+            Node child = nextElement(current.getFirstChild());
+
+            if (child != null) {
+                context.startElement(new DomElementInfo((Element) child));
+                current = child;
+                continue;
+            }
+
+            // No more children: close elements until one with a following sibling is found
+            while (current != null) {
+
+                context.endElement();
+
+                if (current == root) {
+                    current = null;
+                    break;
+                }
+
+                Node sibling = nextElement(current.getNextSibling());
+
+                if (sibling != null) {
+                    context.startElement(new DomElementInfo((Element) sibling));
+                    current = sibling;
+                    break;
+                }
+
+                current = current.getParentNode();
+            }
+        }
+    }
+
+    /**
+     * Returns the given node if it is an element, otherwise its first following element sibling.<br>
+     */
+    private static Node nextElement(Node node) {
+        while (node != null && node.getNodeType() != Node.ELEMENT_NODE) {
+            node = node.getNextSibling();
+        }
+
+        return node;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+/**
+ * Position of an element in the validated source.<br>
+ * The position is the point where the element's start tag ends, as reported by the parser's
+ * <code>Locator</code>. Lines and columns start from 1, offsets from 0.<br>
+ * The offset is -1 when it is not known, ie: when the source is a byte stream whose characters
+ * have not been counted.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public final class SourcePosition {
+
+    // Line and column, starting from 1
+    private final int line;
+    private final int column;
+
+    // Character offset, starting from 0; -1 if unknown
+    private final int offset;
+
+    /**
+     * Creates a new position.<br>
+     *
+     * @param line the line number, starting from 1
+     * @param column the column number, starting from 1
+     * @param offset the character offset, or -1 if unknown
+     */
+    public SourcePosition(int line, int column, int offset) {
+        this.line = line;
+        this.column = column;
+        this.offset = offset;
+    }
+
+    /**
+     * @return the line number, starting from 1
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return the column number, starting from 1
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * @return the character offset, starting from 0, or -1 if unknown
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    @Override
+    public String toString() {
+        return "line " + line + ", column " + column;
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.xml.sax.InputSource;
+
+/**
+ * Analyzer that validates an hAtom document while it is being parsed, without building a DOM.<br>
+ * SAX events are dispatched to the same rules used by SinglePassAnalyzer (see <code>RuleContext</code>);
+ * only the chain of open elements and the per-feed key values are kept in memory, so large documents
+ * can be validated with a memory footprint that does not depend on their size.<br>
+ * Reports are added to the validator engine as soon as the checked element has been closed,
+ * and they reference an <code>ElementInfo</code> with the element path instead of a DOM node.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.3
+ */
+public class StreamingAnalyzer extends BaseAnalyzer {
+
+    // Source of the XHTML document to be validated
+    private InputSource source;
+
+    /**
+     * Sets the stream to be analyzed.<br>
+     * @param is The stream containing the document to be analyzed
+     */
+    public void init(InputStream is) {
+        this.source = new InputSource(new BufferedInputStream(is));
+    }
+
+    /**
+     * Sets the source to be analyzed.<br>
+     * Sources backed by a character stream are parsed as they are, without any charset conversion.<br>
+     * @param source The source of the document to be analyzed
+     */
+    public void init(InputSource source) {
+        this.source = source;
+    }
+
+    public void analyze() throws IOException {
+
+        RuleContext context = new RuleContext(getEngine());
+
+        XMLUtils.parse(source, new SaxRuleHandler(context));
+
+        context.endDocument();
+    }
+}
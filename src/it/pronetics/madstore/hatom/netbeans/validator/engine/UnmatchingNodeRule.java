@@ -0,0 +1,79 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorEngine.ALL_KEYWORDS;
+
+/**
+ * Single pass version of <code>ValidatorEngine.analyzeUnmatchingNodes</code>: reports hAtom keywords
+ * found outside any hfeed element.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.2
+ */
+public class UnmatchingNodeRule implements ElementRule {
+
+    public void startElement(ElementFrame frame, RuleContext context) {
+        if (context.isOutsideFeed()) {
+            checkKeywords(frame, ALL_KEYWORDS, context, true);
+        }
+    }
+
+    public void endElement(ElementFrame frame, RuleContext context) {
+    }
+
+    /**
+     * Creates an error report for each of the given keywords found in any attribute of the element.<br>
+     *
+     * @param frame element to be checked
+     * @param keywords hAtom keywords that must not be found in the element
+     * @param context the validation context
+     * @param outsideFeed <code>true</code> if the element is outside any hfeed
+     */
+    static void checkKeywords(ElementFrame frame, String[] keywords, RuleContext context, boolean outsideFeed) {
+
+        ElementInfo info = frame.info;
+
+        // Most elements hold no keyword at all
+        if (!info.hasKeywords()) {
+            return;
+        }
+
+        int count = info.getAttributeCount();
+
+        for (int i = 0; i < keywords.length; i++) {
+
+            long mask = KeywordSet.getMask(keywords[i]);
+
+            for (int j = 0; j < count; j++) {
+
+                if (KeywordSet.containsAll(info.getAttributeKeywords(j), mask)) {
+
+                    String value = info.getAttributeValue(j);
+
+                    Report report = info.createReport(Report.RULE_INVALID_POSITION, ValidatorEngine.getInvalidPositionMessage(info.getAttributeName(j), value));
+
+                    if (outsideFeed) {
+                        context.addOutsideFeedReport(report);
+                    } else {
+                        context.addReport(frame, report);
+                    }
+                }
+            }
+        }
+    }
+}
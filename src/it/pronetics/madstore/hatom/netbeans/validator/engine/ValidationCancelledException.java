@@ -0,0 +1,38 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+/**
+ * Thrown by the analyzers when the validation they are performing has been cancelled, usually because
+ * the document has been changed in the meantime.<br>
+ * Reports found so far by the interrupted validation are incomplete and should be discarded.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public class ValidationCancelledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new exception for the given document.<br>
+     * @param documentName name of the document whose validation has been cancelled
+     */
+    public ValidationCancelledException(String documentName) {
+        super("Validation of " + documentName + " has been cancelled");
+    }
+}
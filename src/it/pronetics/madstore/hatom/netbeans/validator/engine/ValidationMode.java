@@ -0,0 +1,39 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+/**
+ * Enumerates the ways ValidatorEngine can validate a document.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.2
+ */
+public enum ValidationMode {
+
+    // HfeedAnalyzer and HentryAnalyzer, one DOM walk for each check
+    MULTI_PASS,
+
+    // SinglePassAnalyzer, a single DOM walk for all the checks
+    SINGLE_PASS,
+
+    // StreamingAnalyzer, checks are performed while parsing and no DOM is built
+    STREAMING,
+
+    // As MULTI_PASS, but hentry nodes are validated by more threads when the feed contains enough of them
+    PARALLEL
+
+}
@@ -0,0 +1,232 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.Document;
+
+/**
+ * Validates an editor document in background while it is being edited.<br>
+ *
+ * Every change of the document (re)starts a delay: the document is validated only when no change has been
+ * made for the whole delay, so a burst of edits costs a single validation. A validation that is running when
+ * the document is changed is cancelled, since its results would be stale: the validation scheduled by the
+ * change takes its place. Validations are performed by an <code>IncrementalValidator</code>, on a single
+ * background thread shared by all the documents.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.1
+ */
+public class ValidationScheduler implements DocumentListener {
+
+    /**
+     * Receives the results of background validations. Methods are called on the validation thread.<br>
+     */
+    public interface Listener {
+
+        /**
+         * Called when the document has been validated.<br>
+         * @param reports the validation reports
+         * @param elapsedTime validation time in milliseconds
+         */
+        void validationCompleted(List<Report> reports, long elapsedTime);
+
+        /**
+         * Called when the document cannot be validated.<br>
+         * @param ex the validation error
+         */
+        void validationFailed(Exception ex);
+    }
+
+    // Default time to wait after the last change of the document, in milliseconds
+    public static final long DEFAULT_DELAY = 500;
+
+    // Thread that performs the validations of all the documents
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "hAtom validation");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    // Document to be validated
+    private Document document;
+
+    // Validator of the document
+    private IncrementalValidator validator;
+
+    // Receives the validation results
+    private Listener listener;
+
+    // Time to wait after the last change, in milliseconds
+    private long delay;
+
+    // Next scheduled validation, if any
+    private ScheduledFuture<?> pending;
+
+    // True after dispose has been called
+    private boolean disposed;
+
+    // Validation task
+    private final Runnable task = new Runnable() {
+
+        public void run() {
+            validate();
+        }
+    };
+
+    /**
+     * Creates a new scheduler for the given document, using the default delay.<br>
+     *
+     * @param document the document to be validated
+     * @param documentName name of the document, used for reporting purposes
+     * @param listener receives the validation results
+     */
+    public ValidationScheduler(Document document, String documentName, Listener listener) {
+        this(document, documentName, listener, DEFAULT_DELAY);
+    }
+
+    /**
+     * Creates a new scheduler for the given document and starts listening to its changes.<br>
+     *
+     * @param document the document to be validated
+     * @param documentName name of the document, used for reporting purposes
+     * @param listener receives the validation results
+     * @param delay time to wait after the last change of the document, in milliseconds
+     */
+    public ValidationScheduler(Document document, String documentName, Listener listener, long delay) {
+        this.document = document;
+        this.listener = listener;
+        this.delay = delay;
+        this.validator = new IncrementalValidator(document, documentName);
+
+        document.addDocumentListener(this);
+    }
+
+    /**
+     * Validates the document as soon as possible, replacing any pending validation.<br>
+     */
+    public void validateNow() {
+        schedule(0);
+    }
+
+    /**
+     * Validates the document after the delay, replacing any pending validation.<br>
+     */
+    public void validateLater() {
+        schedule(delay);
+    }
+
+    /**
+     * Stops listening to the document and cancels the pending and the running validation.<br>
+     * The listener is not notified after this method returns.<br>
+     */
+    public synchronized void dispose() {
+        disposed = true;
+
+        if (pending != null) {
+            pending.cancel(false);
+        }
+
+        document.removeDocumentListener(this);
+        validator.dispose();
+        validator.getEngine().cancel();
+    }
+
+    /**
+     * @return the validator of the document
+     */
+    public IncrementalValidator getValidator() {
+        return validator;
+    }
+
+    public void insertUpdate(DocumentEvent e) {
+        validateLater();
+    }
+
+    public void removeUpdate(DocumentEvent e) {
+        validateLater();
+    }
+
+    public void changedUpdate(DocumentEvent e) {
+        // Attribute changes do not modify the text
+    }
+
+    /**
+     * Schedules the validation, replacing the pending one.<br>
+     */
+    private synchronized void schedule(long time) {
+
+        if (disposed) {
+            return;
+        }
+
+        if (pending != null) {
+            pending.cancel(false);
+        }
+
+        pending = EXECUTOR.schedule(task, time, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Validates the document and notifies the listener, unless the scheduler has been disposed meanwhile.<br>
+     * The listener is notified holding the lock of the scheduler, so that <code>dispose</code> waits for it.<br>
+     */
+    private void validate() {
+
+        synchronized (this) {
+            if (disposed) {
+                return;
+            }
+        }
+
+        long startTime = System.currentTimeMillis();
+        Exception failure = null;
+
+        try {
+            validator.validate();
+        } catch (ValidationCancelledException ex) {
+            // The document has been changed, the change has scheduled a new validation
+            return;
+        } catch (Exception ex) {
+            failure = ex;
+        }
+
+        synchronized (this) {
+
+            if (disposed) {
+                return;
+            }
+
+            if (failure != null) {
+                listener.validationFailed(failure);
+            } else {
+                listener.validationCompleted(validator.getReports(), System.currentTimeMillis() - startTime);
+            }
+        }
+    }
+}
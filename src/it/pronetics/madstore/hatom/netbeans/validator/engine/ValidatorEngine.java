@@ -17,16 +17,19 @@
 
 package it.pronetics.madstore.hatom.netbeans.validator.engine;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.StyledDocument;
 import org.w3c.dom.Document;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
-import org.w3c.dom.traversal.NodeIterator;
+import org.xml.sax.InputSource;
 import static it.pronetics.madstore.hatom.netbeans.validator.engine.HentryChildAnalyzer.HENTRY_CHILDREN;
 import static it.pronetics.madstore.hatom.netbeans.validator.engine.BaseAnalyzer.HATOM_HENTRY_ATTRIBUTES;
 
@@ -34,7 +37,7 @@ import static it.pronetics.madstore.hatom.netbeans.validator.engine.BaseAnalyzer
  * Handler for rule validation tasks.<br>
  *
  * @author Andrea Castello
- * @version 1.6
+ * @version 1.18
  */
 public class ValidatorEngine {
 
@@ -58,15 +61,30 @@ public class ValidatorEngine {
     public static final String MATCHING_LIST = "matching";
     public static final String UNMATCHING_LIST = "unmatching";
 
+    // Default minimum number of hentry nodes that are validated in parallel
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 32;
+
     // List of error reports found during the validation process
     private List<Report> reports;
 
     // Name of the document open in the IDE, that will be validated by this engine
     private String documentName = "";
 
-    // DOM object that represents the document to be validated
+    // DOM object that represents the document being validated, released once the validation is over
     private Document xhtmlDoc;
 
+    // How the document is validated
+    private ValidationMode validationMode = ValidationMode.SINGLE_PASS;
+
+    // In PARALLEL mode, feeds with fewer hentry nodes are validated sequentially
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    // Set by another thread to stop the running validation
+    private volatile boolean cancelled;
+
+    // True while validate is running
+    private volatile boolean validating;
+
     /**
      * Creates a new engine instance and initialized its internal report list.<br>
      */
@@ -78,8 +96,9 @@ public class ValidatorEngine {
      * Checks and reports invalid hfeed attributes that are placed outside hfeed elements.
      * @param node Node to be checked
      * @param keyword hatom keyword to be checked
+     * @param engine engine that collects the reports
      */
-    private static void checkInvalidHatomAttributes(Node node, String keyword, String docName) {
+    private static void checkInvalidHatomAttributes(Node node, String keyword, ValidatorEngine engine) {
 
         if (node != null) {
 
@@ -91,7 +110,7 @@ public class ValidatorEngine {
 
                     Node child = nnmap.item(i);
 
-                    checkInvalidAttribute(node, child, keyword, docName);
+                    checkInvalidAttribute(node, child, keyword, engine);
                 }
             }
         }
@@ -102,14 +121,13 @@ public class ValidatorEngine {
      * It creates an error report if the hAtom <code>keyword</code> is found inside the
      * given <code>node</code>.
      * <br>
-     * Note that the <code>docName</code> is just used for reporting purposes.<br>
      *
      * @param parent Parent node of the node that we have to analyze
      * @param child Node to be analyzed
      * @param keyword hatom keyword that must be checked for the given node
-     * @param docName the document's name
+     * @param engine engine that collects the reports
      */
-    private static void checkInvalidAttribute(Node parent, Node child, String keyword, String docName ) {
+    private static void checkInvalidAttribute(Node parent, Node child, String keyword, ValidatorEngine engine) {
 
     	Report report;
     	String nodeValue;
@@ -121,15 +139,7 @@ public class ValidatorEngine {
 
             if (nodeValue != null && XMLUtils.attributeValueMatches(nodeValue, keyword)) {
 
-                report = new Report();
-                report.setNode(parent);
-
-                StringBuffer message = new StringBuffer("Attribute ").append(child.getNodeName());
-                        message.append(" with value ").append(nodeValue).append(" is in invalid position. \n");
-                        message.append("Please check that node is inside his regular parent node \n");
-
-                report.setMessage(message.toString());
-                ValidatorEngine engine = ValidatorCache.getInstance().getEngine(docName);
+                report = new Report(Report.RULE_INVALID_POSITION, getInvalidPositionMessage(child.getNodeName(), nodeValue), parent);
                 engine.addReport(report);
 
             }
@@ -137,6 +147,22 @@ public class ValidatorEngine {
 
 	}
 
+    /**
+     * Builds the error message for an hAtom keyword found in an invalid position.<br>
+     *
+     * @param attrName name of the attribute containing the keyword
+     * @param attrValue value of the attribute containing the keyword
+     * @return the error message
+     */
+    static String getInvalidPositionMessage(String attrName, String attrValue) {
+
+        StringBuffer message = new StringBuffer("Attribute ").append(attrName);
+        message.append(" with value ").append(attrValue).append(" is in invalid position. \n");
+        message.append("Please check that node is inside his regular parent node \n");
+
+        return message.toString();
+    }
+
 	/**
      * Returns the list of report objects that contains all the validation error found during the process.<br>
      * @return
@@ -154,62 +180,226 @@ public class ValidatorEngine {
     }
 
     /**
-     * Performs validation on a DOM object which is obtained from Netbeans' <code>StyleDocument</code>.
+     * Performs validation on a DOM object which is obtained from Netbeans' <code>StyleDocument</code>.<br>
+     * The text is parsed straight from the document (see <code>DocumentReader</code>) while holding its
+     * read lock, so neither a string copy of the document nor a charset conversion is needed.
+     * The DOM object, if any, is analyzed after the lock has been released.<br>
+     * The positions of the reports hold the document offsets of the reported elements.<br>
      *
      * @param doc Netbeans StyedDocument that must be converted into a DOM object
-     * @throws BadLocationException in case the styledDocument cannot return the document as string
+     * @throws BadLocationException in case the styledDocument cannot return the document text
      * @throws IOException in case Document object creation fails.
      */
-    public void validate(StyledDocument doc) throws BadLocationException, IOException {
+    public void validate(final StyledDocument doc) throws BadLocationException, IOException {
+
+        final Document[] xhtml = new Document[1];
+        final DocumentReader[] reader = new DocumentReader[1];
+        final IOException[] failure = new IOException[1];
+        int first = reports.size();
+
+        validating = true;
+
+        try {
+            doc.render(new Runnable() {
+                public void run() {
+                    try {
+                        reader[0] = new DocumentReader(doc);
+                        xhtml[0] = read(new InputSource(reader[0]));
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                }
+            });
 
-        this.xhtmlDoc = XMLUtils.getDocument(new ByteArrayInputStream( doc.getText(0, doc.getLength()).getBytes() ));
+            if (failure[0] != null) {
+                if (failure[0].getCause() instanceof BadLocationException) {
+                    throw (BadLocationException) failure[0].getCause();
+                }
+                throw failure[0];
+            }
 
-        HfeedAnalyzer analyzer = new HfeedAnalyzer();
-        analyzer.init(xhtmlDoc);
-        analyzer.setDocumentName(this.documentName);
-        analyzer.analyze();
+            analyze(xhtml[0]);
+            resolveOffsets(first, reader[0].getLineMap());
+        } finally {
+            releaseDocument();
+            validating = false;
+        }
 
     }
 
     /**
-     * Check if there are hAtom microformats outside the validated html.<br>
+     * Performs validation on the XHTML document read from the given stream.<br>
+     * Unless the validation mode is <code>STREAMING</code>, the stream is first converted into a DOM object.<br>
+     * The DOM object is released when the validation is over, and the reports no longer reference its nodes.<br>
      *
-     * @param unmatchingNodes nodes that should not contain hAtom microformat
+     * @param is stream containing the XHTML document
+     * @throws IOException in case the document cannot be read or parsed
+     * @throws ValidationCancelledException if the validation has been cancelled
      */
-    public static void analyzeUnmatchingNodes(Document doc, List<Node> unmatchingNodes, String documentName, String[] targetKeywords){
+    public void validate(InputStream is) throws IOException {
 
-        for (int i=0; i<targetKeywords.length; i++){
+        validating = true;
+
+        try {
+            analyze(read(new InputSource(new BufferedInputStream(is))));
+        } finally {
+            releaseDocument();
+            validating = false;
+        }
+
+    }
 
-            for(Node node: unmatchingNodes){
-                checkInvalidHatomAttributes(node, targetKeywords[i], documentName);
+    /**
+     * Reads the XHTML document from the given source.<br>
+     * In <code>STREAMING</code> mode the document is validated while it is being read and no DOM object
+     * is returned.<br>
+     *
+     * @param source the XHTML document
+     * @return the DOM object to be analyzed, or <code>null</code> in <code>STREAMING</code> mode
+     * @throws IOException in case the document cannot be read or parsed
+     */
+    private Document read(InputSource source) throws IOException {
+
+        this.xhtmlDoc = null;
+
+        if (validationMode == ValidationMode.STREAMING) {
+            StreamingAnalyzer analyzer = new StreamingAnalyzer();
+            analyzer.init(source);
+            analyzer.setDocumentName(this.documentName);
+            analyzer.setEngine(this);
+            analyzer.analyze();
+            return null;
+        }
+
+        return XMLUtils.getDocument(source);
+    }
+
+    /**
+     * Validates a DOM object, according to the validation mode.<br>
+     * @param doc the DOM object, or <code>null</code> if the document has already been validated while reading it
+     * @throws IOException in case the analysis fails
+     */
+    private void analyze(Document doc) throws IOException {
+
+        if (doc == null) {
+            return;
+        }
+
+        this.xhtmlDoc = doc;
+
+        if (validationMode == ValidationMode.SINGLE_PASS) {
+            SinglePassAnalyzer analyzer = new SinglePassAnalyzer();
+            analyzer.init(xhtmlDoc);
+            analyzer.setDocumentName(this.documentName);
+            analyzer.setEngine(this);
+            analyzer.analyze();
+        } else {
+            HfeedAnalyzer analyzer = new HfeedAnalyzer();
+            analyzer.init(xhtmlDoc);
+            analyzer.setDocumentName(this.documentName);
+            analyzer.setEngine(this);
+            analyzer.analyze();
+        }
+    }
+
+    /**
+     * Sets the offsets of the positions of the reports, starting from the given one.<br>
+     *
+     * @param first index of the first report
+     * @param lines line starts of the validated text
+     */
+    void resolveOffsets(int first, LineMap lines) {
+
+        for (int i = first; i < reports.size(); i++) {
+            Report report = reports.get(i);
+            SourcePosition position = report.getPosition();
+
+            if (position != null && position.getOffset() < 0) {
+                report.setPosition(lines.locate(position.getLine(), position.getColumn()));
             }
+        }
+    }
+
+    /**
+     * Detaches the reports from the DOM object of the last validation, so that it can be garbage collected
+     * and the memory held by the engine only depends on the number of reports.<br>
+     */
+    private void releaseDocument() {
+
+        if (xhtmlDoc == null) {
+            return;
+        }
 
+        Map<Node, SaxElementInfo> ancestors = new IdentityHashMap<Node, SaxElementInfo>();
+
+        for (Report report : reports) {
+            report.detach(ancestors);
         }
+
+        xhtmlDoc = null;
+    }
+
+    /**
+     * @return <code>true</code> while the engine is validating a document
+     */
+    public boolean isValidating() {
+        return validating;
     }
 
     /**
      * Searches for hAtom keywords that can be found outside their valid position (ie: a hentry is found outside
-     * a hfeed element).<br>
+     * a hfeed element), skipping the subtrees that have already been matched.<br>
      *
-     * @param doc the whole DOM object representing the XHTML document; it is used to create a node iterator
-     * @param rootNode node that will be the root under which iterator will be built.
-     * @param docName the name of the document opened in the IDE
+     * @param rootNode node that will be the root of the search.
+     * @param engine engine that collects the reports
+     * @param targetKeywords keywords to be searched
+     * @param matchedNodes subtrees that must not be searched
      */
-    public static void analyzeUnmatchingNodes(Document doc, Node rootNode, String docName, String[] targetKeywords){
+    public static void analyzeUnmatchingNodes(Node rootNode, ValidatorEngine engine, String[] targetKeywords, NodeMarks matchedNodes){
 
-        NodeIterator iterator = XMLUtils.getNodeIterator(doc, rootNode);
+        List<Node> nodes = matchedNodes.getNodes(rootNode);
 
         for (int i=0; i<targetKeywords.length; i++){
-            Node node;
-            while((node = iterator.nextNode() ) != null){
-                checkInvalidHatomAttributes(node, targetKeywords[i], docName);
-            }
+            engine.checkCancelled();
 
-            // Bring iterator back to first node
-            while (( node = iterator.previousNode())!=null){}
+            for (Node node: nodes){
+                checkInvalidHatomAttributes(node, targetKeywords[i], engine);
+            }
         }
+    }
+
+    /**
+     * Asks the running validation, and any following validation performed by this engine, to stop.<br>
+     * Analyzers check the request at every element or hentry they visit, so the validation stops quickly
+     * with a <code>ValidationCancelledException</code>. The request holds until <code>resetCancel</code>
+     * is called.<br>
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Clears the cancel request, so that the engine can validate again.<br>
+     */
+    public void resetCancel() {
+        cancelled = false;
+    }
 
-        iterator.detach();
+    /**
+     * @return <code>true</code> if the validation has been cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Stops the current validation if it has been cancelled.<br>
+     * @throws ValidationCancelledException if <code>cancel</code> has been called
+     */
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new ValidationCancelledException(documentName);
+        }
     }
 
     /**
@@ -227,4 +417,37 @@ public class ValidatorEngine {
     public void setDocumentName(String documentName) {
         this.documentName = documentName;
     }
+
+    /**
+     * Returns the way documents are validated by this engine.<br>
+     * @return the validation mode
+     */
+    public ValidationMode getValidationMode() {
+        return validationMode;
+    }
+
+    /**
+     * Sets the way documents are validated by this engine. Default is <code>SINGLE_PASS</code>.<br>
+     * @param validationMode the validation mode
+     */
+    public void setValidationMode(ValidationMode validationMode) {
+        this.validationMode = validationMode;
+    }
+
+    /**
+     * Returns the minimum number of hentry nodes of a feed that are validated in parallel.<br>
+     * @return the parallel threshold
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Sets the minimum number of hentry nodes of a feed that are validated in parallel, when the validation
+     * mode is <code>PARALLEL</code>. Default is <code>DEFAULT_PARALLEL_THRESHOLD</code>.<br>
+     * @param parallelThreshold the parallel threshold
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
 }
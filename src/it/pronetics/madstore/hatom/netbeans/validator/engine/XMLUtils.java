@@ -13,10 +13,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import org.openide.util.Exceptions;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.parsers.SAXParser;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -24,15 +23,27 @@ import org.w3c.dom.NodeList;
 import org.w3c.dom.traversal.DocumentTraversal;
 import org.w3c.dom.traversal.NodeFilter;
 import org.w3c.dom.traversal.NodeIterator;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * Provides utility methods for working with XML files using DOM classes.<br>
  *
  * @author  Andrea Castello.
- * @version 1.1
+ * @version 1.9
  */
 public class XMLUtils {
+
+    private static final Logger LOGGER = Logger.getLogger(XMLUtils.class.getName());
+
+    // User data key of the SourcePosition of the elements of the documents built by getDocument
+    public static final String POSITION = "it.pronetics.madstore.hatom.position";
+
+    // SAX property used to receive comments, CDATA sections and DTD events
+    private static final String LEXICAL_HANDLER = "http://xml.org/sax/properties/lexical-handler";
     
     /** 
      * Since XMLUtils provides just static utility methods, no class instances
@@ -52,16 +63,12 @@ public class XMLUtils {
      */
     public static Document newDocument(String base) throws IOException {
         Document document = null;
-        DocumentBuilderFactory builderFact = DocumentBuilderFactory
-                .newInstance();
-        DocumentBuilder docBuilder;
         try {
-            docBuilder = builderFact.newDocumentBuilder();
-            document = docBuilder.newDocument();
+            document = ParserPool.getInstance().newDocument();
             Element root = document.createElement(base);
             document.appendChild(root);
-        } catch (ParserConfigurationException e) {
-            Exceptions.attachLocalizedMessage(e, "XmlUtil.createDocument()" + e.getMessage());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "XmlUtil.createDocument()" + e.getMessage(), e);
         }
         return document;
     }
@@ -75,26 +82,61 @@ public class XMLUtils {
      */
     public static Document getDocument(InputStream is) throws IOException {
         
-        BufferedInputStream bis = new BufferedInputStream(is);
-         
-        Document document = null;
-        DocumentBuilderFactory builderFact = DocumentBuilderFactory
-                .newInstance();
-        builderFact.setValidating(false);
-        builderFact.setIgnoringElementContentWhitespace(true);
-        DocumentBuilder docBuilder;
+        return getDocument(new InputSource(new BufferedInputStream(is)));
+    }    
+
+    /**
+     * Creates a Document from the given InputSource.<br>
+     * Sources backed by a character stream are parsed as they are, without any charset conversion.<br>
+     * The document is built from SAX events (see <code>SaxDomHandler</code>), so that each element holds
+     * its <code>SourcePosition</code> as user data, with key <code>POSITION</code>.<br>
+     * 
+     * @param source the XML document
+     * @return Document a DOM document.
+     * @throws IOException in case a file reading problem occurs.
+     */
+    public static Document getDocument(InputSource source) throws IOException {
+        
+        SaxDomHandler handler = new SaxDomHandler(ParserPool.getInstance().newDocument());
+        
+        parse(source, handler);
+        
+        return handler.getDocument();
+    }    
+
+    /**
+     * Parses an XML document, sending its SAX events to the given handler.<br>
+     * No DOM object is built. Handlers that implement <code>LexicalHandler</code> also receive
+     * comments, CDATA sections and DTD events.<br>
+     * The parser of the current thread is used, and reset afterwards (see <code>ParserPool</code>).<br>
+     * External DTDs and entities are resolved by <code>XhtmlCatalog</code>, so XHTML documents are parsed
+     * without network access.<br>
+     * 
+     * @param source the XML document
+     * @param handler receives the SAX events
+     * @throws IOException if the document cannot be read or parsed
+     */
+    public static void parse(InputSource source, DefaultHandler handler) throws IOException {
+        
+        ParserPool pool = ParserPool.getInstance();
+        SAXParser parser = pool.acquireParser();
+        
         try {
-            docBuilder = builderFact.newDocumentBuilder();
-            document = docBuilder.parse(bis);
-        } catch (ParserConfigurationException e) {
-            Exceptions.attachLocalizedMessage(e, "XmlUtils.getDocument()" + e.getMessage());
-            throw new IOException(e.getMessage());
+            if (handler instanceof LexicalHandler) {
+                parser.setProperty(LEXICAL_HANDLER, handler);
+            }
+            XMLReader reader = parser.getXMLReader();
+            reader.setContentHandler(handler);
+            reader.setDTDHandler(handler);
+            reader.setErrorHandler(handler);
+            reader.setEntityResolver(XhtmlCatalog.getInstance());
+            reader.parse(source);
         } catch (SAXException se) {
-            Exceptions.attachLocalizedMessage(se, "XmlUtils.getDocument()" + se.getMessage());
             throw new IOException(se.getMessage());
+        } finally {
+            pool.releaseParser(parser);
         }
-        return document;
-    }    
+    }
 
     /**
      * Gets a node's text value given its parent node and the name of the wanted child node.<br>
@@ -190,10 +232,11 @@ public class XMLUtils {
     
     /**
      * Check whether the given nodes containes an attribute with the given name and value.<br>
-     * The "matching" is assumed to be true even if the attribute just starts or ends with the given
-     * attribute value.<br>
+     * The "matching" is assumed to be true if the attribute contains the given value as one of its
+     * whitespace separated tokens.<br>
      * This has been allowed to match multiple keyword attributes such as in 
      * <code>class="hfeed hentry"</code> cases.<br>
+     * Keyword bits of class and rel attributes are cached in the node (see <code>KeywordSet</code>).<br>
      * 
      * @param node node to be analyzed
      * @param attrName the attribute name to be matched
@@ -204,6 +247,12 @@ public class XMLUtils {
         
          if (node!=null && node.getNodeType()==Node.ELEMENT_NODE){
             
+             long mask = KeywordSet.getMask(attrValue);
+
+             if (mask != 0) { // hAtom keywords: compare the bits cached in the node
+                 return KeywordSet.containsAll(KeywordSet.getKeywords(node, attrName), mask);
+             }
+
              String value = ((Element)node).getAttribute(attrName);
              return (value!=null && value.length()>0 && attributeValueMatches(value, attrValue) );
          
@@ -215,23 +264,19 @@ public class XMLUtils {
          }
     }
     
+    /**
+     * Check whether the given attribute value contains the expected value.<br>
+     * Attribute values may be composite ones (ie: hfeed hentry): the check succeeds if all the whitespace
+     * separated tokens of <code>expectedValue</code> are found among the tokens of <code>value</code>,
+     * in any position. The check is case insensitive.<br>
+     * 
+     * @param value the attribute value
+     * @param expectedValue the value to be matched
+     * @return <code>true</code> if value contains the expected one, <code>false</code> otherwise (even if any value is null)
+     */
     public static boolean attributeValueMatches(String value, String expectedValue){
         
-        try { // attribute value is longer than the expected one, it may be a composite one (ie: hfeed hentry)
-            if (value.length() > expectedValue.length() ){
-                return ( 
-                        ( value.startsWith(expectedValue) && value.charAt(expectedValue.length()) == ' ') ||  
-                        ( value.endsWith(expectedValue) && 
-                                value.charAt(value.length() - expectedValue.length() - 1) == ' ')
-                       );
-            }
-            else {
-               return (value.equalsIgnoreCase(expectedValue));
-            }
-        }
-        catch(NullPointerException npe){
-            return false;
-        }
+        return KeywordSet.containsTokens(value, expectedValue);
         
     }
     
@@ -261,6 +306,26 @@ public class XMLUtils {
          }
     }
     
+    /**
+     * Returns the node following <code>current</code> in document order, among the nodes of the subtree
+     * starting at <code>root</code>. Starting from <code>root</code>, it visits the same nodes of a NodeIterator
+     * without registering anything in the document, so more threads can walk the same (unchanged) document.<br>
+     * 
+     * @param current the current node
+     * @param root root of the subtree
+     * @return the next node, or null if <code>current</code> is the last node of the subtree
+     */
+    public static Node nextNode(Node current, Node root){
+        
+        Node next = current.getFirstChild();
+        
+        for (Node n = current; next == null && n != root && n != null; n = n.getParentNode()) {
+            next = n.getNextSibling();
+        }
+        
+        return next;
+    }
+    
     /**
      * Creates a Node iterator from the given Document object, starting from the given node.<br>
      * @param doc document from which iterator will be created
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+/**
+ * Resolves the XHTML DTDs and entity sets to copies bundled with the module, so that documents with an
+ * XHTML <code>DOCTYPE</code> are parsed without any network access.<br>
+ *
+ * The XHTML 1.0 and 1.1 DTDs are mapped, by public or system identifier, to a single local DTD that declares
+ * just the XHTML character entities: documents are not validated, so element declarations are not needed.
+ * Bundled files are read once and then served from memory to all the documents.<br>
+ *
+ * When DTD loading is disabled (see <code>setDtdLoading</code>) every external DTD and entity is resolved
+ * to an empty one: documents are only checked for well-formedness, and references to undeclared entities
+ * are skipped.<br>
+ * All the methods are thread safe.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public class XhtmlCatalog implements EntityResolver {
+
+    // Folder of the bundled files, relative to this class
+    private static final String RESOURCE_DIR = "resources/";
+
+    // Local DTD of all the XHTML versions
+    private static final String XHTML_DTD = "xhtml-entities.dtd";
+
+    // Bundled files, by public identifier
+    private static final Map<String, String> PUBLIC_IDS = new HashMap<String, String>();
+
+    // Bundled files, by system identifier
+    private static final Map<String, String> SYSTEM_IDS = new HashMap<String, String>();
+
+    static {
+        PUBLIC_IDS.put("-//W3C//DTD XHTML 1.0 Strict//EN", XHTML_DTD);
+        PUBLIC_IDS.put("-//W3C//DTD XHTML 1.0 Transitional//EN", XHTML_DTD);
+        PUBLIC_IDS.put("-//W3C//DTD XHTML 1.0 Frameset//EN", XHTML_DTD);
+        PUBLIC_IDS.put("-//W3C//DTD XHTML 1.1//EN", XHTML_DTD);
+        PUBLIC_IDS.put("-//W3C//ENTITIES Latin 1 for XHTML//EN", "xhtml-lat1.ent");
+        PUBLIC_IDS.put("-//W3C//ENTITIES Symbols for XHTML//EN", "xhtml-symbol.ent");
+        PUBLIC_IDS.put("-//W3C//ENTITIES Special for XHTML//EN", "xhtml-special.ent");
+
+        SYSTEM_IDS.put("http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd", XHTML_DTD);
+        SYSTEM_IDS.put("http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd", XHTML_DTD);
+        SYSTEM_IDS.put("http://www.w3.org/TR/xhtml1/DTD/xhtml1-frameset.dtd", XHTML_DTD);
+        SYSTEM_IDS.put("http://www.w3.org/TR/xhtml11/DTD/xhtml11.dtd", XHTML_DTD);
+        SYSTEM_IDS.put("http://www.w3.org/TR/xhtml1/DTD/xhtml-lat1.ent", "xhtml-lat1.ent");
+        SYSTEM_IDS.put("http://www.w3.org/TR/xhtml1/DTD/xhtml-symbol.ent", "xhtml-symbol.ent");
+        SYSTEM_IDS.put("http://www.w3.org/TR/xhtml1/DTD/xhtml-special.ent", "xhtml-special.ent");
+    }
+
+    // Unique instance of the catalog.
+    private static XhtmlCatalog instance;
+
+    // Contents of the bundled files read so far, by file name
+    private final Map<String, byte[]> contents = new HashMap<String, byte[]>();
+
+    // False if external DTDs and entities must not be read
+    private volatile boolean dtdLoading = true;
+
+    // Creates the catalog, with DTD loading enabled
+    private XhtmlCatalog() {
+    }
+
+    /**
+     * Instance's access method.<br>
+     * @return the catalog
+     */
+    public static synchronized XhtmlCatalog getInstance() {
+        if (instance == null) {
+            instance = new XhtmlCatalog();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Enables or disables the loading of external DTDs and entities. Default is enabled.<br>
+     * @param dtdLoading <code>false</code> to parse documents for well-formedness only
+     */
+    public void setDtdLoading(boolean dtdLoading) {
+        this.dtdLoading = dtdLoading;
+    }
+
+    /**
+     * @return <code>true</code> if external DTDs and entities are loaded
+     */
+    public boolean isDtdLoading() {
+        return dtdLoading;
+    }
+
+    /**
+     * Resolves an external DTD or entity.<br>
+     *
+     * @param publicId public identifier of the entity, or <code>null</code>
+     * @param systemId system identifier of the entity
+     * @return the bundled copy of the entity, an empty entity if DTD loading is disabled, or <code>null</code>
+     *         to let the parser read unknown entities as usual
+     * @throws IOException if a bundled file cannot be read
+     */
+    public InputSource resolveEntity(String publicId, String systemId) throws IOException {
+
+        byte[] content;
+
+        if (!dtdLoading) {
+            content = new byte[0];
+        } else {
+            String fileName = (publicId != null) ? PUBLIC_IDS.get(publicId) : null;
+
+            if (fileName == null && systemId != null) {
+                fileName = SYSTEM_IDS.get(systemId);
+            }
+
+            if (fileName == null) {
+                return null;
+            }
+
+            content = getContent(fileName);
+        }
+
+        // Keeps the original identifiers, so that relative references are resolved as usual
+        InputSource source = new InputSource(new ByteArrayInputStream(content));
+        source.setPublicId(publicId);
+        source.setSystemId(systemId);
+
+        return source;
+    }
+
+    /**
+     * Returns the content of a bundled file, reading it on first use.<br>
+     */
+    private synchronized byte[] getContent(String fileName) throws IOException {
+
+        byte[] content = contents.get(fileName);
+
+        if (content == null) {
+            InputStream is = XhtmlCatalog.class.getResourceAsStream(RESOURCE_DIR + fileName);
+
+            if (is == null) {
+                throw new IOException("Missing bundled entity " + fileName);
+            }
+
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+
+                for (int n = is.read(buffer); n >= 0; n = is.read(buffer)) {
+                    out.write(buffer, 0, n);
+                }
+
+                content = out.toByteArray();
+            } finally {
+                is.close();
+            }
+
+            contents.put(fileName, content);
+        }
+
+        return content;
+    }
+}
@@ -0,0 +1,317 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package it.pronetics.madstore.hatom.netbeans.benchmark;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Runs benchmarks and prints their throughput and allocation rate.<br>
+ * Each benchmark is first run for the warm up time, so that the JIT compiles the hot paths, and then
+ * measured for the measure time.<br>
+ * The time spent in <code>Benchmark.setUp</code> is not measured, while its allocation is.<br>
+ * Results can be saved to a properties file and compared with the results of a previous run: a benchmark
+ * whose throughput is lower than the saved one by more than the tolerance is reported as a regression.<br>
+ * <br>
+ * Allocation is measured on HotSpot JVMs only, through <code>com.sun.management.ThreadMXBean</code>.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.1
+ */
+public class BenchmarkRunner {
+
+    /**
+     * A single benchmark: <code>run</code> is the measured operation.<br>
+     */
+    public static abstract class Benchmark {
+
+        // Name printed in the results
+        private String name;
+
+        // Size in bytes of the input processed by each operation
+        private long inputSize;
+
+        public Benchmark(String name, long inputSize) {
+            this.name = name;
+            this.inputSize = inputSize;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getInputSize() {
+            return inputSize;
+        }
+
+        /**
+         * Performs the measured operation once.<br>
+         * @return any value computed by the operation, so that the JIT cannot skip it
+         * @throws Exception if the operation fails
+         */
+        public abstract Object run() throws Exception;
+
+        /**
+         * Prepares the next operation: called before each <code>run</code>, it is not measured.<br>
+         * @throws Exception if the preparation fails
+         */
+        public void setUp() throws Exception {
+        }
+    }
+
+    /**
+     * Result of a benchmark.<br>
+     */
+    public static class Result {
+
+        private String name;
+        private long operations;
+        private long elapsedNanos;
+        private long inputSize;
+        private long allocatedBytes;
+
+        Result(String name, long operations, long elapsedNanos, long inputSize, long allocatedBytes) {
+            this.name = name;
+            this.operations = operations;
+            this.elapsedNanos = elapsedNanos;
+            this.inputSize = inputSize;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return operations per second
+         */
+        public double getThroughput() {
+            return operations / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * @return input megabytes processed per second
+         */
+        public double getInputRate() {
+            return getThroughput() * inputSize / (1024.0 * 1024.0);
+        }
+
+        /**
+         * @return bytes allocated by each operation, -1 if allocation could not be measured
+         */
+        public long getAllocationPerOperation() {
+            return (allocatedBytes < 0) ? -1 : allocatedBytes / operations;
+        }
+
+        /**
+         * @return megabytes allocated per second, -1 if allocation could not be measured
+         */
+        public double getAllocationRate() {
+            return (allocatedBytes < 0) ? -1 : allocatedBytes / (elapsedNanos / 1e9) / (1024.0 * 1024.0);
+        }
+    }
+
+    // Default warm up and measure times, in milliseconds
+    public static final long DEFAULT_WARMUP_TIME = 2000;
+    public static final long DEFAULT_MEASURE_TIME = 5000;
+
+    // Default tolerance, in percent, of the comparison with saved results
+    public static final int DEFAULT_TOLERANCE = 10;
+
+    private long warmupTime = DEFAULT_WARMUP_TIME;
+    private long measureTime = DEFAULT_MEASURE_TIME;
+    private int tolerance = DEFAULT_TOLERANCE;
+
+    // Where the results are printed
+    private PrintStream out;
+
+    // Results of the benchmarks run so far
+    private List<Result> results = new ArrayList<Result>();
+
+    // Keeps the values computed by the benchmarks
+    private int sink;
+
+    public BenchmarkRunner(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Runs the given benchmark and prints its result.<br>
+     * @param benchmark the benchmark to be run
+     * @return the result
+     * @throws Exception if the benchmark fails
+     */
+    public Result run(Benchmark benchmark) throws Exception {
+
+        long end = System.nanoTime() + warmupTime * 1000000;
+        while (System.nanoTime() < end) {
+            benchmark.setUp();
+            consume(benchmark.run());
+        }
+
+        long operations = 0;
+        long elapsed = 0;
+        long allocated = getAllocatedBytes();
+        end = System.nanoTime() + measureTime * 1000000;
+
+        do {
+            benchmark.setUp();
+            long start = System.nanoTime();
+            consume(benchmark.run());
+            elapsed += System.nanoTime() - start;
+            operations++;
+        } while (System.nanoTime() < end);
+
+        long allocatedAfter = getAllocatedBytes();
+
+        Result result = new Result(benchmark.getName(), operations, elapsed, benchmark.getInputSize(),
+                (allocated < 0) ? -1 : allocatedAfter - allocated);
+        results.add(result);
+
+        print(result);
+
+        return result;
+    }
+
+    private void consume(Object value) {
+        sink += System.identityHashCode(value);
+    }
+
+    private void print(Result result) {
+
+        StringBuffer line = new StringBuffer();
+        line.append(String.format("%-45s %12.2f ops/s %10.2f MB/s", result.getName(), result.getThroughput(), result.getInputRate()));
+
+        if (result.getAllocationPerOperation() >= 0) {
+            line.append(String.format(" %14d B/op %10.2f MB/s alloc", result.getAllocationPerOperation(), result.getAllocationRate()));
+        }
+
+        out.println(line);
+        out.flush();
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread, or -1 if they cannot be measured.<br>
+     */
+    private static long getAllocatedBytes() {
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        try {
+            Class<?> hotspotBean = Class.forName("com.sun.management.ThreadMXBean");
+
+            if (hotspotBean.isInstance(bean)) {
+                Method method = hotspotBean.getMethod("getThreadAllocatedBytes", long.class);
+                return ((Long) method.invoke(bean, Thread.currentThread().getId())).longValue();
+            }
+        } catch (Exception ex) {
+            // Not a HotSpot JVM
+        }
+
+        return -1;
+    }
+
+    /**
+     * Saves the throughput of the benchmarks run so far to the given file.<br>
+     * @param fileName the properties file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(String fileName) throws IOException {
+
+        Properties properties = new Properties();
+
+        for (Result result : results) {
+            properties.setProperty(result.getName(), String.valueOf(result.getThroughput()));
+        }
+
+        OutputStream os = new FileOutputStream(fileName);
+        try {
+            properties.store(os, "hAtom benchmark throughput, operations per second");
+        } finally {
+            os.close();
+        }
+    }
+
+    /**
+     * Compares the benchmarks run so far with the results saved to the given file, printing the regressions.<br>
+     * @param fileName the properties file written by <code>save</code>
+     * @return the number of regressions
+     * @throws IOException if the file cannot be read
+     */
+    public int compare(String fileName) throws IOException {
+
+        Properties properties = new Properties();
+
+        InputStream is = new FileInputStream(fileName);
+        try {
+            properties.load(is);
+        } finally {
+            is.close();
+        }
+
+        int regressions = 0;
+
+        for (Result result : results) {
+
+            String saved = properties.getProperty(result.getName());
+
+            if (saved != null) {
+                double baseline = Double.parseDouble(saved);
+                double change = (result.getThroughput() - baseline) * 100 / baseline;
+
+                if (change < -tolerance) {
+                    regressions++;
+                    out.println(String.format("REGRESSION %-34s %12.2f ops/s, was %.2f (%+.1f%%)",
+                            result.getName(), result.getThroughput(), baseline, change));
+                }
+            }
+        }
+
+        return regressions;
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    public void setWarmupTime(long warmupTime) {
+        this.warmupTime = warmupTime;
+    }
+
+    public void setMeasureTime(long measureTime) {
+        this.measureTime = measureTime;
+    }
+
+    /**
+     * Sets the maximum throughput decrease, in percent, that is not reported as a regression.<br>
+     * @param tolerance the tolerance, default is <code>DEFAULT_TOLERANCE</code>
+     */
+    public void setTolerance(int tolerance) {
+        this.tolerance = tolerance;
+    }
+}
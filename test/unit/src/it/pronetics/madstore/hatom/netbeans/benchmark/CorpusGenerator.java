@@ -0,0 +1,371 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package it.pronetics.madstore.hatom.netbeans.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Generates synthetic hAtom documents for benchmarks and stress tests.<br>
+ * Documents are written as a stream, so they can be as big as needed, and are fully determined by the generator
+ * settings: the same settings and seed always produce the same document.<br>
+ * <br>
+ * Each document contains a number of hfeed nodes with a feed-key and a number of hentry nodes. Settings control:
+ * <ul>
+ * <li><b>nesting depth</b>: each hentry child is wrapped into this many plain <code>div</code> elements</li>
+ * <li><b>attribute noise</b>: probability for each element to get extra attributes and class names that are
+ * not hAtom keywords, some of them similar to hAtom keywords</li>
+ * <li><b>invalid ratio</b>: probability for each hentry to contain one error, so that it gets at least one report</li>
+ * <li><b>target size</b>: when greater than zero, hfeed nodes are added until the document reaches this size,
+ * regardless of the number of feeds</li>
+ * </ul>
+ * With an invalid ratio of 0 the generated documents are valid; otherwise each invalid hentry gets exactly one report.<br>
+ * <br>
+ * Usage: <code>java CorpusGenerator [-feeds n] [-entries n] [-depth n] [-noise ratio] [-invalid ratio]
+ * [-size bytes] [-seed n] file</code><br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public class CorpusGenerator {
+
+    // Errors that can be put in a hentry
+    private static final int MISSING_ENTRY_KEY = 0;
+    private static final int MISSING_TITLE = 1;
+    private static final int INVALID_UPDATED = 2;
+    private static final int DUPLICATE_ENTRY_KEY = 3;
+    private static final int MISPLACED_CHILD = 4;
+    private static final int MISSING_AUTHOR = 5;
+    private static final int ERROR_COUNT = 6;
+
+    // Class names used as attribute noise: not hAtom keywords
+    private static final String[] NOISE_CLASSES = {
+        "post", "clearfix", "entry-titles", "hentryx", "feed", "author-box", "updated-at", "content", "col-md-6", "tagline"
+    };
+
+    // Elements used to wrap hentry children
+    private static final String[] WRAPPERS = {"div", "section", "span"};
+
+    private int feeds = 1;
+    private int entriesPerFeed = 10;
+    private int nestingDepth = 0;
+    private double attributeNoise = 0;
+    private double invalidRatio = 0;
+    private long targetSize = 0;
+    private long seed = 0;
+
+    // Used while generating a document
+    private Random random;
+    private long size;
+    private int invalidEntryCount;
+    private int entryCount;
+
+    // entry-key of the last hentry of the current feed that has one
+    private String lastEntryKey;
+
+    public CorpusGenerator() {
+    }
+
+    /**
+     * Generates a document and returns it as a string.<br>
+     * @return the document
+     */
+    public String generate() {
+
+        StringWriter writer = new StringWriter();
+
+        try {
+            generate(writer);
+        } catch (IOException ex) {
+            // StringWriter does not throw
+            throw new IllegalStateException(ex);
+        }
+
+        return writer.toString();
+    }
+
+    /**
+     * Writes a document to the given writer.<br>
+     * @param writer where the document is written; it is not closed
+     * @return the number of characters written
+     * @throws IOException if the writer fails
+     */
+    public long generate(Writer writer) throws IOException {
+
+        random = new Random(seed);
+        size = 0;
+        invalidEntryCount = 0;
+        entryCount = 0;
+
+        write(writer, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        write(writer, "<html xmlns=\"http://www.w3.org/1999/xhtml\"><head><title>Generated hAtom corpus</title></head>\n<body>\n");
+
+        for (int feed = 0; (targetSize > 0) ? size < targetSize : feed < feeds; feed++) {
+            writeFeed(writer, feed);
+        }
+
+        write(writer, "</body></html>\n");
+        writer.flush();
+
+        return size;
+    }
+
+    private void writeFeed(Writer writer, int feed) throws IOException {
+
+        write(writer, "<div");
+        writeClass(writer, "hfeed");
+        write(writer, ">\n");
+
+        lastEntryKey = null;
+
+        write(writer, "<span class=\"feed-key\" title=\"feed-" + feed + "\"></span>\n");
+
+        for (int entry = 0; entry < entriesPerFeed; entry++) {
+
+            int error = -1;
+
+            if (invalidRatio > 0 && random.nextDouble() < invalidRatio) {
+                error = random.nextInt(ERROR_COUNT);
+
+                if (error == DUPLICATE_ENTRY_KEY && lastEntryKey == null) {
+                    // Nothing to duplicate yet
+                    error = MISSING_ENTRY_KEY;
+                }
+                invalidEntryCount++;
+            }
+
+            writeEntry(writer, feed, entry, error);
+            entryCount++;
+        }
+
+        write(writer, "</div>\n");
+    }
+
+    private void writeEntry(Writer writer, int feed, int entry, int error) throws IOException {
+
+        if (error == MISPLACED_CHILD) {
+            // An hentry child outside its hentry
+            write(writer, "<p class=\"entry-title\">Misplaced title " + entry + "</p>\n");
+        }
+
+        write(writer, "<div");
+        writeClass(writer, "hentry");
+        write(writer, ">");
+
+        if (error != MISSING_ENTRY_KEY) {
+            if (error != DUPLICATE_ENTRY_KEY) {
+                lastEntryKey = "entry-" + feed + "-" + entry;
+            }
+            // A duplicate entry-key repeats the key of a previous hentry
+            writeChild(writer, "span", "entry-key", lastEntryKey, "");
+        }
+
+        if (error != MISSING_TITLE) {
+            writeChild(writer, "h2", "entry-title", null, "Entry " + entry + " of feed " + feed);
+        }
+
+        String updated = (error == INVALID_UPDATED) ? "yesterday" : "2008-09-" + (10 + entry % 20) + "T16:04:17+02:00";
+        writeChild(writer, "abbr", "updated", updated, "September 2008");
+
+        if (error != MISSING_AUTHOR) {
+            writeNested(writer, true);
+            write(writer, "<address class=\"author vcard\"><span class=\"fn\">Author " + (entry % 10) + "</span></address>");
+            writeNested(writer, false);
+        }
+
+        writeChild(writer, "div", "entry-content", null, "Content of entry " + entry + ", lorem ipsum dolor sit amet.");
+
+        writeNested(writer, true);
+        write(writer, "<a rel=\"bookmark tag\" href=\"/entry/" + feed + "/" + entry + "\">link</a>");
+        writeNested(writer, false);
+
+        write(writer, "</div>\n");
+    }
+
+    private void writeChild(Writer writer, String name, String keyword, String title, String text) throws IOException {
+
+        writeNested(writer, true);
+
+        write(writer, "<" + name);
+        writeClass(writer, keyword);
+        if (title != null) {
+            write(writer, " title=\"" + title + "\"");
+        }
+        write(writer, ">" + text + "</" + name + ">");
+
+        writeNested(writer, false);
+    }
+
+    /**
+     * Writes the start or end tags of the wrappers of a hentry child.<br>
+     */
+    private void writeNested(Writer writer, boolean start) throws IOException {
+
+        for (int i = 0; i < nestingDepth; i++) {
+            String wrapper = WRAPPERS[(start ? i : nestingDepth - 1 - i) % WRAPPERS.length];
+            write(writer, start ? "<" + wrapper + ">" : "</" + wrapper + ">");
+        }
+    }
+
+    /**
+     * Writes the class attribute with the given keyword and, depending on the attribute noise, other attributes.<br>
+     */
+    private void writeClass(Writer writer, String keyword) throws IOException {
+
+        if (attributeNoise > 0 && random.nextDouble() < attributeNoise) {
+            write(writer, " id=\"n" + random.nextInt(1000000) + "\" data-noise=\"" + NOISE_CLASSES[random.nextInt(NOISE_CLASSES.length)] + "\"");
+            write(writer, " class=\"" + NOISE_CLASSES[random.nextInt(NOISE_CLASSES.length)] + " " + keyword + " "
+                    + NOISE_CLASSES[random.nextInt(NOISE_CLASSES.length)] + "\"");
+        } else {
+            write(writer, " class=\"" + keyword + "\"");
+        }
+    }
+
+    private void write(Writer writer, String text) throws IOException {
+        writer.write(text);
+        size += text.length();
+    }
+
+    /**
+     * @return the number of hentry nodes containing an error in the last generated document
+     */
+    public int getInvalidEntryCount() {
+        return invalidEntryCount;
+    }
+
+    /**
+     * @return the number of hentry nodes of the last generated document
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public int getFeeds() {
+        return feeds;
+    }
+
+    public void setFeeds(int feeds) {
+        this.feeds = feeds;
+    }
+
+    public int getEntriesPerFeed() {
+        return entriesPerFeed;
+    }
+
+    public void setEntriesPerFeed(int entriesPerFeed) {
+        this.entriesPerFeed = entriesPerFeed;
+    }
+
+    public int getNestingDepth() {
+        return nestingDepth;
+    }
+
+    public void setNestingDepth(int nestingDepth) {
+        this.nestingDepth = nestingDepth;
+    }
+
+    public double getAttributeNoise() {
+        return attributeNoise;
+    }
+
+    /**
+     * @param attributeNoise probability, from 0 to 1, for an element to get noise attributes
+     */
+    public void setAttributeNoise(double attributeNoise) {
+        this.attributeNoise = attributeNoise;
+    }
+
+    public double getInvalidRatio() {
+        return invalidRatio;
+    }
+
+    /**
+     * @param invalidRatio probability, from 0 to 1, for a hentry to contain an error
+     */
+    public void setInvalidRatio(double invalidRatio) {
+        this.invalidRatio = invalidRatio;
+    }
+
+    public long getTargetSize() {
+        return targetSize;
+    }
+
+    /**
+     * @param targetSize minimum size of the document in characters; 0 to use the number of feeds
+     */
+    public void setTargetSize(long targetSize) {
+        this.targetSize = targetSize;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Writes a document to the file given on the command line.<br>
+     * @param args command line arguments
+     */
+    public static void main(String[] args) throws IOException {
+
+        CorpusGenerator generator = new CorpusGenerator();
+        String fileName = null;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-feeds")) {
+                generator.setFeeds(Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-entries")) {
+                generator.setEntriesPerFeed(Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-depth")) {
+                generator.setNestingDepth(Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-noise")) {
+                generator.setAttributeNoise(Double.parseDouble(args[++i]));
+            } else if (args[i].equals("-invalid")) {
+                generator.setInvalidRatio(Double.parseDouble(args[++i]));
+            } else if (args[i].equals("-size")) {
+                generator.setTargetSize(Long.parseLong(args[++i]));
+            } else if (args[i].equals("-seed")) {
+                generator.setSeed(Long.parseLong(args[++i]));
+            } else {
+                fileName = args[i];
+            }
+        }
+
+        if (fileName == null) {
+            System.err.println("Usage: CorpusGenerator [-feeds n] [-entries n] [-depth n] [-noise ratio] [-invalid ratio] [-size bytes] [-seed n] file");
+            System.exit(2);
+        }
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), "UTF-8"));
+        try {
+            long size = generator.generate(writer);
+            System.out.println("Written " + size + " characters, " + generator.getEntryCount() + " hentry nodes, "
+                    + generator.getInvalidEntryCount() + " invalid");
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package it.pronetics.madstore.hatom.netbeans.benchmark;
+
+import it.pronetics.madstore.hatom.netbeans.validator.engine.ValidationMode;
+import it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorEngine;
+import java.io.ByteArrayInputStream;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for the synthetic hAtom corpus generator.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public class CorpusGeneratorTest {
+
+    public CorpusGeneratorTest() {
+    }
+
+    /**
+     * The same settings always generate the same document.
+     */
+    @Test
+    public void testDeterministic() {
+
+        System.out.println("Testing corpus generation is deterministic");
+
+        CorpusGenerator generator = newGenerator(0.3);
+
+        String first = generator.generate();
+        assertEquals(first, generator.generate());
+
+        generator.setSeed(generator.getSeed() + 1);
+        assertFalse(first.equals(generator.generate()));
+    }
+
+    /**
+     * Without invalid entries, the generated document is valid in all validation modes.
+     */
+    @Test
+    public void testValid() throws Exception {
+
+        System.out.println("Testing generated valid corpus");
+
+        String document = newGenerator(0).generate();
+
+        for (ValidationMode mode : ValidationMode.values()) {
+            assertEquals(mode.toString(), 0, validate(document, mode));
+        }
+    }
+
+    /**
+     * Each invalid entry produces a report.
+     */
+    @Test
+    public void testInvalid() throws Exception {
+
+        System.out.println("Testing generated invalid corpus");
+
+        CorpusGenerator generator = newGenerator(0.5);
+        String document = generator.generate();
+
+        assertTrue(generator.getInvalidEntryCount() > 0);
+
+        for (ValidationMode mode : ValidationMode.values()) {
+            assertEquals(mode.toString(), generator.getInvalidEntryCount(), validate(document, mode));
+        }
+    }
+
+    /**
+     * With a target size, feeds are added until the document is big enough.
+     */
+    @Test
+    public void testTargetSize() {
+
+        System.out.println("Testing generated corpus size");
+
+        CorpusGenerator generator = newGenerator(0);
+        generator.setFeeds(1);
+        generator.setTargetSize(200000);
+
+        String document = generator.generate();
+
+        assertTrue(document.length() >= 200000);
+        assertTrue(generator.getEntryCount() > generator.getEntriesPerFeed());
+    }
+
+    private CorpusGenerator newGenerator(double invalidRatio) {
+
+        CorpusGenerator generator = new CorpusGenerator();
+        generator.setFeeds(3);
+        generator.setEntriesPerFeed(40);
+        generator.setNestingDepth(2);
+        generator.setAttributeNoise(0.5);
+        generator.setInvalidRatio(invalidRatio);
+        generator.setSeed(42);
+
+        return generator;
+    }
+
+    private int validate(String document, ValidationMode mode) throws Exception {
+
+        ValidatorEngine engine = new ValidatorEngine();
+        engine.setValidationMode(mode);
+        engine.validate(new ByteArrayInputStream(document.getBytes("UTF-8")));
+
+        return engine.getReports().size();
+    }
+}
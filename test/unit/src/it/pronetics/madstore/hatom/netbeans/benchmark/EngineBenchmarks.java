@@ -0,0 +1,272 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package it.pronetics.madstore.hatom.netbeans.benchmark;
+
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.HfeedAnalyzerTest.XHTML_DIR;
+
+import it.pronetics.madstore.hatom.netbeans.syntax.HatomTokenId;
+import it.pronetics.madstore.hatom.netbeans.validator.engine.HentryAnalyzer;
+import it.pronetics.madstore.hatom.netbeans.validator.engine.HfeedAnalyzer;
+import it.pronetics.madstore.hatom.netbeans.validator.engine.KeywordSet;
+import it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorEngine;
+import it.pronetics.madstore.hatom.netbeans.validator.engine.XMLUtils;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.netbeans.api.lexer.TokenHierarchy;
+import org.netbeans.api.lexer.TokenSequence;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * Benchmarks of the validator engine and of the hAtom lexer.<br>
+ * Each benchmark is run over the test fixtures <code>valtest_003_massive.xhtml</code> and
+ * <code>realpage_test.xhtml</code>, and over feeds with 1000, 10000 and 100000 hentry nodes generated by
+ * <code>CorpusGenerator</code>:
+ * <ul>
+ * <li><b>getDocument</b>: <code>XMLUtils.getDocument</code>, parsing only</li>
+ * <li><b>HfeedAnalyzer</b>: <code>HfeedAnalyzer.analyze</code> over an already parsed document</li>
+ * <li><b>HentryAnalyzer</b>: <code>HentryAnalyzer.analyze</code> over each hfeed node of an already parsed document</li>
+ * <li><b>HatomLexer</b>: lexing of the whole document through <code>HatomLexer.nextToken</code></li>
+ * </ul>
+ * Analyzer benchmarks reuse the same document: the keyword bits cached in its nodes are cleared before each
+ * operation, out of the measured time, so that every operation tokenizes the class attributes again.<br>
+ * <br>
+ * Usage: <code>java EngineBenchmarks [-warmup ms] [-time ms] [-sizes n,n,...] [-save file] [-baseline file]
+ * [-tolerance percent] [name...]</code><br>
+ * When names are given, only the benchmarks whose name contains one of them are run. The exit status is 1
+ * if any regression has been found comparing with the baseline file.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.2
+ */
+public class EngineBenchmarks {
+
+    // Fixtures used as benchmark input
+    private static final String[] FILES = {"valtest_003_massive.xhtml", "realpage_test.xhtml"};
+
+    // Default number of hentry nodes of the generated feeds
+    private static final int[] DEFAULT_SIZES = {1000, 10000, 100000};
+
+    /**
+     * Runs the benchmarks selected by the command line arguments.<br>
+     * @param args command line arguments
+     */
+    public static void main(String[] args) throws Exception {
+
+        BenchmarkRunner runner = new BenchmarkRunner(System.out);
+        int[] sizes = DEFAULT_SIZES;
+        String saveFile = null;
+        String baselineFile = null;
+        List<String> names = new ArrayList<String>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-warmup")) {
+                runner.setWarmupTime(Long.parseLong(args[++i]));
+            } else if (args[i].equals("-time")) {
+                runner.setMeasureTime(Long.parseLong(args[++i]));
+            } else if (args[i].equals("-sizes")) {
+                sizes = parseSizes(args[++i]);
+            } else if (args[i].equals("-save")) {
+                saveFile = args[++i];
+            } else if (args[i].equals("-baseline")) {
+                baselineFile = args[++i];
+            } else if (args[i].equals("-tolerance")) {
+                runner.setTolerance(Integer.parseInt(args[++i]));
+            } else {
+                names.add(args[i]);
+            }
+        }
+
+        for (String fileName : FILES) {
+            runAll(runner, fileName, readFixture(fileName), names);
+        }
+
+        for (int size : sizes) {
+            CorpusGenerator generator = new CorpusGenerator();
+            generator.setEntriesPerFeed(size);
+
+            runAll(runner, "feed-" + size, generator.generate().getBytes("UTF-8"), names);
+        }
+
+        if (saveFile != null) {
+            runner.save(saveFile);
+        }
+
+        if (baselineFile != null && runner.compare(baselineFile) > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs all the benchmarks selected by the given names over the given input.<br>
+     */
+    private static void runAll(BenchmarkRunner runner, String inputName, byte[] input, List<String> names) throws Exception {
+
+        List<BenchmarkRunner.Benchmark> benchmarks = new ArrayList<BenchmarkRunner.Benchmark>();
+        benchmarks.add(getDocument(inputName, input));
+        benchmarks.add(hfeedAnalyzer(inputName, input));
+        benchmarks.add(hentryAnalyzer(inputName, input));
+        benchmarks.add(hatomLexer(inputName, input));
+
+        for (BenchmarkRunner.Benchmark benchmark : benchmarks) {
+            if (isSelected(benchmark.getName(), names)) {
+                runner.run(benchmark);
+            }
+        }
+    }
+
+    private static boolean isSelected(String benchmarkName, List<String> names) {
+
+        if (names.isEmpty()) {
+            return true;
+        }
+
+        for (String name : names) {
+            if (benchmarkName.indexOf(name) >= 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static BenchmarkRunner.Benchmark getDocument(String inputName, final byte[] input) {
+
+        return new BenchmarkRunner.Benchmark("getDocument " + inputName, input.length) {
+
+            public Object run() throws Exception {
+                return XMLUtils.getDocument(new ByteArrayInputStream(input));
+            }
+        };
+    }
+
+    private static BenchmarkRunner.Benchmark hfeedAnalyzer(String inputName, byte[] input) throws IOException {
+
+        final Document document = XMLUtils.getDocument(new ByteArrayInputStream(input));
+
+        return new BenchmarkRunner.Benchmark("HfeedAnalyzer " + inputName, input.length) {
+
+            @Override
+            public void setUp() {
+                KeywordSet.clear(document.getDocumentElement());
+            }
+
+            public Object run() throws Exception {
+
+                ValidatorEngine engine = new ValidatorEngine();
+
+                HfeedAnalyzer analyzer = new HfeedAnalyzer();
+                analyzer.init(document);
+                analyzer.setEngine(engine);
+                analyzer.analyze();
+
+                return engine.getReports();
+            }
+        };
+    }
+
+    private static BenchmarkRunner.Benchmark hentryAnalyzer(String inputName, byte[] input) throws IOException {
+
+        final Document document = XMLUtils.getDocument(new ByteArrayInputStream(input));
+        final List<Node> hfeedNodes = new ArrayList<Node>();
+
+        Node root = document.getDocumentElement();
+        for (Node n = root; n != null; n = XMLUtils.nextNode(n, root)) {
+            if (XMLUtils.nodeAttributeMatches(n, ValidatorEngine.ATTR_CLASS, HfeedAnalyzer.KEYWORD_HFEED)) {
+                hfeedNodes.add(n);
+            }
+        }
+
+        return new BenchmarkRunner.Benchmark("HentryAnalyzer " + inputName, input.length) {
+
+            @Override
+            public void setUp() {
+                KeywordSet.clear(document.getDocumentElement());
+            }
+
+            public Object run() throws Exception {
+
+                ValidatorEngine engine = new ValidatorEngine();
+
+                for (Node hfeedNode : hfeedNodes) {
+                    HentryAnalyzer analyzer = new HentryAnalyzer(hfeedNode);
+                    analyzer.setXhtmlDoc(document);
+                    analyzer.setEngine(engine);
+                    analyzer.analyze();
+                }
+
+                return engine.getReports();
+            }
+        };
+    }
+
+    private static BenchmarkRunner.Benchmark hatomLexer(String inputName, byte[] input) throws IOException {
+
+        final String text = new String(input, "UTF-8");
+
+        return new BenchmarkRunner.Benchmark("HatomLexer " + inputName, input.length) {
+
+            public Object run() throws Exception {
+
+                TokenHierarchy<String> hierarchy = TokenHierarchy.create(text, HatomTokenId.language());
+                TokenSequence<?> sequence = hierarchy.tokenSequence(HatomTokenId.language());
+
+                int count = 0;
+                while (sequence.moveNext()) {
+                    count++;
+                }
+
+                return Integer.valueOf(count);
+            }
+        };
+    }
+
+    private static byte[] readFixture(String fileName) throws IOException {
+
+        InputStream is = EngineBenchmarks.class.getResourceAsStream(XHTML_DIR + fileName);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        try {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = is.read(buffer)) > 0) {
+                os.write(buffer, 0, read);
+            }
+        } finally {
+            is.close();
+        }
+
+        return os.toByteArray();
+    }
+
+    private static int[] parseSizes(String value) {
+
+        String[] tokens = value.split(",");
+        int[] sizes = new int[tokens.length];
+
+        for (int i = 0; i < tokens.length; i++) {
+            sizes[i] = Integer.parseInt(tokens[i].trim());
+        }
+
+        return sizes;
+    }
+}
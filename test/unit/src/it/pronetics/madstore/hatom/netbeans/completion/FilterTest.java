@@ -0,0 +1,74 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.completion;
+
+import javax.swing.text.DefaultStyledDocument;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for the completion filter.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public class FilterTest {
+
+    public FilterTest() {
+    }
+
+    /**
+     * The filter starts after the nearest left border in the line.
+     */
+    @Test
+    public void testCreate() {
+
+        System.out.println("create");
+
+        Filter filter = Filter.create("<div class=\"hentry entry-t", 100);
+        assertEquals("entry-t", filter.getText());
+        assertEquals(118, filter.getFilterOffset());
+
+        filter = Filter.create("<div class=\"", 100);
+        assertEquals(Filter.EMPRTY_STRING, filter.getText());
+        assertEquals(111, filter.getFilterOffset());
+
+        filter = Filter.create("hentry", 100);
+        assertEquals("hentry", filter.getText());
+        assertEquals(99, filter.getFilterOffset());
+    }
+
+    /**
+     * Only the caret line is read from the document.
+     */
+    @Test
+    public void testCreateFromDocument() throws Exception {
+
+        System.out.println("createFromDocument");
+
+        DefaultStyledDocument doc = new DefaultStyledDocument();
+        doc.insertString(0, "<div class=\"hfeed\">\nentr\n<p class=\"up", null);
+
+        Filter filter = Filter.create(doc, doc.getLength());
+        assertEquals("up", filter.getText());
+        assertEquals(doc.getLength() - 3, filter.getFilterOffset());
+
+        filter = Filter.create(doc, 24);
+        assertEquals("entr", filter.getText());
+        assertEquals(19, filter.getFilterOffset());
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.completion;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for the completion keyword index and scopes.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.1
+ */
+public class HatomCompletionIndexTest {
+
+    public HatomCompletionIndexTest() {
+    }
+
+    /**
+     * Keywords are found by prefix, and only in their scope.
+     */
+    @Test
+    public void testGetItems() {
+
+        System.out.println("getItems");
+
+        HatomCompletionIndex index = HatomCompletionIndex.getIndex();
+
+        assertEquals(list("entry-content", "entry-key", "entry-summary", "entry-title"),
+                getTexts(index.getItems("entry-", CompletionScope.ENTRY)));
+        assertEquals(list(), getTexts(index.getItems("entry-", CompletionScope.FEED)));
+        assertEquals(list("hentry", "hfeed"), getTexts(index.getItems("h", CompletionScope.DOCUMENT)));
+        assertEquals(list("feed-key"), getTexts(index.getItems("f", CompletionScope.FEED)));
+        assertEquals(list(), getTexts(index.getItems("f", CompletionScope.DOCUMENT)));
+        assertEquals(list(), getTexts(index.getItems("x", CompletionScope.ENTRY)));
+        assertEquals(13, index.getItems("", CompletionScope.ENTRY).size());
+        assertEquals(2, index.getItems("", CompletionScope.DOCUMENT).size());
+    }
+
+    /**
+     * Keywords of the completion scope rank first, and items are shared by the queries.
+     */
+    @Test
+    public void testRanking() {
+
+        System.out.println("ranking");
+
+        HatomCompletionIndex index = HatomCompletionIndex.getIndex();
+
+        HatomCompletionItem hentry = index.getItems("hentry", CompletionScope.DOCUMENT).get(0);
+        assertEquals(0, hentry.getSortPriority());
+        assertSame(hentry, index.getItems("hen", CompletionScope.DOCUMENT).get(0));
+
+        HatomCompletionItem outerHentry = index.getItems("hentry", CompletionScope.ENTRY).get(0);
+        assertEquals(1, outerHentry.getSortPriority());
+        assertEquals(0, index.getItems("entry-title", CompletionScope.ENTRY).get(0).getSortPriority());
+    }
+
+    /**
+     * Narrowing a result gives the same items of a new query.
+     */
+    @Test
+    public void testFilter() {
+
+        System.out.println("filter");
+
+        HatomCompletionIndex index = HatomCompletionIndex.getIndex();
+        List<HatomCompletionItem> items = index.getItems("e", CompletionScope.ENTRY);
+
+        assertEquals(index.getItems("entry-t", CompletionScope.ENTRY), HatomCompletionIndex.filter(items, "entry-t"));
+        assertEquals(list(), getTexts(HatomCompletionIndex.filter(items, "entry-x")));
+        assertSame(items, HatomCompletionIndex.filter(items, ""));
+    }
+
+    /**
+     * The scope is given by the nearest enclosing hentry or hfeed element.
+     */
+    @Test
+    public void testScope() {
+
+        System.out.println("scope");
+
+        String text = "<html><body class=\"page\"><div class='hfeed'><p class=\"x\">a</p><br/>"
+                + "<div class=\"entry hentry\"><span>t</span><span class=\"";
+
+        assertEquals(CompletionScope.ENTRY, CompletionScope.at(text, text.length()));
+        assertEquals(CompletionScope.FEED, CompletionScope.at(text, text.indexOf("<div class=\"entry")));
+        assertEquals(CompletionScope.DOCUMENT, CompletionScope.at(text, text.indexOf("<div class='hfeed'")));
+        assertEquals(CompletionScope.FEED, CompletionScope.at(text + "\"></span></div><p class=\"", text.length() + 22));
+        assertEquals(CompletionScope.DOCUMENT, CompletionScope.at("<div class=\"hentry\"></div><p class=\"", 36));
+
+        assertEquals(CompletionScope.DOCUMENT, CompletionScope.of("hentry"));
+        assertEquals(CompletionScope.FEED, CompletionScope.of("feed-key"));
+        assertEquals(CompletionScope.ENTRY, CompletionScope.of("updated"));
+    }
+
+    /**
+     * Void elements have no end tag, so they must not be taken for unclosed ancestors.
+     */
+    @Test
+    public void testScopeVoidElements() {
+
+        System.out.println("scope with void elements");
+
+        String text = "<div class=\"hfeed\"><div class=\"hentry\"><p>a<br>b<IMG src=\"x\"></p></div><div><meta name=\"m\">";
+
+        assertEquals(CompletionScope.FEED, CompletionScope.at(text, text.length()));
+        assertEquals(CompletionScope.ENTRY, CompletionScope.at(text, text.indexOf("</p>")));
+        assertEquals(CompletionScope.DOCUMENT, CompletionScope.at("<div class=\"hentry\"><hr></div><div><br>", 39));
+    }
+
+    /**
+     * When no enclosing element is found within the scanned characters, every keyword must be offered.
+     */
+    @Test
+    public void testScopeLimit() {
+
+        System.out.println("scope limit");
+
+        StringBuffer text = new StringBuffer("<div class=\"hfeed\">");
+        while (text.length() <= CompletionScope.MAX_SCAN_LENGTH) {
+            text.append("<p>text</p>");
+        }
+
+        assertEquals(CompletionScope.FEED, CompletionScope.at(text, 100));
+        assertEquals(CompletionScope.ENTRY, CompletionScope.at(text, text.length()));
+        assertEquals(CompletionScope.DOCUMENT, CompletionScope.at("<p>a</p>", 8, true));
+        assertEquals(CompletionScope.ENTRY, CompletionScope.at("<p>a</p>", 8, false));
+    }
+
+    private List<String> getTexts(List<HatomCompletionItem> items) {
+
+        List<String> texts = new ArrayList<String>();
+
+        for (HatomCompletionItem item : items) {
+            texts.add(item.getText());
+        }
+
+        return texts;
+    }
+
+    private List<String> list(String... texts) {
+
+        List<String> result = new ArrayList<String>();
+
+        for (String text : texts) {
+            result.add(text);
+        }
+
+        return result;
+    }
+}
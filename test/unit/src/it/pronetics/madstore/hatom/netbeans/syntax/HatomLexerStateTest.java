@@ -0,0 +1,74 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package it.pronetics.madstore.hatom.netbeans.syntax;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for the HatomLexer restart state.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.1
+ */
+public class HatomLexerStateTest {
+
+    public HatomLexerStateTest() {
+    }
+
+    /**
+     * States of keyword lengths are cached.
+     */
+    @Test
+    public void testBeforeKeyword() {
+
+        System.out.println("beforeKeyword");
+
+        for (String tag : TagCache.getCache().getTagList()) {
+
+            HatomLexerState state = HatomLexerState.beforeKeyword(tag.length());
+
+            assertSame(state, HatomLexerState.beforeKeyword(tag.length()));
+            assertEquals(tag.length(), state.getKeywordLength());
+        }
+
+        assertEquals(HatomLexerState.beforeKeyword(1000), HatomLexerState.beforeKeyword(1000));
+        assertFalse(HatomLexerState.beforeKeyword(5).equals(HatomLexerState.beforeKeyword(6)));
+    }
+
+    /**
+     * States of the attribute aware mode are cached too, and hold the HTML context.
+     */
+    @Test
+    public void testGet() {
+
+        System.out.println("get");
+
+        HatomLexerState state = HatomLexerState.get(6, 13, '\'', 1);
+
+        assertSame(state, HatomLexerState.get(6, 13, '\'', 1));
+        assertEquals(6, state.getKeywordLength());
+        assertEquals(13, state.getContext());
+        assertEquals('\'', state.getQuote());
+        assertEquals(1, state.getRawKind());
+
+        assertSame(HatomLexerState.beforeKeyword(6), HatomLexerState.get(6, 0, 0, 0));
+        assertFalse(state.equals(HatomLexerState.get(6, 13, '"', 1)));
+        assertEquals(HatomLexerState.get(1000, 7, 0, 0), HatomLexerState.get(1000, 7, 0, 0));
+    }
+}
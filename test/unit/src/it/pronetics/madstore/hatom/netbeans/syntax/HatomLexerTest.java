@@ -29,7 +29,7 @@ import org.netbeans.api.lexer.TokenSequence;
 /**
  *
  * @author Andrea Castello
- * @version 1.0
+ * @version 1.3
  */
 public class HatomLexerTest extends TestCase {
 
@@ -87,6 +87,97 @@ public class HatomLexerTest extends TestCase {
         
     }
 
+    /**
+     * Keywords that are part of longer words, or not delimited by quotes, spaces or tag brackets,
+     * are not KEYWORD tokens when the lexer is not attribute aware.
+     */
+    @Test
+    public void testKeywordBorders() {
+        System.out.println("keywordBorders");
+        String text = "<p class=\"xhentry hentryx entry-titles\">entry-title<hfeed>tag</p><a rel=\"tag\">";
+
+        HatomLexer.setAttributeAware(false);
+        try {
+            HatomTokenId[] ids = { HatomTokenId.TEXT, HatomTokenId.KEYWORD, HatomTokenId.TEXT, HatomTokenId.KEYWORD, HatomTokenId.TEXT };
+            String[] texts = { "<p class=\"xhentry hentryx entry-titles\">entry-title<", "hfeed", ">tag</p><a rel=\"", "tag", "\">" };
+
+            assertTokens(text, ids, texts);
+        } finally {
+            HatomLexer.setAttributeAware(true);
+        }
+    }
+
+    /**
+     * In attribute aware mode, keywords are only found in class and rel attribute values.
+     */
+    @Test
+    public void testAttributeContext() {
+        System.out.println("attributeContext");
+        String text = "<!-- <div class=\"hfeed\"> --><p title=\"hentry\" class = 'xhentry\tentry-title hentryx'>hentry "
+                + "<hfeed> \"updated\"</p><script>var s = '<a class=\"tag\">';</script><A REL=tag CLASS=\"\nbookmark\"/>";
+
+        HatomTokenId[] ids = { HatomTokenId.TEXT, HatomTokenId.KEYWORD, HatomTokenId.TEXT, HatomTokenId.KEYWORD,
+                               HatomTokenId.TEXT, HatomTokenId.KEYWORD, HatomTokenId.TEXT };
+        String[] texts = { "<!-- <div class=\"hfeed\"> --><p title=\"hentry\" class = 'xhentry\t", "entry-title",
+                           " hentryx'>hentry <hfeed> \"updated\"</p><script>var s = '<a class=\"tag\">';</script><A REL=", "tag",
+                           " CLASS=\"\n", "bookmark", "\"/>" };
+
+        assertTokens(text, ids, texts);
+    }
+
+    /**
+     * Long text tokens are split before a tag, and keywords are never split.
+     */
+    @Test
+    public void testMaxTextLength() {
+        System.out.println("maxTextLength");
+        StringBuffer text = new StringBuffer();
+        for (int i = 0; i < 20; i++) {
+            text.append("<div class=\"entry\"><span>lorem ipsum</span></div><div class=\"hentry\"></div>");
+        }
+
+        HatomLexer.setMaxTextLength(64);
+        try {
+            TokenHierarchy<String> thi = TokenHierarchy.create(text.toString(), HatomTokenId.language());
+            TokenSequence<?> sequence = thi.tokenSequence(HatomTokenId.language());
+
+            StringBuffer lexed = new StringBuffer();
+            int keywords = 0;
+            while(sequence.moveNext()){
+                String tokenText = sequence.token().text().toString();
+                lexed.append(tokenText);
+
+                if (sequence.token().id() == HatomTokenId.KEYWORD) {
+                    TestCase.assertEquals("hentry", tokenText);
+                    keywords++;
+                } else {
+                    TestCase.assertTrue("Text token is too long: " + tokenText, tokenText.length() <= 64);
+                    TestCase.assertTrue("Text token does not start with a tag: " + tokenText,
+                            tokenText.startsWith("<") || tokenText.startsWith("\""));
+                }
+            }
+
+            TestCase.assertEquals(text.toString(), lexed.toString());
+            TestCase.assertEquals(20, keywords);
+        } finally {
+            HatomLexer.setMaxTextLength(HatomLexer.DEFAULT_MAX_TEXT_LENGTH);
+        }
+    }
+
+    private void assertTokens(String text, HatomTokenId[] ids, String[] texts) {
+        TokenHierarchy<String> thi = TokenHierarchy.create(text, HatomTokenId.language());
+        TokenSequence<?> sequence = thi.tokenSequence(HatomTokenId.language());
+
+        assertTokenCount(sequence.tokenCount(), ids.length);
+
+        int i = 0;
+        while(sequence.moveNext()){
+            assertTokenEquals(sequence, ids[i]);
+            TestCase.assertEquals(texts[i], sequence.token().text().toString());
+            i++;
+        }
+    }
+
     public void assertTokenEquals(TokenSequence<?> ts, HatomTokenId id){
         Token<?> t = ts.token();
         
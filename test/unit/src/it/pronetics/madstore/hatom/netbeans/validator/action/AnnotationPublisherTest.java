@@ -0,0 +1,115 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package it.pronetics.madstore.hatom.netbeans.validator.action;
+
+import it.pronetics.madstore.hatom.netbeans.validator.engine.Report;
+import it.pronetics.madstore.hatom.netbeans.validator.engine.SourcePosition;
+
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.Position;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test of class AnnotationPublisher.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.1
+ */
+public class AnnotationPublisherTest {
+
+    /**
+     * Document that refuses to create positions while <code>broken</code> is set.<br>
+     */
+    private static class BrokenDocument extends DefaultStyledDocument {
+
+        boolean broken;
+
+        @Override
+        public synchronized Position createPosition(int offs) throws BadLocationException {
+            if (broken) {
+                throw new BadLocationException("broken", offs);
+            }
+            return super.createPosition(offs);
+        }
+    }
+
+    public AnnotationPublisherTest() {
+    }
+
+    private static Report report(String message, int offset) {
+        Report report = new Report();
+        report.setRuleId(Report.RULE_EMPTY_KEY);
+        report.setMessage(message);
+        report.setPosition(new SourcePosition(1, offset + 1, offset));
+        return report;
+    }
+
+    // Waits until all the queued batches have been applied
+    private static void flush() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            SwingUtilities.invokeAndWait(new Runnable() {
+
+                public void run() {
+                }
+            });
+        }
+    }
+
+    /**
+     * Annotations that cannot be attached must be published again by the next validation.
+     */
+    @Test
+    public void testAttachFailure() throws Exception {
+
+        System.out.println("Testing annotations that cannot be attached");
+
+        BrokenDocument document = new BrokenDocument();
+        document.insertString(0, "<html><body><div class=\"hfeed\"></div></body></html>", null);
+
+        AnnotationPublisher publisher = new AnnotationPublisher(document);
+        List<Report> reports = Arrays.asList(report("a", 5), report("b", 10));
+
+        document.broken = true;
+        publisher.publish(reports);
+        flush();
+
+        assertEquals(0, publisher.getAnnotationCount());
+
+        document.broken = false;
+        publisher.publish(reports);
+        flush();
+
+        assertEquals(2, publisher.getAnnotationCount());
+
+        publisher.dispose();
+        flush();
+
+        assertEquals(0, publisher.getAnnotationCount());
+
+        // A validation completed after the disposal must not annotate the document again
+        publisher.publish(reports);
+        flush();
+
+        assertEquals(0, publisher.getAnnotationCount());
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package it.pronetics.madstore.hatom.netbeans.validator.action;
+
+import it.pronetics.madstore.hatom.netbeans.validator.engine.Report;
+import it.pronetics.madstore.hatom.netbeans.validator.engine.SourcePosition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test of class MarkerDiff.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public class MarkerDiffTest {
+
+    public MarkerDiffTest() {
+    }
+
+    private static Report report(String ruleId, String message, int offset) {
+        Report report = new Report();
+        report.setRuleId(ruleId);
+        report.setMessage(message);
+        report.setPosition(new SourcePosition(1, offset + 1, offset));
+        return report;
+    }
+
+    private static Map<ReportKey, String> markers(List<Report> reports) {
+
+        Map<ReportKey, String> markers = new LinkedHashMap<ReportKey, String>();
+
+        for (Report report : reports) {
+            markers.put(ReportKey.of(report), report.getMessage());
+        }
+
+        return markers;
+    }
+
+    /**
+     * Only the changed reports must be added or removed.
+     */
+    @Test
+    public void testDiff() {
+
+        System.out.println("Testing marker diff");
+
+        List<Report> first = Arrays.asList(
+                report(Report.RULE_EMPTY_KEY, "a", 10),
+                report(Report.RULE_EMPTY_KEY, "b", 20),
+                report(Report.RULE_MISSING_CHILD, "c", 30));
+
+        List<Report> second = Arrays.asList(
+                report(Report.RULE_EMPTY_KEY, "a", 10),
+                report(Report.RULE_MISSING_CHILD, "c", 35),
+                report(Report.RULE_AUTHOR_FN, "d", 40));
+
+        MarkerDiff<String> diff = new MarkerDiff<String>(markers(first), second);
+
+        assertFalse(diff.isEmpty());
+        assertEquals(Arrays.asList("a"), diff.getKept());
+        assertEquals(Arrays.asList("b", "c"), diff.getRemoved());
+        assertEquals(2, diff.getAdded().size());
+        assertSame(second.get(1), diff.getAdded().get(0));
+        assertSame(second.get(2), diff.getAdded().get(1));
+
+        assertTrue(new MarkerDiff<String>(markers(second), second).isEmpty());
+    }
+
+    /**
+     * Reports with the same key must give a single marker.
+     */
+    @Test
+    public void testDuplicates() {
+
+        System.out.println("Testing marker diff duplicates");
+
+        List<Report> reports = new ArrayList<Report>();
+
+        for (int i = 0; i < 3; i++) {
+            reports.add(report(Report.RULE_DUPLICATE_KEY, "x", 5));
+        }
+
+        MarkerDiff<String> diff = new MarkerDiff<String>(new LinkedHashMap<ReportKey, String>(), reports);
+        assertEquals(1, diff.getAdded().size());
+        assertSame(reports.get(0), diff.getAdded().get(0));
+
+        diff = new MarkerDiff<String>(markers(reports), reports);
+        assertTrue(diff.isEmpty());
+        assertEquals(1, diff.getKept().size());
+    }
+
+    /**
+     * Test of equals and hashCode methods, of class ReportKey.
+     */
+    @Test
+    public void testKey() {
+
+        System.out.println("Testing report key");
+
+        ReportKey key = new ReportKey(Report.RULE_ERROR, "m", 3);
+
+        assertEquals(key, new ReportKey("error", "m", 3));
+        assertEquals(key.hashCode(), new ReportKey("error", "m", 3).hashCode());
+        assertFalse(key.equals(new ReportKey(Report.RULE_ERROR, "m", 4)));
+        assertFalse(key.equals(new ReportKey(null, "m", 3)));
+        assertEquals(new ReportKey(null, "", -1), ReportKey.of(new Report()));
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package it.pronetics.madstore.hatom.netbeans.validator.batch;
+
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.HfeedAnalyzerTest.XHTML_DIR;
+
+import it.pronetics.madstore.hatom.netbeans.validator.engine.Report;
+import it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorEngine;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for batch validation of directory trees.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public class BatchValidatorTest {
+
+    private File rootDir;
+
+    public BatchValidatorTest() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+
+        rootDir = File.createTempFile("hatom", "batch");
+        rootDir.delete();
+        rootDir.mkdir();
+
+        File subDir = new File(rootDir, "sub");
+        subDir.mkdir();
+
+        copy("hfeed_hentry_ok.xhtml", new File(rootDir, "valid.xhtml"));
+        copy("hentry_noEntryKey.xhtml", new File(subDir, "invalid.xhtml"));
+        copy("hentry_noMandatoryChildren.xhtml", new File(subDir, "invalid.html"));
+
+        // Not validated: wrong extension
+        copy("hentry_noEntryKey.xhtml", new File(subDir, "invalid.txt"));
+
+        OutputStream os = new FileOutputStream(new File(subDir, "malformed.xhtml"));
+        os.write("<html><body><div class=\"hfeed\"></body></html>".getBytes("UTF-8"));
+        os.close();
+    }
+
+    @After
+    public void tearDown() {
+        delete(rootDir);
+    }
+
+    /**
+     * All the files of the tree are validated, and each one is reported once.
+     */
+    @Test
+    public void testValidate() throws Exception {
+
+        System.out.println("Testing batch validation of a directory tree");
+
+        final List<String> validated = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> failed = Collections.synchronizedList(new ArrayList<String>());
+
+        BatchValidator validator = new BatchValidator(new BatchValidator.Listener() {
+
+            public void fileValidated(File file, List<Report> reports, long elapsedTime) {
+                validated.add(file.getName() + ":" + reports.size());
+            }
+
+            public void fileFailed(File file, Exception ex) {
+                failed.add(file.getName());
+            }
+        });
+        validator.setThreads(2);
+
+        List<File> paths = new ArrayList<File>();
+        paths.add(rootDir);
+        validator.validate(paths);
+
+        int invalidReports = countReports("hentry_noEntryKey.xhtml");
+        int htmlReports = countReports("hentry_noMandatoryChildren.xhtml");
+
+        Collections.sort(validated);
+        List<String> expected = new ArrayList<String>();
+        expected.add("invalid.html:" + htmlReports);
+        expected.add("invalid.xhtml:" + invalidReports);
+        expected.add("valid.xhtml:" + countReports("hfeed_hentry_ok.xhtml"));
+
+        assertEquals(expected, validated);
+        assertEquals(Collections.singletonList("malformed.xhtml"), failed);
+
+        assertEquals(4, validator.getFileCount());
+        assertEquals(1, validator.getFailedFileCount());
+        assertEquals(invalidReports + htmlReports, validator.getReportCount());
+        assertTrue(validator.getByteCount() > 0);
+    }
+
+    private int countReports(String fileName) throws Exception {
+
+        ValidatorEngine engine = new ValidatorEngine();
+
+        InputStream is = this.getClass().getResourceAsStream(XHTML_DIR + fileName);
+        engine.validate(is);
+        is.close();
+
+        return engine.getReports().size();
+    }
+
+    private void copy(String fileName, File file) throws IOException {
+
+        InputStream is = this.getClass().getResourceAsStream(XHTML_DIR + fileName);
+        OutputStream os = new FileOutputStream(file);
+
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = is.read(buffer)) > 0) {
+            os.write(buffer, 0, read);
+        }
+
+        os.close();
+        is.close();
+    }
+
+    private void delete(File file) {
+
+        File[] files = file.listFiles();
+
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+}
@@ -17,7 +17,6 @@
 package it.pronetics.madstore.hatom.netbeans.validator.engine;
 
 import it.pronetics.madstore.hatom.netbeans.validator.engine.AuthorVcardAnalyzer;
-import it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorCache;
 import it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorEngine;
 
 import java.io.IOException;
@@ -33,7 +32,7 @@ import static org.junit.Assert.*;
  * Simple test class for AuthorVcardAnalyzer 
  * 
  * @author Andrea Castello
- * @version 1.0
+ * @version 1.2
  */
 public class AuthorVcardAnalyzerTest {
 
@@ -45,7 +44,7 @@ public class AuthorVcardAnalyzerTest {
     public static void setUpClass() throws Exception {
         
         // We create cache that will be used to store reports fot this test class
-        ValidatorCache.getInstance().createEngine(DOC_NAME);
+        TestUtils.createEngine(DOC_NAME);
         
         
     }
@@ -103,12 +102,13 @@ public class AuthorVcardAnalyzerTest {
         instance.setAttributeName(ValidatorEngine.ATTR_CLASS);
         instance.setAttributeValue("author");
         instance.setDocumentName(DOC_NAME);
+        instance.setEngine(TestUtils.getEngine(DOC_NAME));
         
         try {
             instance.analyze();
             
-            if (ValidatorCache.getInstance().getEngine(DOC_NAME).getReports().size()>0){
-                ValidatorCache.getInstance().getEngine(DOC_NAME).getReports().clear();
+            if (TestUtils.getEngine(DOC_NAME).getReports().size()>0){
+                TestUtils.getEngine(DOC_NAME).getReports().clear();
                 return false; // Error has been found
             }
             else {
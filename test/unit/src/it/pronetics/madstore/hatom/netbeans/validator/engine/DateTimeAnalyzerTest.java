@@ -18,7 +18,6 @@ package it.pronetics.madstore.hatom.netbeans.validator.engine;
 
 import it.pronetics.madstore.hatom.netbeans.validator.engine.BaseAnalyzer;
 import it.pronetics.madstore.hatom.netbeans.validator.engine.DateTimeAnalyzer;
-import it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorCache;
 import it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorEngine;
 
 import java.io.IOException;
@@ -34,7 +33,7 @@ import static org.junit.Assert.*;
  * Simple test class for DateTimeAnalyzer 
  * 
  * @author Andrea Castello
- * @version 1.0
+ * @version 1.2
  */
 public class DateTimeAnalyzerTest {
 
@@ -48,7 +47,7 @@ public class DateTimeAnalyzerTest {
         
          
         // We create cache that will be used to store reports fot this test class
-        ValidatorCache.getInstance().createEngine(DOC_NAME);
+        TestUtils.createEngine(DOC_NAME);
         
     }
 
@@ -127,15 +126,16 @@ public class DateTimeAnalyzerTest {
         instance.setAttributeName(ValidatorEngine.ATTR_CLASS);
         instance.setAttributeValue(attributeValue);
         instance.setDocumentName(DOC_NAME);
+        instance.setEngine(TestUtils.getEngine(DOC_NAME));
         
         try {
             instance.analyze();
             
-            int reportSize = ValidatorCache.getInstance().getEngine(DOC_NAME).getReports().size(); 
+            int reportSize = TestUtils.getEngine(DOC_NAME).getReports().size(); 
             
-            TestUtils.dumpReports(ValidatorCache.getInstance().getEngine(DOC_NAME).getReports());
+            TestUtils.dumpReports(TestUtils.getEngine(DOC_NAME).getReports());
             
-            ValidatorCache.getInstance().getEngine(DOC_NAME).getReports().clear();
+            TestUtils.getEngine(DOC_NAME).getReports().clear();
           
             return reportSize;
             
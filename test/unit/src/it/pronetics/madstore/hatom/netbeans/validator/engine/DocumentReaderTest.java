@@ -0,0 +1,237 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.HfeedAnalyzerTest.XHTML_DIR;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.StyledDocument;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test of DocumentReader and of the validation of Swing documents.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.2
+ */
+public class DocumentReaderTest {
+
+    private static final String DOC_NAME = "testDocumentReader";
+    private static final String STREAM_DOC_NAME = "testDocumentReaderStream";
+
+    private static final String[] FILES = {
+        "hfeed_hentry_ok.xhtml", "multiHfeed_DuplicateKeyValue.xhtml", "hentry_noEntryKey.xhtml",
+        "hentry_invalidChildrenPosition.xhtml", "valtest_003_massive.xhtml"
+    };
+
+    // Two feeds sharing a feed key with non ASCII characters
+    private static final String NON_ASCII_XHTML =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+        "<html xmlns=\"http://www.w3.org/1999/xhtml\"><body>\n" +
+        "<p>Perch\u00e9 \u20ac \u4e2d\u6587</p>\n" +
+        "<div class=\"hfeed\"><span class=\"feed-key\" title=\"citt\u00e0 \u4e2d\"/></div>\n" +
+        "<div class=\"hfeed\"><span class=\"feed-key\" title=\"citt\u00e0 \u4e2d\"/></div>\n" +
+        "</body></html>\n";
+
+    public DocumentReaderTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        TestUtils.createEngine(DOC_NAME);
+        TestUtils.createEngine(STREAM_DOC_NAME);
+    }
+
+    /**
+     * Test of read method, of class DocumentReader.
+     */
+    @Test
+    public void testRead() throws Exception {
+
+        System.out.println("Testing document reader");
+
+        StyledDocument doc = new DefaultStyledDocument();
+        StringBuilder expected = new StringBuilder();
+
+        // Inserting at both ends and in the middle moves the gap of the document storage
+        for (int i = 0; i < 200; i++) {
+            String text = "<p>" + i + " \u00e0\u00e8</p>";
+
+            if (i % 3 == 0) {
+                doc.insertString(0, text, null);
+                expected.insert(0, text);
+            } else if (i % 3 == 1) {
+                doc.insertString(doc.getLength(), text, null);
+                expected.append(text);
+            } else {
+                int offset = doc.getLength() / 2;
+                doc.insertString(offset, text, null);
+                expected.insert(offset, text);
+            }
+        }
+
+        assertEquals(expected.toString(), read(new DocumentReader(doc), 7));
+        assertEquals(expected.toString(), read(new DocumentReader(doc), 4096));
+        assertEquals(expected.substring(10, 110), read(new DocumentReader(doc, 10, 100), 3));
+        assertEquals("", read(new DocumentReader(doc, 5, 0), 16));
+
+        Reader reader = new DocumentReader(doc);
+        reader.close();
+        assertEquals(-1, reader.read());
+    }
+
+    /**
+     * Validating a Swing document must produce the same reports of the validation of its file.
+     */
+    @Test
+    public void testValidate() throws Exception {
+
+        System.out.println("Comparing document and stream validation");
+
+        ValidationMode[] modes = { ValidationMode.SINGLE_PASS, ValidationMode.STREAMING };
+
+        for (int m = 0; m < modes.length; m++) {
+            for (int i = 0; i < FILES.length; i++) {
+
+                InputStream is = this.getClass().getResourceAsStream(XHTML_DIR + FILES[i]);
+                String text = read(new InputStreamReader(is, "UTF-8"), 4096);
+                is.close();
+
+                List<String> expected = validate(text, modes[m]);
+                List<String> found = validate(toDocument(text), modes[m]);
+
+                assertEquals(modes[m] + " " + FILES[i], expected, found);
+            }
+        }
+    }
+
+    /**
+     * Non ASCII text must not be altered, whatever the platform charset.
+     */
+    @Test
+    public void testValidateNonAscii() throws Exception {
+
+        System.out.println("Testing document validation with non ASCII text");
+
+        List<String> expected = validate(NON_ASCII_XHTML, ValidationMode.SINGLE_PASS);
+        List<String> found = validate(toDocument(NON_ASCII_XHTML), ValidationMode.SINGLE_PASS);
+
+        assertEquals(expected, found);
+        assertTrue(found.toString(), found.toString().contains("value citt\u00e0 \u4e2d is already present"));
+    }
+
+    /**
+     * Reports of a Swing document must hold the offsets of their elements.
+     */
+    @Test
+    public void testPositions() throws Exception {
+
+        System.out.println("Testing report positions");
+
+        ValidationMode[] modes = { ValidationMode.SINGLE_PASS, ValidationMode.MULTI_PASS, ValidationMode.STREAMING };
+
+        InputStream is = this.getClass().getResourceAsStream(XHTML_DIR + "hentry_noMandatoryChildren.xhtml");
+        String text = read(new InputStreamReader(is, "UTF-8"), 4096);
+        is.close();
+
+        LineMap lines = LineMap.of(text);
+
+        for (int m = 0; m < modes.length; m++) {
+
+            ValidatorEngine engine = TestUtils.getEngine(DOC_NAME);
+            engine.setValidationMode(modes[m]);
+            engine.validate(toDocument(text));
+
+            assertFalse(engine.getReports().isEmpty());
+
+            for (Report report : engine.getReports()) {
+
+                int offset = report.getOffset();
+                int tagStart = text.lastIndexOf('<', offset - 1);
+
+                // Positions follow the start tag of the reported element
+                assertEquals(modes[m] + " " + report.getMessage(), '>', text.charAt(offset - 1));
+                assertTrue(modes[m] + " " + report.getMessage(), text.startsWith("<" + report.getElement().getName(), tagStart));
+                assertEquals(offset, lines.getOffset(report.getLine(), report.getColumn()));
+            }
+
+            engine.getReports().clear();
+        }
+    }
+
+    private StyledDocument toDocument(String text) throws Exception {
+
+        StyledDocument doc = new DefaultStyledDocument();
+        doc.insertString(0, text, null);
+
+        return doc;
+    }
+
+    private List<String> validate(String text, ValidationMode mode) throws Exception {
+
+        ValidatorEngine engine = TestUtils.getEngine(STREAM_DOC_NAME);
+        engine.setValidationMode(mode);
+        engine.validate(new ByteArrayInputStream(text.getBytes("UTF-8")));
+
+        return getMessages(engine);
+    }
+
+    private List<String> validate(StyledDocument doc, ValidationMode mode) throws Exception {
+
+        ValidatorEngine engine = TestUtils.getEngine(DOC_NAME);
+        engine.setValidationMode(mode);
+        engine.validate(doc);
+
+        return getMessages(engine);
+    }
+
+    // Reports are compared regardless of their order
+    private List<String> getMessages(ValidatorEngine engine) {
+
+        List<String> messages = new ArrayList<String>();
+
+        for (Report report : engine.getReports()) {
+            messages.add(report.getMessage());
+        }
+        engine.getReports().clear();
+        Collections.sort(messages);
+
+        return messages;
+    }
+
+    private String read(Reader reader, int bufferSize) throws Exception {
+
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[bufferSize];
+        int count;
+
+        while ((count = reader.read(buffer, 0, buffer.length)) != -1) {
+            text.append(buffer, 0, count);
+        }
+
+        return text.toString();
+    }
+}
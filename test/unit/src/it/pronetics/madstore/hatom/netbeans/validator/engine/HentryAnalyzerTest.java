@@ -22,7 +22,6 @@ import it.pronetics.madstore.hatom.netbeans.validator.engine.BaseAnalyzer;
 import it.pronetics.madstore.hatom.netbeans.validator.engine.HentryAnalyzer;
 import it.pronetics.madstore.hatom.netbeans.validator.engine.HfeedAnalyzer;
 import it.pronetics.madstore.hatom.netbeans.validator.engine.Report;
-import it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorCache;
 import it.pronetics.madstore.hatom.netbeans.validator.engine.XMLUtils;
 
 import java.io.IOException;
@@ -40,7 +39,7 @@ import static org.junit.Assert.*;
 /**
  *
  * @author Andrea Castello
- * @version 1.0
+ * @version 1.2
  */
 public class HentryAnalyzerTest {
 
@@ -51,7 +50,7 @@ public class HentryAnalyzerTest {
 
     @BeforeClass
     public static void setUpClass() throws Exception {
-        ValidatorCache.getInstance().createEngine(DOC_NAME);
+        TestUtils.createEngine(DOC_NAME);
     }
 
     @AfterClass
@@ -158,17 +157,18 @@ public class HentryAnalyzerTest {
         
         analyzer.setXhtmlDoc(doc);
         analyzer.setDocumentName(DOC_NAME);
+        analyzer.setEngine(TestUtils.getEngine(DOC_NAME));
         
         try {
         	analyzer.analyze();
             
-            List<Report> reps = ValidatorCache.getInstance().getEngine(DOC_NAME).getReports(); 
+            List<Report> reps = TestUtils.getEngine(DOC_NAME).getReports(); 
             
             TestUtils.dumpReports(reps);
             
             int reportSize = reps.size(); 
             
-            ValidatorCache.getInstance().getEngine(DOC_NAME).getReports().clear();
+            TestUtils.getEngine(DOC_NAME).getReports().clear();
             
             return reportSize;
             
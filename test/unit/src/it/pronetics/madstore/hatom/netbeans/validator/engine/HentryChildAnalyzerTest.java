@@ -19,7 +19,6 @@ package it.pronetics.madstore.hatom.netbeans.validator.engine;
 import it.pronetics.madstore.hatom.netbeans.validator.engine.BaseAnalyzer;
 import it.pronetics.madstore.hatom.netbeans.validator.engine.HentryChildAnalyzer;
 import it.pronetics.madstore.hatom.netbeans.validator.engine.Report;
-import it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorCache;
 import it.pronetics.madstore.hatom.netbeans.validator.engine.ValidatorEngine;
 
 import java.io.IOException;
@@ -36,7 +35,7 @@ import static org.junit.Assert.*;
  * Simple test class for HentryChildAnalyzer 
  * 
  * @author Andrea Castello
- * @version 1.0
+ * @version 1.2
  */
 public class HentryChildAnalyzerTest {
     
@@ -48,7 +47,7 @@ public class HentryChildAnalyzerTest {
     @BeforeClass
     public static void setUpClass() throws Exception {
         // We create cache that will be used to store reports fot this test class
-        ValidatorCache.getInstance().createEngine(DOC_NAME);
+        TestUtils.createEngine(DOC_NAME);
     }
 
     @AfterClass
@@ -130,17 +129,18 @@ public class HentryChildAnalyzerTest {
         instance.setAttributeName(attrName);
         instance.setAttributeValue(attributeValue);
         instance.setDocumentName(DOC_NAME);
+        instance.setEngine(TestUtils.getEngine(DOC_NAME));
         
         try {
             instance.analyze();
             
-            List<Report> reps = ValidatorCache.getInstance().getEngine(DOC_NAME).getReports(); 
+            List<Report> reps = TestUtils.getEngine(DOC_NAME).getReports(); 
             
             TestUtils.dumpReports(reps);
             
             int reportSize = reps.size(); 
             
-            ValidatorCache.getInstance().getEngine(DOC_NAME).getReports().clear();
+            TestUtils.getEngine(DOC_NAME).getReports().clear();
             
             return reportSize;
             
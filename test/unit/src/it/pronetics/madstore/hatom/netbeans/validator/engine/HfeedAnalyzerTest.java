@@ -30,7 +30,7 @@ import org.w3c.dom.Document;
 /**
  * Simple test class for hAtom feed validation
  * @author Andrea Castello
- * @version 1.0
+ * @version 1.3
  */
 public class HfeedAnalyzerTest {
 
@@ -43,7 +43,7 @@ public class HfeedAnalyzerTest {
 
     @BeforeClass
     public static void setUpClass() throws Exception {
-        ValidatorCache.getInstance().createEngine(DOC_NAME);
+        TestUtils.createEngine(DOC_NAME);
     }
 
     @AfterClass
@@ -134,6 +134,65 @@ public class HfeedAnalyzerTest {
         
         multiHfeedTest();
     }
+
+    /**
+     * An analyzer whose engine has not been set must fail instead of looking up an engine by document name.
+     */
+    @Test
+    public void testNoEngine() throws Exception {
+
+        System.out.println("Tests for analysis without an engine");
+
+        InputStream is = this.getClass().getResourceAsStream(XHTML_DIR + "multiHfeed_Nested.xhtml");
+        Document doc = XMLUtils.getDocument(is);
+        is.close();
+
+        HfeedAnalyzer instance = new HfeedAnalyzer();
+        instance.init(doc);
+        instance.setDocumentName(DOC_NAME);
+
+        try {
+            instance.analyze();
+            fail("An analyzer without an engine must not look up an engine by document name");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Analysis must leave the document unchanged, so that it can be validated again with the same results.
+     */
+    @Test
+    public void testRepeatedAnalyze() throws Exception {
+
+        System.out.println("Tests for repeated validation of the same document");
+
+        InputStream is = this.getClass().getResourceAsStream(XHTML_DIR + "multiHfeed_Nested.xhtml");
+        Document doc = XMLUtils.getDocument(is);
+        is.close();
+
+        int elements = doc.getElementsByTagName("*").getLength();
+
+        HfeedAnalyzer instance = new HfeedAnalyzer();
+        instance.init(doc);
+        instance.setDocumentName(DOC_NAME);
+        instance.setEngine(TestUtils.getEngine(DOC_NAME));
+
+        List<Report> reps = TestUtils.getEngine(DOC_NAME).getReports();
+
+        instance.analyze();
+        int first = reps.size();
+        reps.clear();
+
+        assertEquals(elements, doc.getElementsByTagName("*").getLength());
+
+        instance.analyze();
+        int second = reps.size();
+        reps.clear();
+
+        assertTrue(first > 0);
+        assertEquals(first, second);
+    }
     
     private int testSingleAnalyze(InputStream is){
         
@@ -152,17 +211,18 @@ public class HfeedAnalyzerTest {
         instance.setXhtmlDoc(doc);
         instance.setNode(doc.getDocumentElement());
         instance.setDocumentName(DOC_NAME);
+        instance.setEngine(TestUtils.getEngine(DOC_NAME));
         
         try {
             instance.analyze();
             
-            List<Report> reps = ValidatorCache.getInstance().getEngine(DOC_NAME).getReports(); 
+            List<Report> reps = TestUtils.getEngine(DOC_NAME).getReports(); 
             
             TestUtils.dumpReports(reps);
             
             int reportSize = reps.size(); 
             
-            ValidatorCache.getInstance().getEngine(DOC_NAME).getReports().clear();
+            TestUtils.getEngine(DOC_NAME).getReports().clear();
             
             return reportSize;
             
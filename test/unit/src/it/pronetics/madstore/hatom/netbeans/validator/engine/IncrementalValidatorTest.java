@@ -0,0 +1,258 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.HfeedAnalyzerTest.XHTML_DIR;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.text.PlainDocument;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for incremental validation: after every change, reports must be the same of a full validation,
+ * and they must be located at the same positions.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.3
+ */
+public class IncrementalValidatorTest {
+
+    private static final String DOC_NAME = "testIncremental";
+
+    private PlainDocument document;
+    private IncrementalValidator validator;
+
+    public IncrementalValidatorTest() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        document = new PlainDocument();
+        document.insertString(0, readFile("multiHentry_duplicateEntryKeyValue.xhtml"), null);
+        validator = new IncrementalValidator(document, DOC_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        validator.dispose();
+    }
+
+    /**
+     * Changes inside a hentry content only validate the hentry again.
+     */
+    @Test
+    public void testEntryContentChange() throws Exception {
+
+        System.out.println("Testing changes inside a hentry");
+
+        assertFalse(validator.validate());
+        assertReports();
+
+        // Nothing changed
+        assertTrue(validator.validate());
+        assertReports();
+
+        // The entry-title of the first hentry is removed, then added again
+        int offset = getText().indexOf("entry-title");
+        document.remove(offset, "entry-title".length());
+        document.insertString(offset, "title", null);
+
+        assertTrue(validator.validate());
+        assertReports();
+
+        document.remove(offset, "title".length());
+        document.insertString(offset, "entry-title", null);
+
+        assertTrue(validator.validate());
+        assertReports();
+    }
+
+    /**
+     * Lines added inside a hentry move the reports that follow it.
+     */
+    @Test
+    public void testLinesChange() throws Exception {
+
+        System.out.println("Testing lines added inside a hentry");
+
+        validator.validate();
+
+        int offset = getText().indexOf('>', getText().indexOf("entry-title")) + 1;
+        document.insertString(offset, "\n\n  new\n", null);
+
+        assertTrue(validator.validate());
+        assertReports();
+
+        document.remove(offset, "\n\n  new\n".length());
+
+        assertTrue(validator.validate());
+        assertReports();
+    }
+
+    /**
+     * Reports of a hentry that had none must be placed before the reports that follow it in the document,
+     * like in a full validation.
+     */
+    @Test
+    public void testReportOrder() throws Exception {
+
+        System.out.println("Testing the order of the reports of a changed hentry");
+
+        String entry = "<div class=\"hentry\"><span class=\"entry-key\" title=\"%s\"/>"
+                + "<h3 class=\"entry-title\">t</h3><div class=\"entry-content\">c</div>"
+                + "<abbr class=\"updated\" title=\"2008-10-10T14:07:00-07:00\">d</abbr>"
+                + "<address class=\"vcard author\"><span class=\"fn\">a</span></address></div>\n";
+
+        String text = "<html><body><div class=\"hfeed\"><span class=\"feed-key\" title=\"k\"/>\n"
+                + String.format(entry, "e1")
+                + "<p class=\"entry-content\">outside any hentry</p>\n"
+                + String.format(entry, "e2")
+                + "</div></body></html>";
+
+        document.remove(0, document.getLength());
+        document.insertString(0, text, null);
+
+        assertFalse(validator.validate());
+        assertReports();
+        assertFalse(validator.getEngine().getReports().isEmpty());
+
+        // The first hentry, which had no reports, loses its updated element
+        int offset = getText().indexOf("updated");
+        document.remove(offset, "updated".length());
+        document.insertString(offset, "date", null);
+
+        assertTrue(validator.validate());
+        assertReports();
+
+        document.remove(offset, "date".length());
+        document.insertString(offset, "updated", null);
+
+        assertTrue(validator.validate());
+        assertReports();
+    }
+
+    /**
+     * Changes that affect other elements need a full validation.
+     */
+    @Test
+    public void testFeedChange() throws Exception {
+
+        System.out.println("Testing changes affecting the whole document");
+
+        validator.validate();
+
+        // A different entry-key value may change duplicate checks in the other hentries
+        int offset = getText().indexOf("entry-key");
+        offset = getText().indexOf("title=\"", offset) + "title=\"".length();
+        document.insertString(offset, "changed", null);
+
+        assertFalse(validator.validate());
+        assertReports();
+
+        // Changes outside any hentry
+        offset = getText().indexOf("hfeed");
+        document.insertString(offset, "x", null);
+
+        assertFalse(validator.validate());
+        assertReports();
+    }
+
+    /**
+     * Every change cancels the engine, and the next validation clears the request.
+     */
+    @Test
+    public void testCancelOnChange() throws Exception {
+
+        System.out.println("Testing cancellation on change");
+
+        validator.validate();
+        assertFalse(validator.getEngine().isCancelled());
+
+        document.insertString(getText().indexOf("hfeed"), "x", null);
+        assertTrue(validator.getEngine().isCancelled());
+
+        try {
+            validator.getEngine().checkCancelled();
+            fail("Engine not cancelled");
+        } catch (ValidationCancelledException ex) {
+            // expected
+        }
+
+        assertFalse(validator.validate());
+        assertFalse(validator.getEngine().isCancelled());
+        assertReports();
+    }
+
+    /**
+     * Compares the reports of the validator with the ones of a full validation.
+     */
+    private void assertReports() throws Exception {
+
+        ValidatorEngine engine = new ValidatorEngine();
+        engine.setDocumentName(DOC_NAME);
+        engine.setValidationMode(ValidationMode.STREAMING);
+        engine.validate(new ByteArrayInputStream(getText().getBytes("UTF-8")));
+
+        assertEquals(getMessages(engine.getReports()), getMessages(validator.getEngine().getReports()));
+
+        // Offsets must match the line and column numbers
+        LineMap lines = LineMap.of(getText());
+
+        for (Report report : validator.getEngine().getReports()) {
+            assertTrue(report.getMessage(), report.getOffset() >= 0);
+            assertEquals(report.getMessage(), lines.getOffset(report.getLine(), report.getColumn()), report.getOffset());
+        }
+    }
+
+    private String getText() throws Exception {
+        return document.getText(0, document.getLength());
+    }
+
+    private String readFile(String fileName) throws Exception {
+
+        InputStream is = this.getClass().getResourceAsStream(XHTML_DIR + fileName);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int read;
+
+        while ((read = is.read(buf)) > 0) {
+            out.write(buf, 0, read);
+        }
+        is.close();
+
+        return out.toString("UTF-8");
+    }
+
+    // Reports are compared in the order of the engine report list
+    private List<String> getMessages(List<Report> reports) {
+
+        List<String> messages = new ArrayList<String>();
+
+        for (Report report : reports) {
+            messages.add(report.getMessage() + " @ " + report.getNodePath() + " " + report.getPosition());
+        }
+
+        return messages;
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import java.io.ByteArrayInputStream;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import static org.junit.Assert.*;
+
+/**
+ * Test for KeywordSet and keyword based attribute matching.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.1
+ */
+public class KeywordSetTest {
+
+    public KeywordSetTest() {
+    }
+
+    /**
+     * Keywords must be found in any position of a whitespace separated value.
+     */
+    @Test
+    public void testAttributeValueMatches() {
+
+        System.out.println("Testing attribute value matching");
+
+        assertTrue(XMLUtils.attributeValueMatches("hentry", "hentry"));
+        assertTrue(XMLUtils.attributeValueMatches("hfeed hentry", "hentry"));
+        assertTrue(XMLUtils.attributeValueMatches("hentry hfeed", "hentry"));
+        assertTrue(XMLUtils.attributeValueMatches("a hentry b", "hentry"));
+        assertTrue(XMLUtils.attributeValueMatches("a\thentry\nb", "hentry"));
+        assertTrue(XMLUtils.attributeValueMatches("HEntry", "hentry"));
+        assertTrue(XMLUtils.attributeValueMatches("author vcard", "vcard author"));
+
+        assertFalse(XMLUtils.attributeValueMatches("hentryx", "hentry"));
+        assertFalse(XMLUtils.attributeValueMatches("xhentry hentryx", "hentry"));
+        assertFalse(XMLUtils.attributeValueMatches("vcard", "vcard author"));
+        assertFalse(XMLUtils.attributeValueMatches("", "hentry"));
+        assertFalse(XMLUtils.attributeValueMatches(null, "hentry"));
+    }
+
+    /**
+     * Keyword bits must agree with string matching.
+     */
+    @Test
+    public void testMask() {
+
+        System.out.println("Testing keyword masks");
+
+        long bits = KeywordSet.tokenize("foo hentry entry-title bar");
+
+        assertTrue(KeywordSet.containsAll(bits, KeywordSet.getMask("hentry")));
+        assertTrue(KeywordSet.containsAll(bits, KeywordSet.getMask("entry-title hentry")));
+        assertFalse(KeywordSet.containsAll(bits, KeywordSet.getMask("hfeed")));
+
+        // Unknown tokens cannot be represented by a mask
+        assertEquals(0, KeywordSet.getMask("foo"));
+        assertEquals(0, KeywordSet.getMask("hentry foo"));
+        assertFalse(KeywordSet.containsAll(bits, 0));
+    }
+
+    /**
+     * Node matching must work both for keywords and for generic values.
+     */
+    @Test
+    public void testNodeAttributeMatches() throws Exception {
+
+        System.out.println("Testing node attribute matching");
+
+        String xml = "<div class=\"a hentry b\" rel=\"bookmark\" title=\"x y\"/>";
+        Document doc = XMLUtils.getDocument(new ByteArrayInputStream(xml.getBytes()));
+        Element div = doc.getDocumentElement();
+
+        assertTrue(XMLUtils.nodeAttributeMatches(div, ValidatorEngine.ATTR_CLASS, "hentry"));
+        assertTrue(XMLUtils.nodeAttributeMatches(div, ValidatorEngine.ATTR_CLASS, "hentry"));
+        assertTrue(XMLUtils.nodeAttributeMatches(div, ValidatorEngine.ATTR_REL, "bookmark"));
+        assertTrue(XMLUtils.nodeAttributeMatches(div, ValidatorEngine.ATTR_CLASS, "b"));
+        assertTrue(XMLUtils.nodeAttributeMatches(div, "title", "y"));
+        assertFalse(XMLUtils.nodeAttributeMatches(div, ValidatorEngine.ATTR_REL, "hentry"));
+        assertFalse(XMLUtils.nodeAttributeMatches(div, ValidatorEngine.ATTR_CLASS, "hfeed"));
+    }
+
+    /**
+     * Clearing a subtree must make the keywords be computed again from the attributes.
+     */
+    @Test
+    public void testClear() throws Exception {
+
+        System.out.println("Testing keyword cache clearing");
+
+        String xml = "<div class=\"hfeed\"><p class=\"hentry\"/></div>";
+        Document doc = XMLUtils.getDocument(new ByteArrayInputStream(xml.getBytes()));
+        Element p = (Element) doc.getDocumentElement().getFirstChild();
+
+        assertTrue(XMLUtils.nodeAttributeMatches(p, ValidatorEngine.ATTR_CLASS, "hentry"));
+
+        // The cached bits are still used after the attribute changes
+        p.setAttribute(ValidatorEngine.ATTR_CLASS, "entry-title");
+        assertTrue(XMLUtils.nodeAttributeMatches(p, ValidatorEngine.ATTR_CLASS, "hentry"));
+
+        KeywordSet.clear(doc.getDocumentElement());
+        assertFalse(XMLUtils.nodeAttributeMatches(p, ValidatorEngine.ATTR_CLASS, "hentry"));
+        assertTrue(XMLUtils.nodeAttributeMatches(p, ValidatorEngine.ATTR_CLASS, "entry-title"));
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test of class LineMap.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.1
+ */
+public class LineMapTest {
+
+    private static final String TEXT = "<a>\n<b>\r\n\r<c/>\n\n</a>";
+
+    public LineMapTest() {
+    }
+
+    /**
+     * Test of getOffset and getLine methods, of class LineMap.
+     */
+    @Test
+    public void testOffsets() {
+
+        System.out.println("Testing line map offsets");
+
+        LineMap lines = LineMap.of(TEXT);
+
+        assertEquals(6, lines.getLineCount());
+        assertEquals(0, lines.getOffset(1, 1));
+        assertEquals(4, lines.getOffset(2, 1));
+        assertEquals(10, lines.getOffset(4, 1));
+        assertEquals(15, lines.getOffset(5, 1));
+        assertEquals(16, lines.getOffset(6, 1));
+        assertEquals(-1, lines.getOffset(7, 1));
+        assertEquals(-1, lines.getOffset(0, 1));
+
+        for (int offset = 0; offset < TEXT.length(); offset++) {
+            SourcePosition position = lines.locate(offset);
+            assertEquals(offset, position.getOffset());
+            assertEquals(offset, lines.getOffset(position.getLine(), position.getColumn()));
+        }
+
+        assertEquals(3, lines.getLine(9));
+        assertEquals(1, lines.locate(9).getColumn());
+    }
+
+    /**
+     * Text added in chunks must give the same lines, even when \r\n is split between two chunks.
+     */
+    @Test
+    public void testAdd() {
+
+        System.out.println("Testing line map chunks");
+
+        LineMap expected = LineMap.of(TEXT);
+        char[] chars = TEXT.toCharArray();
+
+        for (int chunk = 1; chunk < chars.length; chunk++) {
+
+            LineMap lines = new LineMap();
+
+            for (int i = 0; i < chars.length; i += chunk) {
+                lines.add(chars, i, Math.min(chunk, chars.length - i));
+            }
+
+            assertEquals(expected.getLineCount(), lines.getLineCount());
+
+            for (int line = 1; line <= expected.getLineCount(); line++) {
+                assertEquals(expected.getOffset(line, 1), lines.getOffset(line, 1));
+            }
+        }
+    }
+
+    /**
+     * Test of replace method, of class LineMap.
+     */
+    @Test
+    public void testReplace() {
+
+        System.out.println("Testing line map replace");
+
+        String[] replacements = { "", "x", "\n", "a\nb\n", "\r\n\r\n" };
+        int[][] ranges = { { 0, 0 }, { 1, 3 }, { 3, 5 }, { 4, 12 }, { 16, 20 }, { 20, 20 } };
+
+        for (int i = 0; i < ranges.length; i++) {
+            for (int j = 0; j < replacements.length; j++) {
+
+                int start = ranges[i][0];
+                int end = ranges[i][1];
+                String text = TEXT.substring(0, start) + replacements[j] + TEXT.substring(end);
+
+                LineMap expected = LineMap.of(text);
+                LineMap lines = LineMap.of(TEXT).replace(start, end, text, start + replacements[j].length());
+
+                assertEquals(text, expected.getLineCount(), lines.getLineCount());
+
+                for (int line = 1; line <= expected.getLineCount(); line++) {
+                    assertEquals(text, expected.getOffset(line, 1), lines.getOffset(line, 1));
+                }
+
+                // Same result when only the replacing characters, and the next one, are given
+                int newEnd = start + replacements[j].length();
+                String part = text.substring(start, Math.min(newEnd + 1, text.length()));
+                LineMap partLines = LineMap.of(TEXT).replace(start, end, part, start, newEnd);
+
+                assertEquals(text, expected.getLineCount(), partLines.getLineCount());
+
+                for (int line = 1; line <= expected.getLineCount(); line++) {
+                    assertEquals(text, expected.getOffset(line, 1), partLines.getOffset(line, 1));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.HfeedAnalyzerTest.XHTML_DIR;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that parallel validation produces the same reports, in the same order, of multi pass validation.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.1
+ */
+public class ParallelValidationTest {
+
+    private static final String DOC_NAME = "testParallel";
+
+    // Files used by HfeedAnalyzerTest and HentryAnalyzerTest
+    private static final String[] FILES = {
+        "hfeed_hentry_ok.xhtml", "hfeedNested_1level.xhtml", "hfeedNested_deeply.xhtml", "hfeedNested_multi.xhtml",
+        "hfeed_noFeedKey.xhtml", "hfeed_feedKeyNotFirst.xhtml", "hfeed_feedKeyEmpty.xhtml", "hfeed_multiFeedKey.xhtml",
+        "multiHfeed_Nested.xhtml", "multiHfeed_NoFeedKey.xhtml", "multiHfeed_EmptyFeedKey.xhtml",
+        "multiHfeed_DuplicateKeyValue.xhtml", "multiHfeed_DuplicateFeedKeyAndValue.xhtml",
+        "multiHentry_duplicateEntryKey.xhtml", "multiHentry_duplicateEntryKeyValue.xhtml",
+        "multiHentry_equalsEntryKeyInDifferentHfeed.xhtml", "hentry_noEntryKey.xhtml", "hentry_emptyEntryKey.xhtml",
+        "hentry_EntryKeyDuplicate.xhtml", "hentry_invalidChildrenPosition.xhtml", "hentry_noMandatoryChildren.xhtml",
+        "hentry_nested.xhtml", "valtest_003_massive.xhtml"
+    };
+
+    public ParallelValidationTest() {
+    }
+
+    /**
+     * Every feed is validated in parallel, whatever the number of its hentry nodes.
+     */
+    @Test
+    public void testValidate() throws Exception {
+
+        System.out.println("Comparing parallel and multi pass validation");
+
+        for (int i = 0; i < FILES.length; i++) {
+
+            List<String> expected = validate(ValidationMode.MULTI_PASS, 1, FILES[i]);
+            List<String> found = validate(ValidationMode.PARALLEL, 1, FILES[i]);
+
+            assertEquals(FILES[i], expected, found);
+        }
+    }
+
+    /**
+     * Feeds with fewer hentry nodes than the threshold are validated sequentially.
+     */
+    @Test
+    public void testThreshold() throws Exception {
+
+        System.out.println("Testing parallel validation threshold");
+
+        String fileName = "valtest_003_massive.xhtml";
+        List<String> expected = validate(ValidationMode.MULTI_PASS, 1, fileName);
+
+        // No task is submitted below the threshold
+        long taskCount = HentryAnalyzer.getParallelTaskCount();
+        assertEquals(expected, validate(ValidationMode.PARALLEL, Integer.MAX_VALUE, fileName));
+        assertEquals(taskCount, HentryAnalyzer.getParallelTaskCount());
+
+        // A task for each hentry above it
+        assertEquals(expected, validate(ValidationMode.PARALLEL, 1, fileName));
+        assertTrue(HentryAnalyzer.getParallelTaskCount() > taskCount);
+    }
+
+    /**
+     * Test of collect and setThreadKeywords methods, of class KeywordSet.
+     */
+    @Test
+    public void testThreadKeywords() throws Exception {
+
+        System.out.println("Testing thread keywords");
+
+        Document doc = TestUtils.stringToDom("<div class=\"hentry\"><span class=\"entry-title\">t</span></div>");
+        Element span = (Element) doc.getElementsByTagName("span").item(0);
+
+        Map<Node, long[]> keywords = KeywordSet.collect(doc.getDocumentElement());
+        assertEquals(2, keywords.size());
+
+        KeywordSet.setThreadKeywords(keywords);
+
+        try {
+            assertTrue(XMLUtils.nodeAttributeMatches(span, ValidatorEngine.ATTR_CLASS, Analyzer.KEYWORD_ENTRY_TITLE));
+            assertTrue(XMLUtils.nodeAttributeMatches(doc.getDocumentElement(), ValidatorEngine.ATTR_CLASS, Analyzer.KEYWORD_HENTRY));
+        } finally {
+            KeywordSet.setThreadKeywords(null);
+        }
+
+        // The user data has not been used
+        assertNull(span.getUserData(KeywordSet.class.getName()));
+    }
+
+    private List<String> validate(ValidationMode mode, int threshold, String fileName) throws Exception {
+
+        ValidatorEngine engine = new ValidatorEngine();
+        engine.setDocumentName(DOC_NAME);
+        engine.setValidationMode(mode);
+        engine.setParallelThreshold(threshold);
+
+        InputStream is = this.getClass().getResourceAsStream(XHTML_DIR + fileName);
+        engine.validate(is);
+        is.close();
+
+        // Reports are compared in their order
+        List<String> messages = new ArrayList<String>();
+
+        for (Report report : engine.getReports()) {
+            messages.add(report.getNodePath() + ": " + report.getMessage());
+        }
+
+        return messages;
+    }
+}
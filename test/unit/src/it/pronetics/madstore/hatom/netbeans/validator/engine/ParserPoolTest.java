@@ -0,0 +1,178 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import java.io.StringReader;
+import javax.xml.parsers.SAXParser;
+import org.junit.After;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.ext.DefaultHandler2;
+import org.xml.sax.helpers.DefaultHandler;
+import static org.junit.Assert.*;
+
+/**
+ * Test of class ParserPool.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public class ParserPoolTest {
+
+    private static final String XML = "<html><!-- c --><body><p class=\"hentry\">A</p></body></html>";
+
+    private static final String NAMESPACES = "http://xml.org/sax/features/namespaces";
+
+    /**
+     * Counts the comments of a document.<br>
+     */
+    private static class CommentCounter extends DefaultHandler2 {
+
+        int comments;
+
+        @Override
+        public void comment(char[] ch, int start, int length) {
+            comments++;
+        }
+    }
+
+    public ParserPoolTest() {
+    }
+
+    @After
+    public void tearDown() {
+        ParserPool.getInstance().clearFeatures();
+    }
+
+    /**
+     * The parser of a thread must be reused after being released, and not while it is in use.
+     */
+    @Test
+    public void testReuse() throws Exception {
+
+        System.out.println("Testing parser reuse");
+
+        ParserPool pool = ParserPool.getInstance();
+
+        SAXParser parser = pool.acquireParser();
+        SAXParser nested = pool.acquireParser();
+        assertNotSame(parser, nested);
+        pool.releaseParser(nested);
+        pool.releaseParser(parser);
+
+        long reuseCount = pool.getReuseCount();
+        SAXParser again = pool.acquireParser();
+        pool.releaseParser(again);
+
+        assertSame(parser, again);
+        assertEquals(reuseCount + 1, pool.getReuseCount());
+
+        Document doc = pool.newDocument();
+        assertNotSame(doc, pool.newDocument());
+    }
+
+    /**
+     * Each thread must have its own parser.
+     */
+    @Test
+    public void testThreads() throws Exception {
+
+        System.out.println("Testing parser threads");
+
+        final ParserPool pool = ParserPool.getInstance();
+        final SAXParser[] parsers = new SAXParser[1];
+
+        SAXParser parser = pool.acquireParser();
+        pool.releaseParser(parser);
+
+        Thread thread = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    parsers[0] = pool.acquireParser();
+                    pool.releaseParser(parsers[0]);
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertNotNull(parsers[0]);
+        assertNotSame(parser, parsers[0]);
+    }
+
+    /**
+     * A reused parser must not keep the handlers of the previous parsing.
+     */
+    @Test
+    public void testReset() throws Exception {
+
+        System.out.println("Testing parser reset");
+
+        CommentCounter counter = new CommentCounter();
+
+        XMLUtils.parse(new InputSource(new StringReader(XML)), counter);
+        assertEquals(1, counter.comments);
+
+        XMLUtils.parse(new InputSource(new StringReader(XML)), new DefaultHandler());
+        assertEquals(1, counter.comments);
+
+        Document doc = XMLUtils.getDocument(new InputSource(new StringReader(XML)));
+        assertEquals("html", doc.getDocumentElement().getNodeName());
+        assertEquals(1, doc.getElementsByTagName("p").getLength());
+    }
+
+    /**
+     * Parsers created before a feature change must not be reused.
+     */
+    @Test
+    public void testFeatures() throws Exception {
+
+        System.out.println("Testing parser features");
+
+        ParserPool pool = ParserPool.getInstance();
+
+        SAXParser parser = pool.acquireParser();
+        pool.releaseParser(parser);
+
+        pool.setFeature(NAMESPACES, true);
+        assertEquals(Boolean.TRUE, pool.getFeature(NAMESPACES));
+
+        SAXParser namespaceAware = pool.acquireParser();
+        pool.releaseParser(namespaceAware);
+
+        assertNotSame(parser, namespaceAware);
+        assertTrue(namespaceAware.isNamespaceAware());
+
+        try {
+            pool.setFeature("http://example.org/unknown-feature", true);
+            fail("Unknown feature accepted");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+
+        assertNull(pool.getFeature("http://example.org/unknown-feature"));
+
+        pool.clearFeatures();
+        assertNull(pool.getFeature(NAMESPACES));
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.HfeedAnalyzerTest.XHTML_DIR;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import static org.junit.Assert.*;
+
+/**
+ * Test of class Report.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.3
+ */
+public class ReportTest {
+
+    private static final String DOC_NAME = "testReport";
+
+    private static final String XHTML =
+        "<html><body><div class=\"hfeed\"><p id=\"a\" class=\"x\">A</p><p id=\"b\">B</p></div></body></html>";
+
+    public ReportTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        TestUtils.createEngine(DOC_NAME);
+    }
+
+    /**
+     * Test of getNodePath method, of class Report.
+     */
+    @Test
+    public void testGetNodePath() throws Exception {
+
+        System.out.println("Testing report node path");
+
+        Document doc = TestUtils.stringToDom(XHTML);
+        Element p = (Element) doc.getElementsByTagName("p").item(0);
+
+        assertEquals("#document > html > body > div > p", new Report("message", p).getNodePath());
+        assertEquals("#document > html > body > div > p", new DomElementInfo(p).getPath());
+        assertEquals("", new Report().getNodePath());
+
+        Report report = new Report();
+        report.setNode(doc.getDocumentElement());
+        assertEquals("#document > html", report.getNodePath());
+
+        report.setNode(p);
+        assertEquals("#document > html > body > div > p", report.getNodePath());
+    }
+
+    /**
+     * Test of getRuleId method, of class Report.
+     */
+    @Test
+    public void testRuleId() throws Exception {
+
+        System.out.println("Testing report rule id");
+
+        Report report = new Report(new String("empty-key"), "message", (Node) null);
+
+        assertSame(Report.RULE_EMPTY_KEY, report.getRuleId());
+        assertNull(new Report("message", (Node) null).getRuleId());
+
+        ValidatorEngine engine = TestUtils.getEngine(DOC_NAME);
+        Report.addErrorReport(engine, "error");
+        List<Report> reports = engine.getReports();
+        assertSame(Report.RULE_ERROR, reports.get(reports.size() - 1).getRuleId());
+        reports.clear();
+    }
+
+    /**
+     * Test of detach method, of class Report.
+     */
+    @Test
+    public void testDetach() throws Exception {
+
+        System.out.println("Testing report detach");
+
+        Document doc = TestUtils.stringToDom(XHTML);
+        Element a = (Element) doc.getElementsByTagName("p").item(0);
+        Element b = (Element) doc.getElementsByTagName("p").item(1);
+
+        Report reportA = new Report(Report.RULE_NESTED_KEYWORD, "nested", a);
+        Report reportB = new Report(Report.RULE_NESTED_KEYWORD, "nested", b);
+        String text = reportA.asString();
+
+        IdentityHashMap<Node, SaxElementInfo> ancestors = new IdentityHashMap<Node, SaxElementInfo>();
+        reportA.detach(ancestors);
+        reportB.detach(ancestors);
+
+        assertNull(reportA.getNode());
+        assertEquals("#document > html > body > div > p", reportA.getNodePath());
+        assertEquals(text, reportA.asString());
+        assertEquals("x", reportA.getElement().getAttribute("class"));
+        assertSame(Report.RULE_NESTED_KEYWORD, reportA.getRuleId());
+
+        // Ancestors are shared
+        assertSame(((SaxElementInfo) reportA.getElement()).getParent(), ((SaxElementInfo) reportB.getElement()).getParent());
+        assertEquals(3, ancestors.size());
+
+        // Nodes that are not document elements keep their path
+        Report attrReport = new Report("attribute", a.getAttributeNode("id"));
+        attrReport.detach(ancestors);
+        assertNull(attrReport.getNode());
+        assertEquals("id", attrReport.getNodePath());
+    }
+
+    /**
+     * Test of getPosition method, of class Report.
+     */
+    @Test
+    public void testPosition() throws Exception {
+
+        System.out.println("Testing report position");
+
+        Document doc = XMLUtils.getDocument(new ByteArrayInputStream(("<html>\n<body>\n  <p>A</p></body></html>").getBytes("UTF-8")));
+        Element p = (Element) doc.getElementsByTagName("p").item(0);
+
+        Report report = new Report(Report.RULE_NESTED_KEYWORD, "nested", p);
+
+        assertEquals(3, report.getLine());
+        assertEquals(6, report.getColumn());
+        assertEquals(-1, report.getOffset());
+        assertEquals(report.getPosition(), new DomElementInfo(p).getPosition());
+
+        report.detach(new IdentityHashMap<Node, SaxElementInfo>());
+        assertNull(report.getNode());
+        assertEquals(3, report.getLine());
+        assertEquals(6, report.getColumn());
+
+        // DOM documents built elsewhere have no positions
+        assertNull(new Report("message", TestUtils.stringToDom(XHTML).getDocumentElement()).getPosition());
+        assertEquals(-1, new Report().getLine());
+    }
+
+    /**
+     * Reports produced by the engine must not reference the DOM, but must keep their path.
+     */
+    @Test
+    public void testValidateReleasesDocument() throws Exception {
+
+        System.out.println("Testing validation releases the document");
+
+        ValidationMode[] modes = { ValidationMode.SINGLE_PASS, ValidationMode.MULTI_PASS };
+        ValidatorEngine engine = TestUtils.getEngine(DOC_NAME);
+
+        for (int m = 0; m < modes.length; m++) {
+
+            InputStream is = this.getClass().getResourceAsStream(XHTML_DIR + "hentry_noMandatoryChildren.xhtml");
+            Document doc = XMLUtils.getDocument(is);
+            is.close();
+
+            BaseAnalyzer analyzer = (modes[m] == ValidationMode.SINGLE_PASS) ? new SinglePassAnalyzer() : new HfeedAnalyzer();
+            analyzer.setXhtmlDoc(doc);
+            analyzer.setDocumentName(DOC_NAME);
+            analyzer.setEngine(TestUtils.getEngine(DOC_NAME));
+            analyzer.analyze();
+
+            List<String> expected = getPaths(engine.getReports());
+            engine.getReports().clear();
+
+            is = this.getClass().getResourceAsStream(XHTML_DIR + "hentry_noMandatoryChildren.xhtml");
+            engine.setValidationMode(modes[m]);
+            engine.validate(is);
+            is.close();
+
+            assertFalse(engine.getReports().isEmpty());
+
+            for (Report report : engine.getReports()) {
+                assertNull(report.getNode());
+                assertNotNull(report.getRuleId());
+            }
+
+            assertEquals(modes[m].toString(), expected, getPaths(engine.getReports()));
+            engine.getReports().clear();
+        }
+    }
+
+    private List<String> getPaths(List<Report> reports) {
+
+        List<String> paths = new ArrayList<String>();
+
+        for (Report report : reports) {
+            paths.add(report.getNodePath() + ": " + report.getMessage());
+        }
+
+        return paths;
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.HfeedAnalyzerTest.XHTML_DIR;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that single pass validation produces the same reports of HfeedAnalyzer.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.2
+ */
+public class SinglePassAnalyzerTest {
+
+    private static final String DOC_NAME = "testSinglePass";
+    private static final String LEGACY_DOC_NAME = "testSinglePassLegacy";
+
+    // Files used by HfeedAnalyzerTest and HentryAnalyzerTest
+    private static final String[] FILES = {
+        "hfeed_hentry_ok.xhtml", "hfeedNested_1level.xhtml", "hfeedNested_deeply.xhtml", "hfeedNested_multi.xhtml",
+        "hfeed_noFeedKey.xhtml", "hfeed_feedKeyNotFirst.xhtml", "hfeed_feedKeyEmpty.xhtml", "hfeed_multiFeedKey.xhtml",
+        "multiHfeed_Nested.xhtml", "multiHfeed_NoFeedKey.xhtml", "multiHfeed_EmptyFeedKey.xhtml",
+        "multiHfeed_DuplicateKeyValue.xhtml", "multiHfeed_DuplicateFeedKeyAndValue.xhtml",
+        "multiHentry_duplicateEntryKey.xhtml", "multiHentry_duplicateEntryKeyValue.xhtml",
+        "multiHentry_equalsEntryKeyInDifferentHfeed.xhtml", "hentry_noEntryKey.xhtml", "hentry_emptyEntryKey.xhtml",
+        "hentry_EntryKeyDuplicate.xhtml", "hentry_invalidChildrenPosition.xhtml", "hentry_noMandatoryChildren.xhtml",
+        "hentry_nested.xhtml", "valtest_003_massive.xhtml"
+    };
+
+    public SinglePassAnalyzerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        TestUtils.createEngine(DOC_NAME);
+        TestUtils.createEngine(LEGACY_DOC_NAME);
+    }
+
+    /**
+     * Test of analyze method, of class SinglePassAnalyzer.
+     */
+    @Test
+    public void testAnalyze() throws Exception {
+
+        System.out.println("Comparing single pass and multi pass validation");
+
+        for (int i = 0; i < FILES.length; i++) {
+
+            List<String> expected = getMessages(analyze(new HfeedAnalyzer(), FILES[i], LEGACY_DOC_NAME));
+            List<String> found = getMessages(analyze(new SinglePassAnalyzer(), FILES[i], DOC_NAME));
+
+            assertEquals(FILES[i], expected, found);
+        }
+    }
+
+    /**
+     * Single pass validation must not change the document.
+     */
+    @Test
+    public void testDocumentUnchanged() throws Exception {
+
+        System.out.println("Testing document is unchanged");
+
+        InputStream is = this.getClass().getResourceAsStream(XHTML_DIR + "multiHfeed_Nested.xhtml");
+        Document doc = XMLUtils.getDocument(is);
+        is.close();
+
+        int before = doc.getElementsByTagName("*").getLength();
+
+        SinglePassAnalyzer analyzer = new SinglePassAnalyzer();
+        analyzer.init(doc);
+        analyzer.setDocumentName(DOC_NAME);
+        analyzer.setEngine(TestUtils.getEngine(DOC_NAME));
+        analyzer.analyze();
+
+        TestUtils.getEngine(DOC_NAME).getReports().clear();
+
+        assertEquals(before, doc.getElementsByTagName("*").getLength());
+    }
+
+    private List<Report> analyze(BaseAnalyzer analyzer, String fileName, String docName) throws Exception {
+
+        InputStream is = this.getClass().getResourceAsStream(XHTML_DIR + fileName);
+        Document doc = XMLUtils.getDocument(is);
+        is.close();
+
+        analyzer.setXhtmlDoc(doc);
+        analyzer.setDocumentName(docName);
+        analyzer.setEngine(TestUtils.getEngine(docName));
+        analyzer.analyze();
+
+        List<Report> reports = new ArrayList<Report>(TestUtils.getEngine(docName).getReports());
+        TestUtils.getEngine(docName).getReports().clear();
+
+        return reports;
+    }
+
+    // Reports are compared regardless of their order
+    private List<String> getMessages(List<Report> reports) {
+
+        List<String> messages = new ArrayList<String>();
+
+        for (Report report : reports) {
+            messages.add(report.getMessage());
+        }
+        Collections.sort(messages);
+
+        return messages;
+    }
+}
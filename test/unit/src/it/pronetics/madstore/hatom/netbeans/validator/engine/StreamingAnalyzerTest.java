@@ -0,0 +1,148 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.HfeedAnalyzerTest.XHTML_DIR;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that streaming validation produces the same reports of single pass validation.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.2
+ */
+public class StreamingAnalyzerTest {
+
+    private static final String DOC_NAME = "testStreaming";
+    private static final String SINGLE_PASS_DOC_NAME = "testStreamingSinglePass";
+
+    // Files used by HfeedAnalyzerTest and HentryAnalyzerTest
+    private static final String[] FILES = {
+        "hfeed_hentry_ok.xhtml", "hfeedNested_1level.xhtml", "hfeedNested_deeply.xhtml", "hfeedNested_multi.xhtml",
+        "hfeed_noFeedKey.xhtml", "hfeed_feedKeyNotFirst.xhtml", "hfeed_feedKeyEmpty.xhtml", "hfeed_multiFeedKey.xhtml",
+        "multiHfeed_Nested.xhtml", "multiHfeed_NoFeedKey.xhtml", "multiHfeed_EmptyFeedKey.xhtml",
+        "multiHfeed_DuplicateKeyValue.xhtml", "multiHfeed_DuplicateFeedKeyAndValue.xhtml",
+        "multiHentry_duplicateEntryKey.xhtml", "multiHentry_duplicateEntryKeyValue.xhtml",
+        "multiHentry_equalsEntryKeyInDifferentHfeed.xhtml", "hentry_noEntryKey.xhtml", "hentry_emptyEntryKey.xhtml",
+        "hentry_EntryKeyDuplicate.xhtml", "hentry_invalidChildrenPosition.xhtml", "hentry_noMandatoryChildren.xhtml",
+        "hentry_nested.xhtml", "valtest_003_massive.xhtml"
+    };
+
+    public StreamingAnalyzerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        TestUtils.createEngine(DOC_NAME);
+        TestUtils.createEngine(SINGLE_PASS_DOC_NAME);
+    }
+
+    /**
+     * Test of analyze method, of class StreamingAnalyzer.
+     */
+    @Test
+    public void testAnalyze() throws Exception {
+
+        System.out.println("Comparing streaming and single pass validation");
+
+        for (int i = 0; i < FILES.length; i++) {
+
+            List<String> expected = getMessages(analyzeDom(FILES[i]));
+            List<String> found = getMessages(analyzeStream(FILES[i]));
+
+            assertEquals(FILES[i], expected, found);
+        }
+    }
+
+    /**
+     * Streaming reports must carry the element path, since no DOM node is available.
+     */
+    @Test
+    public void testReportPath() throws Exception {
+
+        System.out.println("Testing streaming report paths");
+
+        List<Report> reports = analyzeStream("hentry_noEntryKey.xhtml");
+
+        assertFalse(reports.isEmpty());
+
+        for (Report report : reports) {
+            assertNull(report.getNode());
+            assertNotNull(report.getElement());
+            assertTrue(report.getNodePath(), report.getNodePath().startsWith("#document > "));
+            assertTrue(report.getNodePath().endsWith(report.getElement().getName()));
+        }
+    }
+
+    private List<Report> analyzeDom(String fileName) throws Exception {
+
+        InputStream is = this.getClass().getResourceAsStream(XHTML_DIR + fileName);
+        Document doc = XMLUtils.getDocument(is);
+        is.close();
+
+        SinglePassAnalyzer analyzer = new SinglePassAnalyzer();
+        analyzer.init(doc);
+        analyzer.setDocumentName(SINGLE_PASS_DOC_NAME);
+        analyzer.setEngine(TestUtils.getEngine(SINGLE_PASS_DOC_NAME));
+        analyzer.analyze();
+
+        return getReports(SINGLE_PASS_DOC_NAME);
+    }
+
+    private List<Report> analyzeStream(String fileName) throws Exception {
+
+        InputStream is = this.getClass().getResourceAsStream(XHTML_DIR + fileName);
+
+        StreamingAnalyzer analyzer = new StreamingAnalyzer();
+        analyzer.init(is);
+        analyzer.setDocumentName(DOC_NAME);
+        analyzer.setEngine(TestUtils.getEngine(DOC_NAME));
+        analyzer.analyze();
+        is.close();
+
+        return getReports(DOC_NAME);
+    }
+
+    private List<Report> getReports(String docName) {
+
+        List<Report> reports = new ArrayList<Report>(TestUtils.getEngine(docName).getReports());
+        TestUtils.getEngine(docName).getReports().clear();
+
+        return reports;
+    }
+
+    // Reports are compared regardless of their order
+    private List<String> getMessages(List<Report> reports) {
+
+        List<String> messages = new ArrayList<String>();
+
+        for (Report report : reports) {
+            messages.add(report.getMessage());
+        }
+        Collections.sort(messages);
+
+        return messages;
+    }
+}
@@ -1,7 +1,9 @@
 package it.pronetics.madstore.hatom.netbeans.validator.engine;
 
 import java.io.*;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.xml.parsers.*;
 import org.w3c.dom.*;
 import org.xml.sax.*;
@@ -10,10 +12,35 @@ import org.xml.sax.*;
  * Convenience methods used in tests.
  * 
  * @author Andrea Castello
- * @version 1.1
+ * @version 1.2
  */
 public class TestUtils {
 
+    // Engines of the test documents, by document name
+    private static final Map<String, ValidatorEngine> ENGINES = new HashMap<String, ValidatorEngine>();
+
+    /**
+     * Creates a new engine for the given test document, replacing the previous one.<br>
+     */
+    public static synchronized ValidatorEngine createEngine(String documentName) {
+
+        ValidatorEngine engine = new ValidatorEngine();
+        engine.setDocumentName(documentName);
+        ENGINES.put(documentName, engine);
+
+        return engine;
+    }
+
+    /**
+     * Returns the engine of the given test document, creating it if needed.<br>
+     */
+    public static synchronized ValidatorEngine getEngine(String documentName) {
+
+        ValidatorEngine engine = ENGINES.get(documentName);
+
+        return (engine != null) ? engine : createEngine(documentName);
+    }
+
     public static Document stringToDom(String xmlSource) 
             throws SAXException, ParserConfigurationException, IOException {
      
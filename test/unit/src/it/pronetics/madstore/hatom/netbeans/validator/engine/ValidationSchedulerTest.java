@@ -0,0 +1,172 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import static it.pronetics.madstore.hatom.netbeans.validator.engine.HfeedAnalyzerTest.XHTML_DIR;
+
+import it.pronetics.madstore.hatom.netbeans.benchmark.CorpusGenerator;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.text.PlainDocument;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for background validation and validation cancellation.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.2
+ */
+public class ValidationSchedulerTest {
+
+    private static final String DOC_NAME = "testScheduler";
+
+    public ValidationSchedulerTest() {
+    }
+
+    /**
+     * A burst of changes is validated once, after the last change.
+     */
+    @Test
+    public void testDebounce() throws Exception {
+
+        System.out.println("Testing background validation of a burst of changes");
+
+        PlainDocument document = new PlainDocument();
+        document.insertString(0, "<html><body><div class=\"hfeed\"></div></body></html>", null);
+
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final int[] reportCount = new int[1];
+
+        ValidationScheduler scheduler = new ValidationScheduler(document, DOC_NAME, new ValidationScheduler.Listener() {
+
+            public void validationCompleted(List<Report> reports, long elapsedTime) {
+                reportCount[0] = reports.size();
+                completed.incrementAndGet();
+            }
+
+            public void validationFailed(Exception ex) {
+                failed.incrementAndGet();
+            }
+        }, 300);
+
+        try {
+            // Adds the feed-key one character at a time
+            String feedKey = "<span class=\"feed-key\" title=\"k\"/>";
+            int offset = document.getText(0, document.getLength()).indexOf("</div>");
+
+            for (int i = 0; i < feedKey.length(); i++) {
+                document.insertString(offset + i, feedKey.substring(i, i + 1), null);
+            }
+
+            TimeUnit.MILLISECONDS.sleep(1500);
+
+            assertEquals(1, completed.get());
+            assertEquals(0, failed.get());
+            assertEquals(0, reportCount[0]);
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    /**
+     * A validation running when the scheduler is disposed is cancelled, and its result is not notified.
+     */
+    @Test
+    public void testDispose() throws Exception {
+
+        System.out.println("Testing disposal during a validation");
+
+        CorpusGenerator generator = new CorpusGenerator();
+        generator.setEntriesPerFeed(20000);
+
+        PlainDocument document = new PlainDocument();
+        document.insertString(0, generator.generate(), null);
+
+        final AtomicInteger notified = new AtomicInteger();
+
+        ValidationScheduler.Listener listener = new ValidationScheduler.Listener() {
+
+            public void validationCompleted(List<Report> reports, long elapsedTime) {
+                notified.incrementAndGet();
+            }
+
+            public void validationFailed(Exception ex) {
+                notified.incrementAndGet();
+            }
+        };
+
+        ValidationScheduler scheduler = new ValidationScheduler(document, DOC_NAME, listener);
+        scheduler.validateNow();
+
+        TimeUnit.MILLISECONDS.sleep(100);
+        scheduler.dispose();
+
+        // The validation thread is shared: a small document is validated as soon as the cancelled one stops
+        PlainDocument small = new PlainDocument();
+        small.insertString(0, "<html><body><div class=\"hfeed\"></div></body></html>", null);
+
+        ValidationScheduler next = new ValidationScheduler(small, DOC_NAME, listener);
+
+        try {
+            next.validateNow();
+
+            long end = System.currentTimeMillis() + 2000;
+            while (notified.get() == 0 && System.currentTimeMillis() < end) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+
+            TimeUnit.MILLISECONDS.sleep(100);
+            assertEquals(1, notified.get());
+        } finally {
+            next.dispose();
+        }
+    }
+
+    /**
+     * A cancelled engine stops validating.
+     */
+    @Test
+    public void testCancel() throws Exception {
+
+        System.out.println("Testing validation cancellation");
+
+        ValidationMode[] modes = ValidationMode.values();
+
+        for (int i = 0; i < modes.length; i++) {
+
+            ValidatorEngine engine = new ValidatorEngine();
+            engine.setDocumentName(DOC_NAME);
+            engine.setValidationMode(modes[i]);
+            engine.cancel();
+
+            InputStream is = this.getClass().getResourceAsStream(XHTML_DIR + "hfeed_hentry_ok.xhtml");
+
+            try {
+                engine.validate(is);
+                fail(modes[i] + " validation has not been cancelled");
+            } catch (ValidationCancelledException ex) {
+                // expected
+            } finally {
+                is.close();
+            }
+        }
+    }
+}
@@ -31,7 +31,18 @@ import org.junit.runners.Suite;
         it.pronetics.madstore.hatom.netbeans.validator.engine.HfeedAnalyzerTest.class,
         it.pronetics.madstore.hatom.netbeans.validator.engine.HentryAnalyzerTest.class,
         it.pronetics.madstore.hatom.netbeans.validator.engine.HentryChildAnalyzerTest.class,
-        it.pronetics.madstore.hatom.netbeans.validator.engine.DateTimeAnalyzerTest.class
+        it.pronetics.madstore.hatom.netbeans.validator.engine.DateTimeAnalyzerTest.class,
+        it.pronetics.madstore.hatom.netbeans.validator.engine.SinglePassAnalyzerTest.class,
+        it.pronetics.madstore.hatom.netbeans.validator.engine.StreamingAnalyzerTest.class,
+        it.pronetics.madstore.hatom.netbeans.validator.engine.KeywordSetTest.class,
+        it.pronetics.madstore.hatom.netbeans.validator.engine.IncrementalValidatorTest.class,
+        it.pronetics.madstore.hatom.netbeans.validator.engine.ValidationSchedulerTest.class,
+        it.pronetics.madstore.hatom.netbeans.validator.engine.ParallelValidationTest.class,
+        it.pronetics.madstore.hatom.netbeans.validator.engine.DocumentReaderTest.class,
+        it.pronetics.madstore.hatom.netbeans.validator.engine.ReportTest.class,
+        it.pronetics.madstore.hatom.netbeans.validator.engine.LineMapTest.class,
+        it.pronetics.madstore.hatom.netbeans.validator.engine.ParserPoolTest.class,
+        it.pronetics.madstore.hatom.netbeans.validator.engine.XhtmlCatalogTest.class
     })
     
 public class ValidatorTestSuite {}
\ No newline at end of file
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2008 - 2009 Pro-Netics S.P.A.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package it.pronetics.madstore.hatom.netbeans.validator.engine;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import org.junit.After;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import static org.junit.Assert.*;
+
+/**
+ * Test of class XhtmlCatalog.<br>
+ *
+ * @author Andrea Castello
+ * @version 1.0
+ */
+public class XhtmlCatalogTest {
+
+    private static final String STRICT_ID = "-//W3C//DTD XHTML 1.0 Strict//EN";
+
+    private static final String XHTML =
+        "<?xml version=\"1.0\"?>\n"
+        + "<!DOCTYPE html PUBLIC \"" + STRICT_ID + "\" \"http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd\">\n"
+        + "<html><body><p>a&nbsp;&eacute;&hellip;&euro;&amp;&lt;b</p></body></html>";
+
+    public XhtmlCatalogTest() {
+    }
+
+    @After
+    public void tearDown() {
+        XhtmlCatalog.getInstance().setDtdLoading(true);
+    }
+
+    private static String read(InputSource source) throws Exception {
+
+        Reader reader = new InputStreamReader(source.getByteStream(), "UTF-8");
+        StringBuilder text = new StringBuilder();
+
+        for (int c = reader.read(); c >= 0; c = reader.read()) {
+            text.append((char) c);
+        }
+
+        return text.toString();
+    }
+
+    private static String parse(String xhtml) throws Exception {
+        Document doc = XMLUtils.getDocument(new InputSource(new StringReader(xhtml)));
+        return doc.getElementsByTagName("p").item(0).getTextContent();
+    }
+
+    /**
+     * Test of resolveEntity method, of class XhtmlCatalog.
+     */
+    @Test
+    public void testResolveEntity() throws Exception {
+
+        System.out.println("Testing catalog entities");
+
+        XhtmlCatalog catalog = XhtmlCatalog.getInstance();
+
+        InputSource dtd = catalog.resolveEntity(STRICT_ID, "http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd");
+        assertNotNull(dtd);
+        assertEquals("http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd", dtd.getSystemId());
+        assertTrue(read(dtd).indexOf("%HTMLlat1;") >= 0);
+
+        assertNotNull(catalog.resolveEntity(null, "http://www.w3.org/TR/xhtml11/DTD/xhtml11.dtd"));
+        assertNotNull(catalog.resolveEntity("-//W3C//DTD XHTML 1.0 Transitional//EN", "xhtml1-transitional.dtd"));
+
+        InputSource symbols = catalog.resolveEntity("-//W3C//ENTITIES Symbols for XHTML//EN", "xhtml-symbol.ent");
+        assertTrue(read(symbols).indexOf("<!ENTITY hellip") >= 0);
+
+        assertNull(catalog.resolveEntity("-//Example//DTD Unknown//EN", "http://example.org/unknown.dtd"));
+    }
+
+    /**
+     * XHTML entities must be expanded without reading the W3C DTDs.
+     */
+    @Test
+    public void testEntities() throws Exception {
+
+        System.out.println("Testing catalog entity expansion");
+
+        assertEquals("a\u00a0\u00e9\u2026\u20ac&<b", parse(XHTML));
+    }
+
+    /**
+     * Test of setDtdLoading method, of class XhtmlCatalog.
+     */
+    @Test
+    public void testSkipDtd() throws Exception {
+
+        System.out.println("Testing catalog without DTD loading");
+
+        XhtmlCatalog catalog = XhtmlCatalog.getInstance();
+        catalog.setDtdLoading(false);
+
+        assertEquals(0, read(catalog.resolveEntity(STRICT_ID, "xhtml1-strict.dtd")).length());
+        assertEquals(0, read(catalog.resolveEntity(null, "http://example.org/unknown.dtd")).length());
+
+        // Undeclared entities are skipped
+        assertEquals("a&<b", parse(XHTML));
+    }
+}